@@ -1,22 +1,31 @@
 package de.hdg.keklist;
 
-import com.google.common.collect.Iterables;
 import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
 import de.hdg.keklist.api.KeklistAPI;
 import de.hdg.keklist.api.KeklistChannelListener;
+import de.hdg.keklist.api.ProxyBlacklistSync;
+import de.hdg.keklist.api.protocol.ApiFrame;
 import de.hdg.keklist.commands.BlacklistCommand;
 import de.hdg.keklist.commands.KeklistCommand;
 import de.hdg.keklist.commands.WhitelistCommand;
 import de.hdg.keklist.database.DB;
+import de.hdg.keklist.database.DomainResolver;
+import de.hdg.keklist.database.ListCache;
+import de.hdg.keklist.database.ProfileCache;
+import de.hdg.keklist.database.SkinCache;
 import de.hdg.keklist.events.BlacklistRemoveMotd;
 import de.hdg.keklist.events.ListPingEvent;
 import de.hdg.keklist.events.PreLoginKickEvent;
 import de.hdg.keklist.events.ServerWhitelistChangeEvent;
 import de.hdg.keklist.extentions.PlaceholderAPIExtension;
+import de.hdg.keklist.extentions.PrometheusExporter;
 import de.hdg.keklist.extentions.context.BlacklistedCalculator;
+import de.hdg.keklist.extentions.context.ListContextUpdater;
 import de.hdg.keklist.extentions.context.WhitelistedCalculator;
 import de.hdg.keklist.gui.events.MainGUIEvent;
 import de.hdg.keklist.gui.events.SettingsEvent;
@@ -26,10 +35,14 @@ import de.hdg.keklist.gui.events.whitelist.WhitelistEntryEvent;
 import de.hdg.keklist.gui.events.whitelist.WhitelistEvent;
 import de.hdg.keklist.util.KeklistConfigUtil;
 import de.hdg.keklist.util.LanguageUtil;
+import de.hdg.keklist.util.PluginMessenger;
+import de.hdg.keklist.util.KeklistSettings;
+import de.hdg.keklist.util.RateLimiter;
 import de.hdg.keklist.extentions.PlanHook;
 import de.hdg.keklist.extentions.WebhookManager;
 import de.sage.util.UpdateChecker;
 import lombok.Getter;
+import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
 import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
 import net.kyori.adventure.text.minimessage.tag.standard.StandardTags;
@@ -52,8 +65,8 @@ public final class Keklist extends JavaPlugin {
 
     /* Intern */
     private final int bstatsID = 18279;
+    private static final long LIMBO_REQUEST_TTL = 10_000;
     private KeklistMetrics metrics;
-    private static final Random random = new Random();
     private KeklistConfigUtil configUtil;
     private UpdateChecker updateChecker;
     //private final ScheduledThreadPoolExecutor updateExecutor = new ScheduledThreadPoolExecutor(1); // TODO : Uncomment this when the plugin is *publicly* released
@@ -63,11 +76,22 @@ public final class Keklist extends JavaPlugin {
     @Nullable FloodgateApi floodgateApi = null;
     private static @Getter PlanHook planHook;
     private PlaceholderAPIExtension placeholders;
+    private PrometheusExporter prometheusExporter;
     private ContextManager contextManager;
     private final List<ContextCalculator<Player>> registeredCalculators = new ArrayList<>();
 
     /* Global */
     private static @Getter DB database;
+    private static @Getter ListCache listCache;
+    private static @Getter DomainResolver domainResolver;
+    private static @Getter ProfileCache profileCache;
+    private static @Getter SkinCache skinCache;
+    private static final @Getter KeklistStats stats = new KeklistStats();
+    private static volatile @Getter KeklistSettings settings;
+    private static @Getter RateLimiter pingLimiter;
+    private static @Getter RateLimiter loginLimiter;
+    private static @Getter ProxyBlacklistSync proxySync;
+    private static @Getter PluginMessenger pluginMessenger;
     private static @Getter LanguageUtil translations;
     private static @Getter WebhookManager webhookManager;
     private static @Getter Keklist instance;
@@ -107,6 +131,18 @@ public final class Keklist extends JavaPlugin {
         //Plugin channel for limbo connections
         this.getServer().getMessenger().registerOutgoingPluginChannel(this, "keklist:data");
 
+        //Messages to the proxy wait for a player to carry them
+        pluginMessenger = new PluginMessenger(this);
+        pluginMessenger.registerBatcher("keklist:data", messages -> {
+            JsonArray requests = new JsonArray();
+            messages.forEach(message -> requests.add(JsonParser.parseString(ByteStreams.newDataInput(message).readUTF())));
+
+            ByteArrayDataOutput out = ByteStreams.newDataOutput();
+            out.writeUTF(requests.toString());
+            return out.toByteArray();
+        });
+        pluginMessenger.registerBatcher("keklist:api", ApiFrame::encodeBatch);
+
         //save config for custom messages
         this.saveDefaultConfig();
 
@@ -126,6 +162,23 @@ public final class Keklist extends JavaPlugin {
 
         database.connect();
 
+        //Login checks are served from memory
+        listCache = new ListCache();
+        listCache.addListener(stats);
+        if (database.isConnected())
+            listCache.load();
+
+        //Domains are resolved in the background, see onEnable
+        domainResolver = new DomainResolver();
+
+        //Name and uuid lookups against the Mojang API
+        profileCache = new ProfileCache(getConfig());
+        if (database.isConnected())
+            profileCache.prune();
+
+        //Textures of the GUI heads
+        skinCache = new SkinCache(getConfig());
+
         //Needs to be called after the connection to the database
         api = KeklistAPI.makeApi(this);
     }
@@ -140,6 +193,14 @@ public final class Keklist extends JavaPlugin {
 
         PluginManager pm = getServer().getPluginManager();
 
+        //Pings and logins read a prepared snapshot instead of the config
+        reloadSettings();
+
+        //Scanners and bot waves are turned away before they cost any lookups
+        pingLimiter = new RateLimiter(getConfig().getConfigurationSection("rate-limit.ping"));
+        loginLimiter = new RateLimiter(getConfig().getConfigurationSection("rate-limit.login"));
+
+        pm.registerEvents(pluginMessenger, this);
         pm.registerEvents(new ListPingEvent(), this);
         pm.registerEvents(new PreLoginKickEvent(), this);
         pm.registerEvents(new BlacklistRemoveMotd(), this);
@@ -160,6 +221,17 @@ public final class Keklist extends JavaPlugin {
         this.getServer().getMessenger().registerIncomingPluginChannel(this, "keklist:api", new KeklistChannelListener(api));
         this.getServer().getMessenger().registerOutgoingPluginChannel(this, "keklist:api");
 
+        //The proxy can reject blacklisted players before they reach any server
+        proxySync = new ProxyBlacklistSync(api.getChannel());
+        listCache.addListener(proxySync);
+        pm.registerEvents(proxySync, this);
+        proxySync.reload();
+
+        //Heads of new entries are fetched before anyone opens the list
+        listCache.addListener(skinCache);
+        pm.registerEvents(skinCache, this);
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, skinCache::work, 20L, 20L);
+
         //Plan Hook
         if (Bukkit.getPluginManager().getPlugin("Plan") != null) {
             if (getConfig().getBoolean("plan-support")) {
@@ -168,6 +240,25 @@ public final class Keklist extends JavaPlugin {
             }
         }
 
+        //Other servers may write to the same MariaDB
+        if (getConfig().getBoolean("mariadb.enabled") && getConfig().getInt("mariadb.cache-refresh") > 0) {
+            long interval = getConfig().getInt("mariadb.cache-refresh") * 20L;
+            Bukkit.getScheduler().runTaskTimerAsynchronously(this, listCache::load, interval, interval);
+        }
+
+        //Dynamic DNS entries change their address from time to time
+        if (getConfig().getInt("whitelist.domain-refresh") > 0) {
+            long interval = getConfig().getInt("whitelist.domain-refresh") * 20L;
+            Bukkit.getScheduler().runTaskTimerAsynchronously(this, domainResolver::refresh, 0L, interval);
+        } else
+            Bukkit.getScheduler().runTaskAsynchronously(this, domainResolver::refresh);
+
+        //Buckets of addresses that stopped connecting are full again and can go
+        Bukkit.getScheduler().runTaskTimerAsynchronously(this, () -> {
+            pingLimiter.evict();
+            loginLimiter.evict();
+        }, 1200L, 1200L);
+
         //Webhook Manager
         if (getConfig().getBoolean("discord.enabled"))
             webhookManager = new WebhookManager(this);
@@ -182,11 +273,24 @@ public final class Keklist extends JavaPlugin {
             placeholders.register();
         }
 
+        // Prometheus metrics
+        if (getConfig().getBoolean("prometheus.enabled")) {
+            String address = getConfig().getString("prometheus.bind", "127.0.0.1") + ":" + getConfig().getInt("prometheus.port", 9464);
+
+            try {
+                prometheusExporter = new PrometheusExporter(getConfig().getString("prometheus.bind", "127.0.0.1"), getConfig().getInt("prometheus.port", 9464));
+                getLogger().info(translations.get("prometheus.started", address));
+            } catch (Exception e) {
+                getLogger().severe(translations.get("prometheus.failed", address, e.getMessage()));
+            }
+        }
+
         // LuckPerms contexts (no config option, always enabled)
         if (Bukkit.getPluginManager().getPlugin("LuckPerms") != null) {
             contextManager = getServer().getServicesManager().load(LuckPerms.class).getContextManager();
             registeredCalculators.addAll(List.of(new WhitelistedCalculator(), new BlacklistedCalculator()));
             registeredCalculators.forEach(contextManager::registerCalculator);
+            listCache.addListener(new ListContextUpdater(contextManager));
         }
 
         // Update checker
@@ -217,10 +321,25 @@ public final class Keklist extends JavaPlugin {
             registeredCalculators.clear();
         }
 
+        // Send the remaining Discord notifications
+        if (webhookManager != null)
+            webhookManager.shutdown();
+
         // Shutdown placeholders
         if (placeholders != null)
             placeholders.unregister();
 
+        // Stop serving metrics
+        if (prometheusExporter != null)
+            prometheusExporter.shutdown();
+
+        // Stop resolving domains and profiles
+        if (domainResolver != null)
+            domainResolver.shutdown();
+
+        if (profileCache != null)
+            profileCache.shutdown();
+
         // Disconnect from the database
         database.disconnect();
 
@@ -229,37 +348,41 @@ public final class Keklist extends JavaPlugin {
         this.getServer().getMessenger().unregisterOutgoingPluginChannel(this);
     }
 
+    /**
+     * Picks one of the configured MOTDs
+     *
+     * @param type The kind of MOTD
+     * @return The MOTD in MiniMessage format, "null" if none is configured
+     * @deprecated Use {@link KeklistSettings#randomMotd(RandomType)} of {@link #getSettings()}, which is already deserialized
+     */
+    @Deprecated
     @NotNull
     public String getRandomizedMotd(@NotNull RandomType type) {
-        switch (type) {
-            case BLACKLISTED -> {
-                return getConfig().getStringList("messages.motd.blacklisted").get(random.nextInt(getConfig().getStringList("messages.motd.blacklisted").size()));
-            }
-            case WHITELISTED -> {
-                return getConfig().getStringList("messages.motd.whitelisted").get(random.nextInt(getConfig().getStringList("messages.motd.whitelisted").size()));
-            }
-            case NORMAL -> {
-                return getConfig().getStringList("messages.motd.default").get(random.nextInt(getConfig().getStringList("messages.motd.default").size()));
-            }
-            default -> {
-                return "null";
-            }
-        }
+        Component motd = settings.randomMotd(type);
+        return motd == null ? "null" : miniMessage.serialize(motd);
     }
 
+    /**
+     * Picks one of the configured kick messages
+     *
+     * @param type Either {@link RandomType#BLACKLISTED} or {@link RandomType#WHITELISTED}
+     * @return The kick message in MiniMessage format
+     * @deprecated Use {@link KeklistSettings#randomKickMessage(RandomType)} of {@link #getSettings()}, which is already deserialized
+     */
+    @Deprecated
     @NotNull
     public String getRandomizedKickMessage(@NotNull RandomType type) {
-        switch (type) {
-            case BLACKLISTED -> {
-                return getConfig().getStringList("messages.kick.blacklisted").get(random.nextInt(getConfig().getStringList("messages.kick.blacklisted").size()));
-            }
-            case WHITELISTED -> {
-                return getConfig().getStringList("messages.kick.whitelisted").get(random.nextInt(getConfig().getStringList("messages.kick.whitelisted").size()));
-            }
-            default -> {
-                return "null";
-            }
-        }
+        return miniMessage.serialize(settings.randomKickMessage(type));
+    }
+
+    /**
+     * Replaces the {@link KeklistSettings} snapshot, call this after changing or reloading the config
+     */
+    public void reloadSettings() {
+        settings = KeklistSettings.load(getConfig(), miniMessage);
+
+        if (proxySync != null)
+            proxySync.reload();
     }
 
     public void sendUserToLimbo(Player player) {
@@ -267,23 +390,23 @@ public final class Keklist extends JavaPlugin {
     }
 
     public void sendUserToLimbo(UUID uuid) {
-        try {
-            ByteArrayDataOutput out = ByteStreams.newDataOutput();
+        ByteArrayDataOutput out = ByteStreams.newDataOutput();
 
-            JsonObject data = new JsonObject();
-            data.add("uuid", new JsonPrimitive(uuid.toString()));
-            data.add("unix", new JsonPrimitive(System.currentTimeMillis()));
-            data.add("from", new JsonPrimitive(getServer().getName()));
+        JsonObject data = new JsonObject();
+        data.add("uuid", new JsonPrimitive(uuid.toString()));
+        data.add("unix", new JsonPrimitive(System.currentTimeMillis()));
+        data.add("from", new JsonPrimitive(getServer().getName()));
 
-            out.writeUTF(data.toString());
+        out.writeUTF(data.toString());
 
-            Iterables.getFirst(Bukkit.getOnlinePlayers(), null).sendPluginMessage(this, "keklist:data", out.toByteArray());
-
-            if (Keklist.getWebhookManager() != null)
-                Keklist.getWebhookManager().fireEvent(WebhookManager.EVENT_TYPE.LIMBO, uuid.toString(), System.currentTimeMillis());
-        } catch (NullPointerException | IllegalArgumentException ex) {
-            getLogger().warning(translations.get("limbo.error"));
+        // The player is usually the first one to join an empty server, so the request waits for them
+        if (!pluginMessenger.send("keklist:data", out.toByteArray(), LIMBO_REQUEST_TTL)) {
+            getLogger().warning(translations.get("limbo.queue-full", uuid));
+            return;
         }
+
+        if (Keklist.getWebhookManager() != null)
+            Keklist.getWebhookManager().fireEvent(WebhookManager.EVENT_TYPE.LIMBO, uuid.toString(), System.currentTimeMillis());
     }
 
     private void registerCommand(Command command) {
@@ -1,11 +1,10 @@
 package de.hdg.keklist;
 
+import de.hdg.keklist.database.ListCache;
 import org.bstats.bukkit.Metrics;
 import org.bstats.charts.SimplePie;
 import org.bstats.charts.SingleLineChart;
 
-import java.sql.ResultSet;
-
 public class KeklistMetrics {
 
     private final Metrics metrics;
@@ -29,37 +28,11 @@ public class KeklistMetrics {
 
         metrics.addCustomChart(new SimplePie("keklist_blacklist", () -> plugin.getConfig().getBoolean("blacklist.enabled") ? "enabled" : "disabled"));
 
-        metrics.addCustomChart(new SingleLineChart("keklist_whitelisted", () -> {
-            ResultSet rsPlayers = Keklist.getDatabase().onQuery("SELECT COUNT(*) FROM whitelist");
-            ResultSet rsIPs = Keklist.getDatabase().onQuery("SELECT COUNT(*) FROM whitelistIp");
-            try {
-                int count = 0;
-                if (rsPlayers.next())
-                    count += rsPlayers.getInt(1);
-
-                if (rsIPs.next())
-                    count += rsIPs.getInt(1);
-
-                return count;
-            } catch (Exception ignored) {}
-            return 0;
-        }));
-
-        metrics.addCustomChart(new SingleLineChart("keklist_blacklisted", () -> {
-            ResultSet rsPlayers = Keklist.getDatabase().onQuery("SELECT COUNT(*) FROM blacklist");
-            ResultSet rsIPs = Keklist.getDatabase().onQuery("SELECT COUNT(*) FROM blacklistIp");
-            try {
-                int count = 0;
-                if (rsPlayers.next())
-                    count += rsPlayers.getInt(1);
-
-                if (rsIPs.next())
-                    count += rsIPs.getInt(1);
+        metrics.addCustomChart(new SingleLineChart("keklist_whitelisted", () ->
+                Keklist.getStats().listSize(ListCache.ListType.WHITELIST) + Keklist.getStats().listSize(ListCache.ListType.WHITELIST_IP)));
 
-                return count;
-            } catch (Exception ignored) {}
-            return 0;
-        }));
+        metrics.addCustomChart(new SingleLineChart("keklist_blacklisted", () ->
+                Keklist.getStats().listSize(ListCache.ListType.BLACKLIST) + Keklist.getStats().listSize(ListCache.ListType.BLACKLIST_IP)));
 
         plugin.getLogger().info(Keklist.getTranslations().get("bstats.done"));
     }
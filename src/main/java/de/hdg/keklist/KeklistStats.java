@@ -0,0 +1,234 @@
+package de.hdg.keklist;
+
+import de.hdg.keklist.database.ListCache;
+import de.hdg.keklist.util.Histogram;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Numbers about the lists and the players they turned away, cheap enough to be read for every placeholder request
+ * <p>
+ * The size of every list is a counter which follows the changes of the {@link ListCache}. It is seeded by the first
+ * load of the cache, which reports every entry as added, so the lists are never counted in the database.
+ * <p>
+ * Kicks are counted per minute in a ring of {@link #WINDOW_MINUTES} buckets. Every bucket packs its minute and its count
+ * into one long, so recording a kick is a single compare-and-set and a bucket of an old minute is reset on the fly.
+ * <p>
+ * The durations of the login checks, the database and the Mojang lookups are kept as {@link Histogram}s for the
+ * Prometheus exporter. All counters only grow, except for the list sizes.
+ */
+public class KeklistStats implements ListCache.ChangeListener {
+
+    public static final int WINDOW_MINUTES = 60;
+
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final Map<ListCache.ListType, LongAdder> sizes = new EnumMap<>(ListCache.ListType.class);
+    private final Map<Kick, AtomicLongArray> kicks = new EnumMap<>(Kick.class);
+    private final Map<Kick, LongAdder> kicksTotal = new EnumMap<>(Kick.class);
+    private final @Getter Map<LoginPath, Histogram> loginChecks = new EnumMap<>(LoginPath.class);
+    private final @Getter Map<DbOperation, Histogram> database = new EnumMap<>(DbOperation.class);
+    private final @Getter Map<Cache, Histogram> lookups = new EnumMap<>(Cache.class);
+    private final Map<Cache, LongAdder> hits = new EnumMap<>(Cache.class);
+    private final Map<Cache, LongAdder> misses = new EnumMap<>(Cache.class);
+    private final LongAdder pings = new LongAdder();
+    private final LongAdder limitedPings = new LongAdder();
+
+    public KeklistStats() {
+        for (ListCache.ListType type : ListCache.ListType.values())
+            sizes.put(type, new LongAdder());
+
+        for (Kick kick : Kick.values()) {
+            kicks.put(kick, new AtomicLongArray(WINDOW_MINUTES));
+            kicksTotal.put(kick, new LongAdder());
+        }
+
+        for (LoginPath path : LoginPath.values())
+            loginChecks.put(path, new Histogram(Histogram.LATENCY_BUCKETS));
+
+        for (DbOperation operation : DbOperation.values())
+            database.put(operation, new Histogram(Histogram.LATENCY_BUCKETS));
+
+        for (Cache cache : Cache.values()) {
+            lookups.put(cache, new Histogram(Histogram.LATENCY_BUCKETS));
+            hits.put(cache, new LongAdder());
+            misses.put(cache, new LongAdder());
+        }
+    }
+
+    @Override
+    public void onAdd(@NotNull ListCache.ListType type, @NotNull String key) {
+        sizes.get(type).increment();
+    }
+
+    @Override
+    public void onRemove(@NotNull ListCache.ListType type, @NotNull String key) {
+        sizes.get(type).decrement();
+    }
+
+    /**
+     * Counts a player who was turned away
+     */
+    public void recordKick(@NotNull Kick kick) {
+        kicksTotal.get(kick).increment();
+
+        AtomicLongArray buckets = kicks.get(kick);
+        long minute = System.currentTimeMillis() / 60_000L;
+        int index = (int) (minute % WINDOW_MINUTES);
+
+        long current;
+        long next;
+        do {
+            current = buckets.get(index);
+
+            if (current >>> COUNT_BITS != minute)
+                next = minute << COUNT_BITS | 1;
+            else if ((current & COUNT_MASK) == COUNT_MASK)
+                return;
+            else
+                next = current + 1;
+        } while (!buckets.compareAndSet(index, current, next));
+    }
+
+    /**
+     * Counts the players turned away recently
+     *
+     * @param kick    The reason or null for all reasons
+     * @param minutes How many minutes to look back, at most {@link #WINDOW_MINUTES}, the current minute included
+     * @return The number of kicks
+     */
+    public long recentKicks(@Nullable Kick kick, int minutes) {
+        if (kick == null) {
+            long total = 0;
+            for (Kick each : Kick.values())
+                total += recentKicks(each, minutes);
+            return total;
+        }
+
+        AtomicLongArray buckets = kicks.get(kick);
+        long minute = System.currentTimeMillis() / 60_000L;
+        int window = Math.max(1, Math.min(minutes, WINDOW_MINUTES));
+        long total = 0;
+
+        for (int i = 0; i < WINDOW_MINUTES; i++) {
+            long bucket = buckets.get(i);
+            if (minute - (bucket >>> COUNT_BITS) < window)
+                total += bucket & COUNT_MASK;
+        }
+
+        return total;
+    }
+
+    /**
+     * @param type The list
+     * @return The number of entries of the list
+     */
+    public int listSize(@NotNull ListCache.ListType type) {
+        return sizes.get(type).intValue();
+    }
+
+    /**
+     * @return Every kick since the start, for each reason
+     */
+    @NotNull
+    public Map<Kick, Long> totalKicks() {
+        Map<Kick, Long> totals = new EnumMap<>(Kick.class);
+        kicksTotal.forEach((kick, adder) -> totals.put(kick, adder.sum()));
+        return totals;
+    }
+
+    /**
+     * @param path  How the pre login check ended
+     * @param nanos How long the check took
+     */
+    public void recordLoginCheck(@NotNull LoginPath path, long nanos) {
+        loginChecks.get(path).record(nanos);
+    }
+
+    public void recordDatabase(@NotNull DbOperation operation, long nanos) {
+        database.get(operation).record(nanos);
+    }
+
+    /**
+     * @param cache The cache which asked
+     * @param nanos How long the request to Mojang or mcprofile.io took
+     */
+    public void recordLookup(@NotNull Cache cache, long nanos) {
+        lookups.get(cache).record(nanos);
+    }
+
+    /**
+     * @param hit Whether the cache could answer without asking Mojang
+     */
+    public void recordCache(@NotNull Cache cache, boolean hit) {
+        (hit ? hits : misses).get(cache).increment();
+    }
+
+    /**
+     * @param limited Whether the ping was dropped by the rate limit
+     */
+    public void recordPing(boolean limited) {
+        pings.increment();
+        if (limited)
+            limitedPings.increment();
+    }
+
+    public long getHits(@NotNull Cache cache) {
+        return hits.get(cache).sum();
+    }
+
+    public long getMisses(@NotNull Cache cache) {
+        return misses.get(cache).sum();
+    }
+
+    public long getPings() {
+        return pings.sum();
+    }
+
+    public long getLimitedPings() {
+        return limitedPings.sum();
+    }
+
+    /**
+     * Why a player was turned away
+     */
+    public enum Kick {
+        BLACKLISTED,
+        NOT_WHITELISTED,
+        RATE_LIMITED
+    }
+
+    /**
+     * How the pre login check of a player ended
+     */
+    public enum LoginPath {
+        ALLOWED,
+        WHITELISTED,
+        ADMIN_BYPASS,
+        LIMBO,
+        BLACKLISTED,
+        NOT_WHITELISTED,
+        RATE_LIMITED
+    }
+
+    public enum DbOperation {
+        QUERY,
+        UPDATE,
+        BATCH
+    }
+
+    /**
+     * The caches in front of the Mojang APIs
+     */
+    public enum Cache {
+        PROFILE,
+        SKIN
+    }
+}
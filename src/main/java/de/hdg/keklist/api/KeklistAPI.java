@@ -2,11 +2,13 @@ package de.hdg.keklist.api;
 
 import de.hdg.keklist.Keklist;
 import de.hdg.keklist.api.events.blacklist.*;
+import de.hdg.keklist.api.events.whitelist.BulkAddToWhitelistEvent;
 import de.hdg.keklist.api.events.whitelist.IpAddToWhitelistEvent;
 import de.hdg.keklist.api.events.whitelist.IpRemovedFromWhitelistEvent;
 import de.hdg.keklist.api.events.whitelist.UUIDAddToWhitelistEvent;
 import de.hdg.keklist.api.events.whitelist.UUIDRemovedFromWhitelistEvent;
 import de.hdg.keklist.database.DB;
+import de.hdg.keklist.database.ListCache;
 import de.hdg.keklist.extentions.WebhookManager;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
@@ -14,11 +16,15 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -31,6 +37,7 @@ import java.util.concurrent.Future;
 public class KeklistAPI {
 
     private final Keklist plugin;
+    private final KeklistChannelClient channel = new KeklistChannelClient();
     private final String API_INFO = "ADDED_BY_API";
 
     /**
@@ -61,6 +68,17 @@ public class KeklistAPI {
     }
 
 
+    /**
+     * Returns the client for talking to Keklist on other servers behind the same Velocity proxy
+     *
+     * @return The channel client
+     */
+    @NotNull
+    public KeklistChannelClient getChannel() {
+        return channel;
+    }
+
+
     /* Getter form Database */
 
     /**
@@ -83,14 +101,7 @@ public class KeklistAPI {
      * @return true if the uuid is blacklisted
      */
     public boolean isBlacklisted(@NotNull UUID uuid) {
-        try {
-            ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklist WHERE uuid = ?", uuid.toString());
-            return rs.next();
-        } catch (SQLException e) {
-            Keklist.getInstance().getLogger().severe("Database is not available");
-            e.printStackTrace();
-            return false;
-        }
+        return Keklist.getListCache().isBlacklisted(uuid);
     }
 
     /**
@@ -102,17 +113,9 @@ public class KeklistAPI {
      * @throws IllegalArgumentException if the ip is not valid
      */
     public boolean isBlacklisted(@NotNull String ip) {
-        if (ip.matches("^(?:[0-9]{1,3}\\.){3}[0-9]{1,3}$") || ip.matches("^(?:[0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}$"))
-            throw new IllegalArgumentException("IP is not valid");
-
-        try {
-            ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklistIp WHERE ip = ?", ip);
-            return rs.next();
-        } catch (SQLException e) {
-            Keklist.getInstance().getLogger().severe("Database is not available");
-            e.printStackTrace();
-            return false;
-        }
+        checkIp(ip);
+
+        return Keklist.getListCache().isBlacklisted(ip);
     }
 
     /**
@@ -124,17 +127,9 @@ public class KeklistAPI {
      * @throws IllegalArgumentException if the ip is not valid
      */
     public boolean isMOTDBlacklisted(@NotNull String ip) {
-        if (ip.matches("^(?:[0-9]{1,3}\\.){3}[0-9]{1,3}$") || ip.matches("^(?:[0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}$"))
-            throw new IllegalArgumentException("IP is not valid");
-
-        try {
-            ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklistMotd WHERE ip = ?", ip);
-            return rs.next();
-        } catch (SQLException e) {
-            Keklist.getInstance().getLogger().severe("Database is not available");
-            e.printStackTrace();
-            return false;
-        }
+        checkIp(ip);
+
+        return Keklist.getListCache().isMotdBlacklisted(ip);
     }
 
     /**
@@ -157,14 +152,7 @@ public class KeklistAPI {
      * @return true if the uuid is whitelisted
      */
     public boolean isWhitelisted(@NotNull UUID uuid) {
-        try {
-            ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE uuid = ?", uuid.toString());
-            return rs.next();
-        } catch (SQLException e) {
-            Keklist.getInstance().getLogger().severe("Database is not available");
-            e.printStackTrace();
-            return false;
-        }
+        return Keklist.getListCache().isWhitelisted(uuid);
     }
 
     /**
@@ -176,16 +164,9 @@ public class KeklistAPI {
      * @throws IllegalArgumentException if the ip is not valid
      */
     public boolean isWhitelisted(@NotNull String ip) {
-        if (ip.matches("^(?:[0-9]{1,3}\\.){3}[0-9]{1,3}$") || ip.matches("^(?:[0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}$"))
-            throw new IllegalArgumentException("IP is not valid");
-
-        try (ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelistIp WHERE ip = ?", ip)) {
-            return rs.next();
-        } catch (SQLException e) {
-            Keklist.getInstance().getLogger().severe("Database is not available");
-            e.printStackTrace();
-            return false;
-        }
+        checkIp(ip);
+
+        return Keklist.getListCache().isWhitelisted(ip);
     }
 
 
@@ -210,7 +191,8 @@ public class KeklistAPI {
         if (isWhitelisted(uuid)) return;
         awaitSync(() -> new UUIDAddToWhitelistEvent(uuid).callEvent());
 
-        Keklist.getDatabase().onUpdate("INSERT INTO whitelist (uuid, name, byPlayer, unix) VALUES (?, ?, ?, ?)", uuid.toString(), playerName == null ? API_INFO : playerName, API_INFO, System.currentTimeMillis());
+        CompletableFuture<Integer> write = Keklist.getDatabase().getWhitelist().add(uuid, playerName, API_INFO, System.currentTimeMillis());
+        Keklist.getListCache().add(write, ListCache.ListType.WHITELIST, uuid.toString(), playerName, API_INFO, System.currentTimeMillis());
 
         if (Keklist.getWebhookManager() != null)
             Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_ADD, playerName == null ? uuid.toString() : playerName, "API", System.currentTimeMillis());
@@ -224,12 +206,12 @@ public class KeklistAPI {
      * @throws IllegalArgumentException if the ip is not valid
      */
     public void whitelist(@NotNull String ip) {
-        if (ip.matches("^(?:[0-9]{1,3}\\.){3}[0-9]{1,3}$") || ip.matches("^(?:[0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}$"))
-            throw new IllegalArgumentException("IP is not valid");
+        checkIp(ip);
         if (isWhitelisted(ip)) return;
         awaitSync(() -> new IpAddToWhitelistEvent(ip).callEvent());
 
-        Keklist.getDatabase().onUpdate("INSERT INTO whitelistIp (ip, byPlayer, unix) VALUES (?, ?, ?)", ip, API_INFO, System.currentTimeMillis());
+        CompletableFuture<Integer> write = Keklist.getDatabase().getWhitelist().addIp(ip, API_INFO, System.currentTimeMillis());
+        Keklist.getListCache().add(write, ListCache.ListType.WHITELIST_IP, ip, null, API_INFO, System.currentTimeMillis());
 
         if (Keklist.getWebhookManager() != null)
             Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_ADD, ip, "API", System.currentTimeMillis());
@@ -258,14 +240,16 @@ public class KeklistAPI {
         String webhookEntry = playerName == null ? uuid.toString() : playerName;
         if (reason == null) {
             awaitSync(() -> new UUIDAddToBlacklistEvent(uuid, null).callEvent());
-            Keklist.getDatabase().onUpdate("INSERT INTO blacklist (uuid, name, byPlayer, unix, reason) VALUES (?, ?, ?, ?, ?)", uuid.toString(), playerName == null ? API_INFO : playerName, API_INFO, System.currentTimeMillis(), reason);
+            CompletableFuture<Integer> write = Keklist.getDatabase().getBlacklist().add(uuid, playerName, API_INFO, System.currentTimeMillis(), null);
+            Keklist.getListCache().add(write, ListCache.ListType.BLACKLIST, uuid.toString(), playerName, API_INFO, System.currentTimeMillis());
 
             if (Keklist.getWebhookManager() != null)
                 Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_ADD, webhookEntry, "API", null, System.currentTimeMillis());
         } else {
             if (reason.length() <= 1500) {
                 awaitSync(() -> new UUIDAddToBlacklistEvent(uuid, reason).callEvent());
-                Keklist.getDatabase().onUpdate("INSERT INTO blacklist (uuid, name, byPlayer, unix) VALUES (?, ?, ?, ?)", uuid.toString(), playerName == null ? API_INFO : playerName, API_INFO, System.currentTimeMillis());
+                CompletableFuture<Integer> write = Keklist.getDatabase().getBlacklist().add(uuid, playerName, API_INFO, System.currentTimeMillis(), reason);
+                Keklist.getListCache().add(write, ListCache.ListType.BLACKLIST, uuid.toString(), playerName, API_INFO, System.currentTimeMillis());
 
                 if (Keklist.getWebhookManager() != null)
                     Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_ADD, webhookEntry, "API", reason, System.currentTimeMillis());
@@ -284,20 +268,21 @@ public class KeklistAPI {
      * @throws IllegalArgumentException if the ip is not valid
      */
     public void blacklist(@NotNull String ip, @Nullable String reason) {
-        if (ip.matches("^(?:[0-9]{1,3}\\.){3}[0-9]{1,3}$") || ip.matches("^(?:[0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}$"))
-            throw new IllegalArgumentException("IP is not valid");
+        checkIp(ip);
         if (isBlacklisted(ip)) return;
 
         if (reason == null) {
             awaitSync(() -> new IpAddToBlacklistEvent(ip, null).callEvent());
-            Keklist.getDatabase().onUpdate("INSERT INTO blacklistIp (ip, byPlayer, unix) VALUES (?, ?, ?)", ip, API_INFO, System.currentTimeMillis());
+            CompletableFuture<Integer> write = Keklist.getDatabase().getBlacklist().addIp(ip, API_INFO, System.currentTimeMillis(), null);
+            Keklist.getListCache().add(write, ListCache.ListType.BLACKLIST_IP, ip, null, API_INFO, System.currentTimeMillis());
 
             if (Keklist.getWebhookManager() != null)
                 Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_ADD, ip, "API", null, System.currentTimeMillis());
         } else {
             if (reason.length() <= 1500) {
                 awaitSync(() -> new IpAddToBlacklistEvent(ip, reason).callEvent());
-                Keklist.getDatabase().onUpdate("INSERT INTO blacklistIp (ip, byPlayer, unix, reason) VALUES (?, ?, ?, ?)", ip, API_INFO, System.currentTimeMillis(), reason);
+                CompletableFuture<Integer> write = Keklist.getDatabase().getBlacklist().addIp(ip, API_INFO, System.currentTimeMillis(), reason);
+                Keklist.getListCache().add(write, ListCache.ListType.BLACKLIST_IP, ip, null, API_INFO, System.currentTimeMillis());
 
                 if (Keklist.getWebhookManager() != null)
                     Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_ADD, ip, "API", reason, System.currentTimeMillis());
@@ -307,6 +292,199 @@ public class KeklistAPI {
         }
     }
 
+    /**
+     * Whitelists many uuids at once, skipping the ones already whitelisted
+     * <p>
+     * Names are taken from the server's player cache, if the player joined before.
+     * See {@link #whitelistAll(Map, String)} for how the entries are written.
+     * </p>
+     *
+     * @param uuids UUIDs to whitelist
+     */
+    public void whitelistAll(@NotNull Collection<UUID> uuids) {
+        whitelistAll(withNames(uuids));
+    }
+
+    /**
+     * Whitelists many players at once, skipping the ones already whitelisted
+     *
+     * @param players UUIDs and the names of the players, names may be null
+     */
+    public void whitelistAll(@NotNull Map<UUID, String> players) {
+        bulkWhitelist(players, API_INFO, "API");
+    }
+
+    /**
+     * Whitelists many players at once, skipping the ones already whitelisted
+     * <p>
+     * All entries are written in one database transaction. Only one {@link BulkAddToWhitelistEvent}
+     * and one webhook message are sent instead of one per entry.
+     * </p>
+     *
+     * @param players  UUIDs and the names of the players, names may be null
+     * @param byPlayer Shown as the one who added the entries
+     */
+    public void whitelistAll(@NotNull Map<UUID, String> players, @NotNull String byPlayer) {
+        bulkWhitelist(players, byPlayer, byPlayer);
+    }
+
+    /**
+     * Whitelists many ips at once, skipping the ones already whitelisted
+     * <b>Only IPv4 and IPv6 are allowed here</b>
+     *
+     * @param ips IPs to whitelist
+     * @throws IllegalArgumentException if one of the ips is not valid
+     */
+    public void whitelistAllIps(@NotNull Collection<String> ips) {
+        ips.forEach(KeklistAPI::checkIp);
+
+        List<String> added = ips.stream().distinct().filter(ip -> !isWhitelisted(ip)).toList();
+        if (added.isEmpty()) return;
+
+        long unix = System.currentTimeMillis();
+        awaitSync(() -> new BulkAddToWhitelistEvent(List.of(), added).callEvent());
+
+        CompletableFuture<Integer> write = Keklist.getDatabase().getWhitelist().addAllIps(added, API_INFO, unix);
+        added.forEach(ip -> Keklist.getListCache().add(ListCache.ListType.WHITELIST_IP, ip, null, API_INFO, unix));
+        Keklist.getListCache().removeIfFailed(write, ListCache.ListType.WHITELIST_IP, added);
+
+        if (Keklist.getWebhookManager() != null)
+            Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_ADD, Keklist.getTranslations().get("discord.bulk-entries", added.size()), "API", unix);
+    }
+
+    /**
+     * Blacklists many uuids at once with the same reason, skipping the ones already blacklisted
+     * <p>
+     * Names are taken from the server's player cache, if the player joined before.
+     * </p>
+     *
+     * @param uuids  UUIDs to blacklist
+     * @param reason The reason for all entries
+     */
+    public void blacklistAll(@NotNull Collection<UUID> uuids, @Nullable String reason) {
+        blacklistAll(withNames(uuids), reason);
+    }
+
+    /**
+     * Blacklists many players at once with the same reason, skipping the ones already blacklisted
+     * <p>
+     * All entries are written in one database transaction. Only one {@link BulkAddToBlacklistEvent}
+     * and one webhook message are sent instead of one per entry.
+     * </p>
+     *
+     * @param players UUIDs and the names of the players, names may be null
+     * @param reason  The reason for all entries
+     */
+    public void blacklistAll(@NotNull Map<UUID, String> players, @Nullable String reason) {
+        checkReason(reason);
+
+        Map<UUID, String> added = filterNew(ListCache.ListType.BLACKLIST, players);
+        if (added.isEmpty()) return;
+
+        long unix = System.currentTimeMillis();
+        awaitSync(() -> new BulkAddToBlacklistEvent(added.keySet(), List.of(), reason).callEvent());
+
+        CompletableFuture<Integer> write = Keklist.getDatabase().getBlacklist().addAll(added, API_INFO, unix, reason);
+        cacheAll(write, ListCache.ListType.BLACKLIST, added, API_INFO, unix);
+
+        if (Keklist.getWebhookManager() != null)
+            Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_ADD, Keklist.getTranslations().get("discord.bulk-entries", added.size()), "API", reason, unix);
+    }
+
+    /**
+     * Blacklists many ips at once with the same reason, skipping the ones already blacklisted
+     * <b>Only IPv4 and IPv6 are allowed here</b>
+     *
+     * @param ips    IPs to blacklist
+     * @param reason The reason for all entries
+     * @throws IllegalArgumentException if one of the ips is not valid
+     */
+    public void blacklistAllIps(@NotNull Collection<String> ips, @Nullable String reason) {
+        checkReason(reason);
+
+        ips.forEach(KeklistAPI::checkIp);
+
+        List<String> added = ips.stream().distinct().filter(ip -> !isBlacklisted(ip)).toList();
+        if (added.isEmpty()) return;
+
+        long unix = System.currentTimeMillis();
+        awaitSync(() -> new BulkAddToBlacklistEvent(List.of(), added, reason).callEvent());
+
+        CompletableFuture<Integer> write = Keklist.getDatabase().getBlacklist().addAllIps(added, API_INFO, unix, reason);
+        added.forEach(ip -> Keklist.getListCache().add(ListCache.ListType.BLACKLIST_IP, ip, null, API_INFO, unix));
+        Keklist.getListCache().removeIfFailed(write, ListCache.ListType.BLACKLIST_IP, added);
+
+        if (Keklist.getWebhookManager() != null)
+            Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_ADD, Keklist.getTranslations().get("discord.bulk-entries", added.size()), "API", reason, unix);
+    }
+
+    private void bulkWhitelist(@NotNull Map<UUID, String> players, @NotNull String byPlayer, @NotNull String from) {
+        Map<UUID, String> added = filterNew(ListCache.ListType.WHITELIST, players);
+        if (added.isEmpty()) return;
+
+        long unix = System.currentTimeMillis();
+        awaitSync(() -> new BulkAddToWhitelistEvent(added.keySet(), List.of()).callEvent());
+
+        CompletableFuture<Integer> write = Keklist.getDatabase().getWhitelist().addAll(added, byPlayer, unix);
+        cacheAll(write, ListCache.ListType.WHITELIST, added, byPlayer, unix);
+
+        if (Keklist.getWebhookManager() != null)
+            Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_ADD, Keklist.getTranslations().get("discord.bulk-entries", added.size()), from, unix);
+    }
+
+    /**
+     * @return The players which are not on the list yet
+     */
+    @NotNull
+    private Map<UUID, String> filterNew(@NotNull ListCache.ListType type, @NotNull Map<UUID, String> players) {
+        Map<UUID, String> added = new LinkedHashMap<>();
+
+        players.forEach((uuid, name) -> {
+            if (!Keklist.getListCache().contains(type, uuid.toString()))
+                added.put(uuid, name);
+        });
+
+        return added;
+    }
+
+    /**
+     * Mirrors a bulk add into the cache, including the "(Old Name)" renames, and undoes it if the write fails
+     */
+    private void cacheAll(@NotNull CompletableFuture<Integer> write, @NotNull ListCache.ListType type, @NotNull Map<UUID, String> added, @NotNull String byPlayer, long unix) {
+        ListCache cache = Keklist.getListCache();
+        // Uuids of the players who lost their name, and that name
+        Map<String, String> renamed = new HashMap<>();
+
+        added.forEach((uuid, name) -> {
+            String holder = name == null ? null : cache.keyByName(type, name);
+            if (holder != null && !holder.equals(uuid.toString())) {
+                String oldName = DB.oldName(name);
+                renamed.putIfAbsent(holder, name);
+                cache.setName(type, holder, oldName != null && cache.keyByName(type, oldName) == null ? oldName : null);
+            }
+
+            cache.add(type, uuid.toString(), name, byPlayer, unix);
+        });
+
+        write.whenComplete((result, throwable) -> {
+            if (throwable == null)
+                return;
+
+            added.keySet().forEach(uuid -> cache.remove(type, uuid.toString()));
+            renamed.forEach((key, name) -> cache.setName(type, key, name));
+        });
+    }
+
+    private static void checkIp(@NotNull String ip) {
+        if (!ip.matches("^(?:[0-9]{1,3}\\.){3}[0-9]{1,3}$") && !ip.matches("^(?:[0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}$"))
+            throw new IllegalArgumentException("IP is not valid: " + ip);
+    }
+
+    private static void checkReason(@Nullable String reason) {
+        if (reason != null && reason.length() > 1500)
+            throw new IllegalArgumentException("Reason is too long! (Max. 1500 characters)");
+    }
+
     /**
      * Blacklists an IP for the MOTD, if not already blacklisted
      * <b>Only IPv4 and IPv6 are allowed</b>
@@ -320,7 +498,8 @@ public class KeklistAPI {
         if (isMOTDBlacklisted(ip)) return;
         awaitSync(() -> new IpAddToMOTDBlacklistEvent(ip).callEvent());
 
-        Keklist.getDatabase().onUpdate("INSERT INTO blacklistMotd (ip, byPlayer, unix) VALUES (?, ?, ?)", ip, API_INFO, System.currentTimeMillis());
+        CompletableFuture<Integer> write = Keklist.getDatabase().getMotdBlacklist().add(ip, API_INFO, System.currentTimeMillis());
+        Keklist.getListCache().add(write, ListCache.ListType.BLACKLIST_MOTD, ip, null, API_INFO, System.currentTimeMillis());
     }
 
     /**
@@ -341,7 +520,8 @@ public class KeklistAPI {
         if (!isWhitelisted(uuid)) return;
         awaitSync(() -> new UUIDRemovedFromWhitelistEvent(uuid).callEvent());
 
-        Keklist.getDatabase().onUpdate("DELETE FROM whitelist WHERE uuid = ?", uuid.toString());
+        Keklist.getDatabase().getWhitelist().remove(uuid);
+        Keklist.getListCache().remove(ListCache.ListType.WHITELIST, uuid.toString());
 
         if (Keklist.getWebhookManager() != null)
             Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_REMOVE, uuid.toString(), "API", System.currentTimeMillis());
@@ -360,7 +540,8 @@ public class KeklistAPI {
         if (!isWhitelisted(ip)) return;
         awaitSync(() -> new IpRemovedFromWhitelistEvent(ip).callEvent());
 
-        Keklist.getDatabase().onUpdate("DELETE FROM whitelistIp WHERE ip = ?", ip);
+        Keklist.getDatabase().getWhitelist().removeIp(ip);
+        Keklist.getListCache().remove(ListCache.ListType.WHITELIST_IP, ip);
 
         if (Keklist.getWebhookManager() != null)
             Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_REMOVE, ip, "API", System.currentTimeMillis());
@@ -384,7 +565,8 @@ public class KeklistAPI {
         if (!isBlacklisted(uuid)) return;
         awaitSync(() -> new UUIDRemovedFromBlacklistEvent(uuid).callEvent());
 
-        Keklist.getDatabase().onUpdate("DELETE FROM blacklist WHERE uuid = ?", uuid.toString());
+        Keklist.getDatabase().getBlacklist().remove(uuid);
+        Keklist.getListCache().remove(ListCache.ListType.BLACKLIST, uuid.toString());
 
         if (Keklist.getWebhookManager() != null)
             Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_REMOVE, uuid.toString(), "API", null, System.currentTimeMillis());
@@ -403,7 +585,8 @@ public class KeklistAPI {
         if (!isBlacklisted(ip)) return;
         awaitSync(() -> new IpRemovedFromBlacklistEvent(ip).callEvent());
 
-        Keklist.getDatabase().onUpdate("DELETE FROM blacklistIp WHERE ip = ?", ip);
+        Keklist.getDatabase().getBlacklist().removeIp(ip);
+        Keklist.getListCache().remove(ListCache.ListType.BLACKLIST_IP, ip);
 
         if (Keklist.getWebhookManager() != null)
             Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_REMOVE, ip, "API", null, System.currentTimeMillis());
@@ -422,7 +605,8 @@ public class KeklistAPI {
         if (!isMOTDBlacklisted(ip)) return;
         awaitSync(() -> new IpRemovedFromMOTDBlacklistEvent(ip).callEvent());
 
-        Keklist.getDatabase().onUpdate("DELETE FROM blacklistMotd WHERE ip = ?", ip);
+        Keklist.getDatabase().getMotdBlacklist().remove(ip);
+        Keklist.getListCache().remove(ListCache.ListType.BLACKLIST_MOTD, ip);
     }
 
 
@@ -434,7 +618,7 @@ public class KeklistAPI {
      * @return true if enabled
      */
     public boolean isWhitelistEnabled() {
-        return plugin.getConfig().getBoolean("whitelist.enabled");
+        return Keklist.getSettings().whitelistEnabled();
     }
 
     /**
@@ -443,7 +627,7 @@ public class KeklistAPI {
      * @return true if enabled
      */
     public boolean isBlacklistEnabled() {
-        return plugin.getConfig().getBoolean("blacklist.enabled");
+        return Keklist.getSettings().blacklistEnabled();
     }
 
     /**
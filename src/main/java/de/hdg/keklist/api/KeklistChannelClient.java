@@ -0,0 +1,166 @@
+package de.hdg.keklist.api;
+
+import de.hdg.keklist.Keklist;
+import de.hdg.keklist.api.protocol.ApiFrame;
+import de.hdg.keklist.api.protocol.ApiPayload;
+import de.hdg.keklist.api.protocol.Operation;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Sends requests to Keklist on other servers behind the same Velocity proxy
+ * <p>
+ * Every request gets an id, the response completes the matching future. Requests don't wait for each other,
+ * so many checks can be in flight at the same time. A future fails with an {@link APIExeption} if the other
+ * server reported an error and with a {@link java.util.concurrent.TimeoutException} if no answer came in time.
+ * <p>
+ * Plugin messages travel through a player connection. While no player is online on this server, requests wait in
+ * the {@link de.hdg.keklist.util.PluginMessenger} until one joins or the request timed out.
+ * <p>
+ * Requests are only sent if proxy-api is enabled, since answers are not accepted otherwise. Request ids are random,
+ * so an answer can't be made up without seeing the request.
+ */
+public class KeklistChannelClient {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final Map<Long, CompletableFuture<boolean[]>> pending = new ConcurrentHashMap<>();
+
+    @NotNull
+    public CompletableFuture<Map<UUID, Boolean>> isBlacklisted(@NotNull String server, @NotNull Collection<UUID> uuids) {
+        return query(server, Operation.IS_BLACKLISTED_UUID, uuids, UUID::toString);
+    }
+
+    @NotNull
+    public CompletableFuture<Map<String, Boolean>> isBlacklistedIps(@NotNull String server, @NotNull Collection<String> ips) {
+        return query(server, Operation.IS_BLACKLISTED_IP, ips, Function.identity());
+    }
+
+    @NotNull
+    public CompletableFuture<Map<String, Boolean>> isMOTDBlacklisted(@NotNull String server, @NotNull Collection<String> ips) {
+        return query(server, Operation.IS_MOTD_BLACKLISTED, ips, Function.identity());
+    }
+
+    @NotNull
+    public CompletableFuture<Map<UUID, Boolean>> isWhitelisted(@NotNull String server, @NotNull Collection<UUID> uuids) {
+        return query(server, Operation.IS_WHITELISTED_UUID, uuids, UUID::toString);
+    }
+
+    @NotNull
+    public CompletableFuture<Map<String, Boolean>> isWhitelistedIps(@NotNull String server, @NotNull Collection<String> ips) {
+        return query(server, Operation.IS_WHITELISTED_IP, ips, Function.identity());
+    }
+
+    /**
+     * Sends a request and waits for the answer
+     *
+     * @param server    Name of the target server in the proxy
+     * @param operation The operation
+     * @param entries   Entries of the operation
+     * @return One result per entry, in the same order
+     */
+    @NotNull
+    public CompletableFuture<boolean[]> request(@NotNull String server, @NotNull Operation operation, @NotNull List<ApiPayload.Entry> entries) {
+        CompletableFuture<boolean[]> future = new CompletableFuture<>();
+        if (!isEnabled()) {
+            future.completeExceptionally(new APIExeption(Keklist.getTranslations().get("api.proxy-api-disabled")));
+            return future;
+        }
+
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0 || pending.putIfAbsent(id, future) != null);
+
+        long requestId = id;
+        future.orTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS).whenComplete((results, throwable) -> pending.remove(requestId));
+
+        try {
+            if (!send(new ApiFrame(ApiFrame.Kind.REQUEST, id, "", server, operation, ApiPayload.writeEntries(operation, entries))))
+                future.completeExceptionally(new APIExeption(Keklist.getTranslations().get("api.proxy-send-fail")));
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Sends a request without waiting for an answer
+     *
+     * @param server    Name of the target server in the proxy
+     * @param operation The operation
+     * @param entries   Entries of the operation
+     * @return false if the request was dropped because proxy-api is disabled or too many are waiting for a player to carry them
+     */
+    public boolean send(@NotNull String server, @NotNull Operation operation, @NotNull List<ApiPayload.Entry> entries) {
+        if (!isEnabled())
+            return false;
+
+        return send(new ApiFrame(ApiFrame.Kind.REQUEST, 0, "", server, operation, ApiPayload.writeEntries(operation, entries)));
+    }
+
+    boolean send(@NotNull ApiFrame frame) {
+        return Keklist.getPluginMessenger().send("keklist:api", frame.encode(), TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+    }
+
+    /**
+     * Sends a frame only if a player is online to carry it right now
+     */
+    boolean sendNow(@NotNull ApiFrame frame) {
+        return Keklist.getPluginMessenger().sendNow("keklist:api", frame.encode());
+    }
+
+    /**
+     * Completes the request a response or error belongs to
+     */
+    void complete(@NotNull ApiFrame frame) {
+        CompletableFuture<boolean[]> future = pending.remove(frame.requestId());
+        if (future == null)
+            return;
+
+        if (frame.kind() == ApiFrame.Kind.ERROR) {
+            future.completeExceptionally(new APIExeption(ApiPayload.readError(frame.payload())));
+            return;
+        }
+
+        try {
+            future.complete(ApiPayload.readResults(frame.payload()));
+        } catch (ProtocolException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static boolean isEnabled() {
+        return Keklist.getInstance().getConfig().getBoolean("proxy-api");
+    }
+
+    @NotNull
+    private <K> CompletableFuture<Map<K, Boolean>> query(@NotNull String server, @NotNull Operation operation, @NotNull Collection<K> keys, @NotNull Function<K, String> encoder) {
+        List<K> ordered = new ArrayList<>(keys);
+        List<ApiPayload.Entry> entries = ordered.stream().map(key -> new ApiPayload.Entry(encoder.apply(key), null)).toList();
+
+        return request(server, operation, entries).thenApply(results -> {
+            if (results.length != ordered.size())
+                throw new IllegalStateException("Expected " + ordered.size() + " results, got " + results.length);
+
+            Map<K, Boolean> answer = new LinkedHashMap<>();
+            for (int i = 0; i < results.length; i++) {
+                answer.put(ordered.get(i), results[i]);
+            }
+            return answer;
+        });
+    }
+}
@@ -1,18 +1,27 @@
 package de.hdg.keklist.api;
 
-import com.google.common.io.ByteArrayDataInput;
-import com.google.common.io.ByteArrayDataOutput;
-import com.google.common.io.ByteStreams;
 import de.hdg.keklist.Keklist;
+import de.hdg.keklist.api.protocol.ApiFrame;
+import de.hdg.keklist.api.protocol.ApiPayload;
+import de.hdg.keklist.api.protocol.Operation;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.messaging.PluginMessageListener;
 import org.jetbrains.annotations.NotNull;
 
+import java.net.ProtocolException;
+import java.util.List;
 import java.util.UUID;
 
 /**
  * This class is used to listen for plugin messages from other servers and sending responses.
+ * <p>
+ * Requests are answered through the {@link KeklistChannelClient}, responses complete its pending requests.
+ * <p>
+ * Plugin messages arrive through a player connection, so without a proxy every player could send them. Frames are
+ * only handled if proxy-api is enabled, which must only be done behind a Velocity
+ * proxy with the Keklist plugin. It drops keklist:api messages of players and fills in the source of every frame
+ * it forwards.
  *
  * @author SageSphinx63920
  * @since 1.0
@@ -27,96 +36,104 @@ public class KeklistChannelListener implements PluginMessageListener {
 
     @Override
     public void onPluginMessageReceived(@NotNull String channel, @NotNull Player player, byte @NotNull [] message) {
-        if(!channel.equals("keklist")) return;
-
-        ByteArrayDataInput in = ByteStreams.newDataInput(message);
-        String subchannel = in.readUTF();
+        if (!channel.equals("keklist:api")) return;
+
+        ApiFrame frame;
+        try {
+            frame = ApiFrame.decode(message);
+        } catch (ProtocolException e) {
+            Keklist.getInstance().getLogger().warning(Keklist.getTranslations().get("api.invalid-frame", e.getMessage()));
+            return;
+        }
 
-        if(!subchannel.equals("api")) return;
+        if (!isTrusted(frame)) {
+            if (Keklist.isDebug())
+                Keklist.getInstance().getLogger().warning(Keklist.getTranslations().get("api.untrusted-frame", frame.operation().name(), player.getName()));
+            return;
+        }
 
-        String action = in.readUTF();
-        switch (action) {
-            case "blacklistUUID" -> {
-                String uuid = in.readUTF();
-                String reason = in.readUTF();
+        // The proxy asks for the blacklist it checks logins against
+        if (frame.operation() == Operation.SYNC_REQUEST) {
+            Bukkit.getScheduler().runTaskAsynchronously(Keklist.getInstance(), Keklist.getProxySync()::sendSnapshot);
+            return;
+        }
 
-                api.blacklist(UUID.fromString(uuid), null, reason);
-            }
-            case "blacklistIP" -> {
-                String ip = in.readUTF();
-                String reason = in.readUTF();
+        switch (frame.kind()) {
+            case REQUEST -> handleRequest(frame);
+            case RESPONSE, ERROR -> api.getChannel().complete(frame);
+        }
+    }
 
-                api.blacklist(ip, reason);
-            }
-            case "blacklistMOTD" -> {
-                String ip = in.readUTF();
+    /**
+     * Only a proxy which handles keklist:api sets the source of a frame, to the server it came from. Its own sync
+     * requests come from {@link ApiFrame#PROXY}. Responses and errors are checked the same way, or a player could
+     * answer the requests of this server.
+     */
+    private boolean isTrusted(@NotNull ApiFrame frame) {
+        if (!Keklist.getInstance().getConfig().getBoolean("proxy-api"))
+            return false;
 
-                api.blacklistMOTD(ip);
-            }
-        }
+        if (frame.operation() == Operation.SYNC_REQUEST)
+            return frame.source().equals(ApiFrame.PROXY);
 
-        switch (action) {
-            case "whilistIP" -> {
-                String ip = in.readUTF();
+        return !frame.source().isBlank();
+    }
 
-                api.whitelist(ip);
-            }
-            case "whitelistUUID" -> {
-                String uuid = in.readUTF();
+    private void handleRequest(@NotNull ApiFrame frame) {
+        List<ApiPayload.Entry> entries;
+        try {
+            entries = ApiPayload.readEntries(frame.operation(), frame.payload());
+        } catch (ProtocolException e) {
+            respond(frame, frame.reply(ApiFrame.Kind.ERROR, ApiPayload.writeError(e.getMessage())));
+            return;
+        }
 
-                api.whitelist(UUID.fromString(uuid), null);
+        boolean[] results = new boolean[entries.size()];
+        for (int i = 0; i < results.length; i++) {
+            try {
+                results[i] = apply(frame, entries.get(i));
+            } catch (IllegalArgumentException e) {
+                // Invalid IPs only fail their own entry
+                results[i] = false;
             }
         }
 
-        switch (action){
-            case "isBlacklistedUUID" -> {
-                String uuid = in.readUTF();
-                String server = in.readUTF();
+        respond(frame, frame.reply(ApiFrame.Kind.RESPONSE, ApiPayload.writeResults(results)));
+    }
 
-                sendResponse(server, "isBlacklistedUUIDResponse", uuid, api.isBlacklisted(UUID.fromString(uuid)));
-            }
-            case "isBlacklistedIP" -> {
-                String ip = in.readUTF();
-                String server = in.readUTF();
+    private boolean apply(@NotNull ApiFrame frame, @NotNull ApiPayload.Entry entry) {
+        String key = entry.key();
 
-                sendResponse(server, "isBlacklistedIPResponse", ip, api.isBlacklisted(ip));
+        switch (frame.operation()) {
+            case IS_BLACKLISTED_UUID -> {
+                return api.isBlacklisted(UUID.fromString(key));
             }
-            case "isBlacklistedMOTD" -> {
-                String ip = in.readUTF();
-                String server = in.readUTF();
-
-                sendResponse(server, "isBlacklistedMOTDResponse", ip, api.isMOTDBlacklisted(ip));
+            case IS_BLACKLISTED_IP -> {
+                return api.isBlacklisted(key);
             }
-            case "isWhitelistedIP" -> {
-                String ip = in.readUTF();
-                String server = in.readUTF();
-
-                sendResponse(server, "isWhitelistedIPResponse", ip, api.isWhitelisted(ip));
+            case IS_MOTD_BLACKLISTED -> {
+                return api.isMOTDBlacklisted(key);
             }
-            case "isWhitelistedUUID" -> {
-                String uuid = in.readUTF();
-                String server = in.readUTF();
-
-                sendResponse(server, "isWhitelistedUUIDResponse", uuid, api.isWhitelisted(UUID.fromString(uuid)));
+            case IS_WHITELISTED_UUID -> {
+                return api.isWhitelisted(UUID.fromString(key));
+            }
+            case IS_WHITELISTED_IP -> {
+                return api.isWhitelisted(key);
             }
+            case BLACKLIST_UUID -> api.blacklist(UUID.fromString(key), null, entry.reason());
+            case BLACKLIST_IP -> api.blacklist(key, entry.reason());
+            case BLACKLIST_MOTD -> api.blacklistMOTD(key);
+            case WHITELIST_UUID -> api.whitelist(UUID.fromString(key), null);
+            case WHITELIST_IP -> api.whitelist(key);
         }
+
+        return true;
     }
 
-    /**
-     * Sends a response to the isX request to the proxy
-     *
-     * @param server Server to relay the response to
-     * @param action Request action
-     * @param s Request source (IP or UUID)
-     * @param b Response
-     */
-    private void sendResponse(String server, String action, String s, boolean b) {
-        ByteArrayDataOutput out = ByteStreams.newDataOutput();
-        out.writeUTF(action);
-        out.writeUTF(server);
-        out.writeUTF(s);
-        out.writeBoolean(b);
-
-        Bukkit.getOnlinePlayers().stream().findFirst().ifPresentOrElse(player -> player.sendPluginMessage(Keklist.getInstance(), "keklist:api", out.toByteArray()), () -> Bukkit.getLogger().warning(Keklist.getTranslations().get("api.proxy-send-fail")));
+    private void respond(@NotNull ApiFrame request, @NotNull ApiFrame response) {
+        if (request.requestId() == 0) return;
+
+        if (!api.getChannel().send(response))
+            Keklist.getInstance().getLogger().warning(Keklist.getTranslations().get("api.proxy-send-fail"));
     }
 }
@@ -0,0 +1,131 @@
+package de.hdg.keklist.api;
+
+import de.hdg.keklist.Keklist;
+import de.hdg.keklist.api.protocol.ApiFrame;
+import de.hdg.keklist.api.protocol.ApiPayload;
+import de.hdg.keklist.api.protocol.Operation;
+import de.hdg.keklist.database.ListCache;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerRegisterChannelEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replicates the blacklist into the index of the Keklist Velocity plugin, which then rejects blacklisted players
+ * before they reach any server
+ * <p>
+ * The proxy gets a full snapshot once and afterwards every change of the {@link ListCache}. Plugin messages need a
+ * player connection. Queuing changes is pointless since a snapshot replaces them anyway, so a change which can't be
+ * sent right away marks the proxy as outdated and the next player who registers the channel triggers a new snapshot. The proxy asks for a snapshot itself if it has none, e.g. after it was restarted.
+ * <p>
+ * All frames are sent under one lock, so a snapshot never overtakes a later change.
+ */
+public class ProxyBlacklistSync implements ListCache.ChangeListener, Listener {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final KeklistChannelClient channel;
+    private volatile boolean active;
+    private volatile boolean outdated = true;
+
+    public ProxyBlacklistSync(@NotNull KeklistChannelClient channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Reads whether the sync is enabled and sends a new snapshot in the background if that changed
+     * <p>
+     * A disabled sync sends an empty snapshot, so the proxy stops rejecting players of this server.
+     */
+    public void reload() {
+        boolean enabled = Keklist.getInstance().getConfig().getBoolean("blacklist.enabled") && Keklist.getInstance().getConfig().getBoolean("blacklist.proxy-sync");
+        if (enabled == active && !outdated) return;
+
+        active = enabled;
+        Bukkit.getScheduler().runTaskAsynchronously(Keklist.getInstance(), this::sendSnapshot);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onRegisterChannel(PlayerRegisterChannelEvent event) {
+        if (outdated && event.getChannel().equals("keklist:api"))
+            Bukkit.getScheduler().runTaskAsynchronously(Keklist.getInstance(), () -> {
+                if (outdated)
+                    sendSnapshot();
+            });
+    }
+
+    @Override
+    public void onAdd(@NotNull ListCache.ListType type, @NotNull String key) {
+        publish(switch (type) {
+            case BLACKLIST -> Operation.SYNC_ADD_UUID;
+            case BLACKLIST_IP -> Operation.SYNC_ADD_IP;
+            case BLACKLIST_RANGE -> Operation.SYNC_ADD_RANGE;
+            default -> null;
+        }, key);
+    }
+
+    @Override
+    public void onRemove(@NotNull ListCache.ListType type, @NotNull String key) {
+        publish(switch (type) {
+            case BLACKLIST -> Operation.SYNC_REMOVE_UUID;
+            case BLACKLIST_IP -> Operation.SYNC_REMOVE_IP;
+            case BLACKLIST_RANGE -> Operation.SYNC_REMOVE_RANGE;
+            default -> null;
+        }, key);
+    }
+
+    /**
+     * Replaces the index of this server on the proxy with the current blacklist
+     */
+    public synchronized void sendSnapshot() {
+        if (!send(Operation.SYNC_RESET, List.of())) {
+            outdated = true;
+            return;
+        }
+
+        outdated = false;
+        if (!active) return;
+
+        boolean sent = sendAll(Operation.SYNC_ADD_UUID, ListCache.ListType.BLACKLIST)
+                && sendAll(Operation.SYNC_ADD_IP, ListCache.ListType.BLACKLIST_IP)
+                && sendAll(Operation.SYNC_ADD_RANGE, ListCache.ListType.BLACKLIST_RANGE);
+
+        // The last player left while sending
+        if (!sent)
+            outdated = true;
+    }
+
+    private boolean sendAll(@NotNull Operation operation, @NotNull ListCache.ListType type) {
+        List<ApiPayload.Entry> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        for (String key : Keklist.getListCache().keys(type)) {
+            chunk.add(new ApiPayload.Entry(key, null));
+
+            if (chunk.size() == CHUNK_SIZE) {
+                if (!send(operation, chunk))
+                    return false;
+                chunk.clear();
+            }
+        }
+
+        return chunk.isEmpty() || send(operation, chunk);
+    }
+
+    private synchronized void publish(@Nullable Operation operation, @NotNull String key) {
+        // An outdated proxy gets the change with the next snapshot
+        if (operation == null || !active || outdated) return;
+
+        if (!send(operation, List.of(new ApiPayload.Entry(key, null))))
+            outdated = true;
+    }
+
+    private boolean send(@NotNull Operation operation, @NotNull List<ApiPayload.Entry> entries) {
+        return channel.sendNow(new ApiFrame(ApiFrame.Kind.REQUEST, 0, "", ApiFrame.PROXY, operation, ApiPayload.writeEntries(operation, entries)));
+    }
+}
@@ -0,0 +1,70 @@
+package de.hdg.keklist.api.events.blacklist;
+
+import de.hdg.keklist.Keklist;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * This event is called once when many UUIDs or IPs are added to the blacklist at the same time,
+ * for example by an import.
+ * <p>
+ * No {@link UUIDAddToBlacklistEvent} or {@link IpAddToBlacklistEvent} is called for these entries.
+ * </p>
+ */
+public class BulkAddToBlacklistEvent extends Event {
+    private static final HandlerList handlerList = new HandlerList();
+    private final List<UUID> uuids;
+    private final List<String> ips;
+    private final String reason;
+
+    public BulkAddToBlacklistEvent(@NotNull Collection<UUID> uuids, @NotNull Collection<String> ips, @Nullable String reason) {
+        this.uuids = List.copyOf(uuids);
+        this.ips = List.copyOf(ips);
+        this.reason = reason;
+
+        if (Keklist.getPlanHook() != null)
+            Keklist.getPlanHook().getCaller().ifPresent(caller -> caller.updateServerData());
+    }
+
+    /**
+     * Returns the UUIDs that were added to the blacklist.
+     *
+     * @return The added UUIDs, may be empty.
+     */
+    public @NotNull List<UUID> getUUIDs() {
+        return uuids;
+    }
+
+    /**
+     * Returns the IPs that were added to the blacklist.
+     *
+     * @return The added IPs, may be empty.
+     */
+    public @NotNull List<String> getIps() {
+        return ips;
+    }
+
+    /**
+     * Returns the reason shared by all added entries.
+     *
+     * @return The reason or null if no reason was given.
+     */
+    public @Nullable String getReason() {
+        return reason;
+    }
+
+    @Override
+    public @NotNull HandlerList getHandlers() {
+        return handlerList;
+    }
+
+    public static @NotNull HandlerList getHandlerList() {
+        return handlerList;
+    }
+}
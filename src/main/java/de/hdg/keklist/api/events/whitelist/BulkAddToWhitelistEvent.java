@@ -0,0 +1,59 @@
+package de.hdg.keklist.api.events.whitelist;
+
+import de.hdg.keklist.Keklist;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * This event is called once when many UUIDs or IPs are added to the whitelist at the same time,
+ * for example by an import.
+ * <p>
+ * No {@link UUIDAddToWhitelistEvent} or {@link IpAddToWhitelistEvent} is called for these entries.
+ * </p>
+ */
+public class BulkAddToWhitelistEvent extends Event {
+
+    private static final HandlerList handlers = new HandlerList();
+    private final List<UUID> uuids;
+    private final List<String> ips;
+
+    public BulkAddToWhitelistEvent(@NotNull Collection<UUID> uuids, @NotNull Collection<String> ips) {
+        this.uuids = List.copyOf(uuids);
+        this.ips = List.copyOf(ips);
+
+        if (Keklist.getPlanHook() != null)
+            Keklist.getPlanHook().getCaller().ifPresent(caller -> caller.updateServerData());
+    }
+
+    /**
+     * Get the UUIDs which were added to the whitelist.
+     *
+     * @return The added UUIDs, may be empty.
+     */
+    public @NotNull List<UUID> getUUIDs() {
+        return uuids;
+    }
+
+    /**
+     * Get the IPs which were added to the whitelist.
+     *
+     * @return The added IPs, may be empty.
+     */
+    public @NotNull List<String> getIps() {
+        return ips;
+    }
+
+    @Override
+    public @NotNull HandlerList getHandlers() {
+        return handlers;
+    }
+
+    public static @NotNull HandlerList getHandlerList() {
+        return handlers;
+    }
+}
@@ -0,0 +1,154 @@
+package de.hdg.keklist.api.protocol;
+
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One message on the keklist:api channel
+ * <p>
+ * Layout: version byte, kind byte, request id (long), source server, target server (both UTF), operation byte
+ * and the payload of the operation. The proxy only reads the header, fills in the source and forwards the frame
+ * to the target, so backends never need to know their own name.
+ * <p>
+ * A request id of 0 means the sender does not want a response. Frames with the target {@link #PROXY} are handled
+ * by the proxy and not forwarded.
+ * <p>
+ * Frames which waited for a player to carry them may be sent to the proxy as one batch, see {@link #encodeBatch(List)}.
+ *
+ * @param kind      Request, response or error
+ * @param requestId Id to match the response to its request
+ * @param source    Server which sent the frame, set by the proxy
+ * @param target    Server which should receive the frame
+ * @param operation The operation, responses repeat the one of their request
+ * @param payload   Encoded by {@link ApiPayload}
+ */
+public record ApiFrame(@NotNull Kind kind, long requestId, @NotNull String source, @NotNull String target,
+                       @NotNull Operation operation, byte @NotNull [] payload) {
+
+    public static final byte VERSION = 1;
+    public static final String PROXY = "";
+
+    /**
+     * First byte of a batch, followed by the frames, each prefixed with its length
+     */
+    public static final byte BATCH = -1;
+
+    public byte @NotNull [] encode() {
+        ByteArrayDataOutput out = ByteStreams.newDataOutput(payload.length + 32);
+        out.writeByte(VERSION);
+        out.writeByte(kind.ordinal());
+        out.writeLong(requestId);
+        out.writeUTF(source);
+        out.writeUTF(target);
+        out.writeByte(operation.getId());
+        out.write(payload);
+        return out.toByteArray();
+    }
+
+    /**
+     * @throws ProtocolException If the frame has another version or is malformed
+     */
+    @NotNull
+    public static ApiFrame decode(byte @NotNull [] data) throws ProtocolException {
+        ByteArrayInputStream stream = new ByteArrayInputStream(data);
+        DataInputStream in = new DataInputStream(stream);
+
+        try {
+            byte version = in.readByte();
+            if (version != VERSION)
+                throw new ProtocolException("Unsupported protocol version " + version + ", expected " + VERSION);
+
+            int kind = in.readByte();
+            if (kind < 0 || kind >= Kind.values().length)
+                throw new ProtocolException("Unknown frame kind " + kind);
+
+            long requestId = in.readLong();
+            String source = in.readUTF();
+            String target = in.readUTF();
+            Operation operation = Operation.byId(in.readByte());
+
+            // Everything after the header is the payload
+            return new ApiFrame(Kind.values()[kind], requestId, source, target, operation, stream.readAllBytes());
+        } catch (ProtocolException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new ProtocolException("Truncated frame");
+        }
+    }
+
+    /**
+     * Combines encoded frames into one batch
+     */
+    public static byte @NotNull [] encodeBatch(@NotNull List<byte[]> frames) {
+        ByteArrayDataOutput out = ByteStreams.newDataOutput();
+        out.writeByte(BATCH);
+
+        for (byte[] frame : frames) {
+            out.writeInt(frame.length);
+            out.write(frame);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a single frame or every frame of a batch
+     *
+     * @throws ProtocolException If a frame has another version or is malformed
+     */
+    @NotNull
+    public static List<ApiFrame> decodeAll(byte @NotNull [] data) throws ProtocolException {
+        if (data.length == 0 || data[0] != BATCH)
+            return List.of(decode(data));
+
+        List<ApiFrame> frames = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(data, 1, data.length - 1);
+
+        while (buffer.hasRemaining()) {
+            if (buffer.remaining() < Integer.BYTES)
+                throw new ProtocolException("Truncated batch");
+
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining())
+                throw new ProtocolException("Truncated batch");
+
+            byte[] frame = new byte[length];
+            buffer.get(frame);
+            frames.add(decode(frame));
+        }
+
+        return frames;
+    }
+
+    /**
+     * @param source The server the frame came from
+     * @return The same frame with another source
+     */
+    @NotNull
+    public ApiFrame withSource(@NotNull String source) {
+        return new ApiFrame(kind, requestId, source, target, operation, payload);
+    }
+
+    /**
+     * Creates the answer to this frame, which goes back to its source
+     */
+    @NotNull
+    public ApiFrame reply(@NotNull Kind kind, byte @NotNull [] payload) {
+        return new ApiFrame(kind, requestId, target, source, operation, payload);
+    }
+
+    public enum Kind {
+        REQUEST,
+        RESPONSE,
+        ERROR
+    }
+}
@@ -0,0 +1,143 @@
+package de.hdg.keklist.api.protocol;
+
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.ProtocolException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Encodes the payloads of {@link ApiFrame}s
+ * <p>
+ * Requests carry a count followed by the entries. UUIDs take 16 bytes, IPs and reasons are UTF strings,
+ * a missing reason is an empty string. Responses carry a count followed by the results as a bit set.
+ */
+public final class ApiPayload {
+
+    private ApiPayload() {
+    }
+
+    public static byte @NotNull [] writeEntries(@NotNull Operation operation, @NotNull List<Entry> entries) {
+        ByteArrayDataOutput out = ByteStreams.newDataOutput();
+        writeVarInt(out, entries.size());
+
+        for (Entry entry : entries) {
+            if (operation.isUuidKeys()) {
+                UUID uuid = UUID.fromString(entry.key());
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+            } else
+                out.writeUTF(entry.key());
+
+            if (operation.isWithReason())
+                out.writeUTF(entry.reason() == null ? "" : entry.reason());
+        }
+
+        return out.toByteArray();
+    }
+
+    @NotNull
+    public static List<Entry> readEntries(@NotNull Operation operation, byte @NotNull [] payload) throws ProtocolException {
+        try {
+            ByteArrayDataInput in = ByteStreams.newDataInput(payload);
+            int count = readVarInt(in);
+            List<Entry> entries = new ArrayList<>(Math.min(count, 1024));
+
+            for (int i = 0; i < count; i++) {
+                String key = operation.isUuidKeys() ? new UUID(in.readLong(), in.readLong()).toString() : in.readUTF();
+                String reason = operation.isWithReason() ? in.readUTF() : "";
+                entries.add(new Entry(key, reason.isEmpty() ? null : reason));
+            }
+
+            return entries;
+        } catch (IllegalStateException e) {
+            throw new ProtocolException("Truncated payload");
+        }
+    }
+
+    public static byte @NotNull [] writeResults(boolean @NotNull [] results) {
+        ByteArrayDataOutput out = ByteStreams.newDataOutput();
+        writeVarInt(out, results.length);
+
+        for (int i = 0; i < results.length; i += 8) {
+            int bits = 0;
+            for (int bit = 0; bit < 8 && i + bit < results.length; bit++) {
+                if (results[i + bit])
+                    bits |= 1 << bit;
+            }
+            out.writeByte(bits);
+        }
+
+        return out.toByteArray();
+    }
+
+    public static boolean @NotNull [] readResults(byte @NotNull [] payload) throws ProtocolException {
+        try {
+            ByteArrayDataInput in = ByteStreams.newDataInput(payload);
+            boolean[] results = new boolean[readVarInt(in)];
+
+            for (int i = 0; i < results.length; i += 8) {
+                int bits = in.readUnsignedByte();
+                for (int bit = 0; bit < 8 && i + bit < results.length; bit++) {
+                    results[i + bit] = (bits & (1 << bit)) != 0;
+                }
+            }
+
+            return results;
+        } catch (IllegalStateException e) {
+            throw new ProtocolException("Truncated payload");
+        }
+    }
+
+    public static byte @NotNull [] writeError(@NotNull String message) {
+        ByteArrayDataOutput out = ByteStreams.newDataOutput();
+        out.writeUTF(message);
+        return out.toByteArray();
+    }
+
+    @NotNull
+    public static String readError(byte @NotNull [] payload) {
+        try {
+            return ByteStreams.newDataInput(payload).readUTF();
+        } catch (IllegalStateException e) {
+            return "Unknown error";
+        }
+    }
+
+    private static void writeVarInt(@NotNull ByteArrayDataOutput out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(@NotNull ByteArrayDataInput in) throws ProtocolException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0)
+                    throw new ProtocolException("Negative count");
+                return value;
+            }
+        }
+
+        throw new ProtocolException("VarInt too long");
+    }
+
+    /**
+     * An entry of a request
+     *
+     * @param key    UUID or IP, depending on the operation
+     * @param reason Reason for blacklist operations
+     */
+    public record Entry(@NotNull String key, @Nullable String reason) {
+    }
+}
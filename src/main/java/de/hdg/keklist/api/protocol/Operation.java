@@ -0,0 +1,57 @@
+package de.hdg.keklist.api.protocol;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.ProtocolException;
+
+/**
+ * Operations of the keklist:api channel
+ * <p>
+ * Every operation works on many entries at once. Queries answer with one boolean per entry,
+ * changes answer with whether the entry was valid and applied.
+ * <p>
+ * The sync operations are addressed to the proxy itself, see {@link ApiFrame#PROXY}. Backends use them to replicate
+ * their blacklist into the index the proxy checks logins against. They never get an answer.
+ */
+@Getter
+public enum Operation {
+    IS_BLACKLISTED_UUID(1, true, false),
+    IS_BLACKLISTED_IP(2, false, false),
+    IS_MOTD_BLACKLISTED(3, false, false),
+    IS_WHITELISTED_UUID(4, true, false),
+    IS_WHITELISTED_IP(5, false, false),
+    BLACKLIST_UUID(16, true, true),
+    BLACKLIST_IP(17, false, true),
+    BLACKLIST_MOTD(18, false, false),
+    WHITELIST_UUID(19, true, false),
+    WHITELIST_IP(20, false, false),
+    SYNC_REQUEST(32, false, false),
+    SYNC_RESET(33, false, false),
+    SYNC_ADD_UUID(34, true, false),
+    SYNC_REMOVE_UUID(35, true, false),
+    SYNC_ADD_IP(36, false, false),
+    SYNC_REMOVE_IP(37, false, false),
+    SYNC_ADD_RANGE(38, false, false),
+    SYNC_REMOVE_RANGE(39, false, false);
+
+    private final byte id;
+    private final boolean uuidKeys;
+    private final boolean withReason;
+
+    Operation(int id, boolean uuidKeys, boolean withReason) {
+        this.id = (byte) id;
+        this.uuidKeys = uuidKeys;
+        this.withReason = withReason;
+    }
+
+    @NotNull
+    public static Operation byId(byte id) throws ProtocolException {
+        for (Operation operation : values()) {
+            if (operation.id == id)
+                return operation;
+        }
+
+        throw new ProtocolException("Unknown operation " + id);
+    }
+}
@@ -1,37 +1,31 @@
 package de.hdg.keklist.commands;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
-import com.google.gson.reflect.TypeToken;
 import de.hdg.keklist.Keklist;
 import de.hdg.keklist.api.events.blacklist.*;
+import de.hdg.keklist.database.ListCache;
+import de.hdg.keklist.database.ProfileCache;
+import de.hdg.keklist.database.repository.BlacklistRepository;
+import de.hdg.keklist.database.repository.MotdBlacklistRepository;
+import de.hdg.keklist.util.IpRange;
 import de.hdg.keklist.util.LanguageUtil;
 import de.hdg.keklist.extentions.WebhookManager;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
-import okhttp3.*;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.geysermc.floodgate.api.FloodgateApi;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class BlacklistCommand extends Command {
 
-    private static final OkHttpClient client = new OkHttpClient();
-    private static final Gson gson = new GsonBuilder().setPrettyPrinting().setLenient().create();
-    private static final TypeToken<Map<String, String>> token = new TypeToken<>() {
-    };
-
     public BlacklistCommand() {
         super("blacklist");
         setAliases(List.of("bl"));
@@ -47,6 +41,12 @@ public class BlacklistCommand extends Command {
             return true;
         }
 
+        // Lookups and the floodgate API may block, none of that belongs on the main thread
+        Keklist.getDatabase().getExecutor().execute(() -> handle(sender, args));
+        return true;
+    }
+
+    private void handle(@NotNull CommandSender sender, @NotNull String[] args) {
         try {
             String senderName = sender.getName();
             BlacklistType type;
@@ -57,58 +57,66 @@ public class BlacklistCommand extends Command {
                 type = BlacklistType.IPv4;
             } else if (args[1].matches("^(?:[0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}$")) {
                 type = BlacklistType.IPv6;
+            } else if (IpRange.parse(args[1]) != null) {
+                type = BlacklistType.RANGE;
             } else {
                 if (Keklist.getInstance().getFloodgateApi() == null) {
                     sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.invalid-argument")));
-                    return true;
+                    return;
                 } else
                     type = BlacklistType.BEDROCK;
             }
 
-            String reason = null;
-            if (args.length > 2) {
-                reason = String.join(" ", args).substring(args[0].length() + args[1].length() + 2);
-            }
+            String reason = args.length > 2 ? String.join(" ", args).substring(args[0].length() + args[1].length() + 2) : null;
 
             switch (args[0]) {
                 case "add" -> {
                     if (!sender.hasPermission("keklist.blacklist.add")) {
                         sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("no-permission")));
-                        return false;
+                        return;
                     }
 
                     if (type.equals(BlacklistType.JAVA)) {
-                        Request request = new Request.Builder().url("https://api.mojang.com/users/profiles/minecraft/" + args[1]).build();
-                        client.newCall(request).enqueue(new UserBlacklistAddCallback((sender instanceof Player) ? sender : null, reason, type));
+                        Keklist.getProfileCache().byName(args[1]).whenComplete((profile, throwable) -> {
+                            if (throwable != null)
+                                sendLookupError(sender, throwable);
+                            else if (profile.isEmpty())
+                                sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.no-profile", args[1])));
+                            else
+                                blacklistUser(sender, profile.get().uuid(), profile.get().name(), reason);
+                        });
                     } else if (type.equals(BlacklistType.IPv4) || type.equals(BlacklistType.IPv6)) {
-                        ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklistIp WHERE ip = ?", args[1]);
+                        Optional<BlacklistRepository.IpEntry> entry = Keklist.getDatabase().getBlacklist().findIp(args[1]);
 
-                        if (!rs.next()) {
+                        if (entry.isEmpty()) {
                             if (reason == null) {
-                                new IpAddToBlacklistEvent(args[1], null).callEvent();
-                                Keklist.getDatabase().onUpdate("INSERT INTO blacklistIp (ip, byPlayer, unix) VALUES (?, ?, ?)", args[1], senderName, System.currentTimeMillis());
+                                Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new IpAddToBlacklistEvent(args[1], null).callEvent());
+                                CompletableFuture<Integer> write = Keklist.getDatabase().getBlacklist().addIp(args[1], senderName, System.currentTimeMillis(), null);
+                                Keklist.getListCache().add(write, ListCache.ListType.BLACKLIST_IP, args[1], null, senderName, System.currentTimeMillis());
 
                                 if (Keklist.getWebhookManager() != null)
                                     Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_ADD, args[1], senderName, null, System.currentTimeMillis());
 
                             } else {
                                 if (reason.length() <= 1500) {
-                                    new IpAddToBlacklistEvent(args[1], reason).callEvent();
-                                    Keklist.getDatabase().onUpdate("INSERT INTO blacklistIp (ip, byPlayer, unix, reason) VALUES (?, ?, ?, ?)", args[1], senderName, System.currentTimeMillis(), reason);
+                                    Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new IpAddToBlacklistEvent(args[1], reason).callEvent());
+                                    CompletableFuture<Integer> write = Keklist.getDatabase().getBlacklist().addIp(args[1], senderName, System.currentTimeMillis(), reason);
+                                    Keklist.getListCache().add(write, ListCache.ListType.BLACKLIST_IP, args[1], null, senderName, System.currentTimeMillis());
 
                                     if (Keklist.getWebhookManager() != null)
                                         Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_ADD, args[1], senderName, reason, System.currentTimeMillis());
 
                                 } else {
                                     sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.reason-too-long")));
-                                    return true;
+                                    return;
                                 }
                             }
 
-                            ResultSet rsMotd = Keklist.getDatabase().onQuery("SELECT * FROM blacklistMotd WHERE ip = ?", args[1]);
-                            if (!rsMotd.next()) {
-                                new IpAddToMOTDBlacklistEvent(args[1]).callEvent();
-                                Keklist.getDatabase().onUpdate("INSERT INTO blacklistMotd (ip, byPlayer, unix) VALUES (?, ?, ?)", args[1], senderName, System.currentTimeMillis());
+                            Optional<MotdBlacklistRepository.Entry> motdEntry = Keklist.getDatabase().getMotdBlacklist().find(args[1]);
+                            if (motdEntry.isEmpty()) {
+                                Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new IpAddToMOTDBlacklistEvent(args[1]).callEvent());
+                                CompletableFuture<Integer> write = Keklist.getDatabase().getMotdBlacklist().add(args[1], senderName, System.currentTimeMillis());
+                                Keklist.getListCache().add(write, ListCache.ListType.BLACKLIST_MOTD, args[1], null, senderName, System.currentTimeMillis());
                             }
 
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.added", args[1])));
@@ -118,8 +126,32 @@ public class BlacklistCommand extends Command {
 
                         } else {
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.already-blacklisted", args[1])));
-                            return true;
+                            return;
                         }
+                    } else if (type.equals(BlacklistType.RANGE)) {
+                        String cidr = IpRange.parse(args[1]).toString();
+                        Optional<BlacklistRepository.RangeEntry> entry = Keklist.getDatabase().getBlacklist().findRange(cidr);
+
+                        if (entry.isPresent()) {
+                            sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.already-blacklisted", cidr)));
+                            return;
+                        }
+
+                        if (reason != null && reason.length() > 1500) {
+                            sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.reason-too-long")));
+                            return;
+                        }
+
+                        CompletableFuture<Integer> write = Keklist.getDatabase().getBlacklist().addRange(cidr, senderName, System.currentTimeMillis(), reason);
+                        Keklist.getListCache().add(write, ListCache.ListType.BLACKLIST_RANGE, cidr, null, senderName, System.currentTimeMillis());
+
+                        if (Keklist.getWebhookManager() != null)
+                            Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_ADD, cidr, senderName, reason, System.currentTimeMillis());
+
+                        sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.added", cidr)));
+
+                        if (Keklist.getInstance().getConfig().getBoolean("chat-notify"))
+                            Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.notify.add", cidr, senderName)), "keklist.notify.blacklist");
                     } else if (type.equals(BlacklistType.BEDROCK)) {
                         FloodgateApi api = Keklist.getInstance().getFloodgateApi();
 
@@ -129,13 +161,15 @@ public class BlacklistCommand extends Command {
                         } catch (Exception ex) {
 
                             if (Keklist.getInstance().getConfig().getString("floodgate.api-key") != null) {
-                                Request request = new Request.Builder()
-                                        .url("https://mcprofile.io/api/v1/bedrock/gamertag/" + args[1].replace(".", ""))
-                                        .header("x-api-key", Keklist.getInstance().getConfig().getString("floodgate.api-key"))
-                                        .build();
-
-                                client.newCall(request).enqueue(new BlacklistCommand.UserBlacklistAddCallback(sender, reason, type));
-                                return false;
+                                Keklist.getProfileCache().byGamertag(args[1].replace(".", ""), Keklist.getInstance().getConfig().getString("floodgate.api-key")).whenComplete((profile, throwable) -> {
+                                    if (throwable != null)
+                                        sendLookupError(sender, throwable);
+                                    else if (profile.isEmpty())
+                                        sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.no-profile", args[1])));
+                                    else
+                                        blacklistUser(sender, profile.get().uuid(), Keklist.getInstance().getConfig().getString("floodgate.prefix") + profile.get().name(), reason);
+                                });
+                                return;
                             } else
                                 sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("floodgate.api-key-not-set")));
 
@@ -146,14 +180,15 @@ public class BlacklistCommand extends Command {
                 case "remove" -> {
                     if (!sender.hasPermission("keklist.blacklist.remove")) {
                         sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("no-permission")));
-                        return false;
+                        return;
                     }
 
                     if (type.equals(BlacklistType.JAVA) || type.equals(BlacklistType.BEDROCK)) {
-                        ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklist WHERE name = ?", args[1]);
-                        if (rs.next()) {
-                            new PlayerRemovedFromBlacklist(args[1]).callEvent();
-                            Keklist.getDatabase().onUpdate("DELETE FROM blacklist WHERE name = ?", args[1]);
+                        Optional<BlacklistRepository.Entry> entry = Keklist.getDatabase().getBlacklist().findByName(args[1]);
+                        if (entry.isPresent()) {
+                            Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new PlayerRemovedFromBlacklist(args[1]).callEvent());
+                            Keklist.getDatabase().getBlacklist().removeByName(args[1]);
+                            Keklist.getListCache().removeByName(ListCache.ListType.BLACKLIST, args[1]);
 
                             if (Keklist.getWebhookManager() != null)
                                 Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_REMOVE, args[1], senderName, null, System.currentTimeMillis());
@@ -164,10 +199,11 @@ public class BlacklistCommand extends Command {
                                 Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.notify.remove", args[1], senderName)), "keklist.notify.blacklist");
 
                         } else {
-                            ResultSet rsUserFix = Keklist.getDatabase().onQuery("SELECT * FROM blacklist WHERE name = ?", args[1] + " (Old Name)");
-                            if (rsUserFix.next()) {
-                                new PlayerRemovedFromBlacklist(args[1]).callEvent();
-                                Keklist.getDatabase().onUpdate("DELETE FROM blacklist WHERE name = ?", args[1] + " (Old Name)");
+                            Optional<BlacklistRepository.Entry> oldNameEntry = Keklist.getDatabase().getBlacklist().findByName(args[1] + " (Old Name)");
+                            if (oldNameEntry.isPresent()) {
+                                Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new PlayerRemovedFromBlacklist(args[1]).callEvent());
+                                Keklist.getDatabase().getBlacklist().removeByName(args[1] + " (Old Name)");
+                                Keklist.getListCache().removeByName(ListCache.ListType.BLACKLIST, args[1] + " (Old Name)");
 
                                 if (Keklist.getWebhookManager() != null)
                                     Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_REMOVE, args[1], senderName, null, System.currentTimeMillis());
@@ -182,14 +218,16 @@ public class BlacklistCommand extends Command {
                             }
                         }
                     } else if (type.equals(BlacklistType.IPv4) || type.equals(BlacklistType.IPv6)) {
-                        ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklistIp WHERE ip = ?", args[1]);
-                        ResultSet rsMotd = Keklist.getDatabase().onQuery("SELECT * FROM blacklistMotd WHERE ip = ?", args[1]);
-                        if (rs.next() || rsMotd.next()) {
-                            new IpRemovedFromBlacklistEvent(args[1]).callEvent();
-                            new IpRemovedFromMOTDBlacklistEvent(args[1]).callEvent();
+                        Optional<BlacklistRepository.IpEntry> entry = Keklist.getDatabase().getBlacklist().findIp(args[1]);
+                        Optional<MotdBlacklistRepository.Entry> motdEntry = Keklist.getDatabase().getMotdBlacklist().find(args[1]);
+                        if (entry.isPresent() || motdEntry.isPresent()) {
+                            Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new IpRemovedFromBlacklistEvent(args[1]).callEvent());
+                            Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new IpRemovedFromMOTDBlacklistEvent(args[1]).callEvent());
 
-                            Keklist.getDatabase().onUpdate("DELETE FROM blacklistIp WHERE ip = ?", args[1]);
-                            Keklist.getDatabase().onUpdate("DELETE FROM blacklistMotd WHERE ip = ?", args[1]);
+                            Keklist.getDatabase().getBlacklist().removeIp(args[1]);
+                            Keklist.getListCache().remove(ListCache.ListType.BLACKLIST_IP, args[1]);
+                            Keklist.getDatabase().getMotdBlacklist().remove(args[1]);
+                            Keklist.getListCache().remove(ListCache.ListType.BLACKLIST_MOTD, args[1]);
 
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.ip.removed", args[1])));
 
@@ -198,7 +236,25 @@ public class BlacklistCommand extends Command {
 
                         } else {
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.not-blacklisted", args[1])));
-                            return true;
+                            return;
+                        }
+                    } else if (type.equals(BlacklistType.RANGE)) {
+                        String cidr = IpRange.parse(args[1]).toString();
+                        Optional<BlacklistRepository.RangeEntry> entry = Keklist.getDatabase().getBlacklist().findRange(cidr);
+                        if (entry.isPresent()) {
+                            Keklist.getDatabase().getBlacklist().removeRange(cidr);
+                            Keklist.getListCache().remove(ListCache.ListType.BLACKLIST_RANGE, cidr);
+
+                            if (Keklist.getWebhookManager() != null)
+                                Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_REMOVE, cidr, senderName, null, System.currentTimeMillis());
+
+                            sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.ip.removed", cidr)));
+
+                            if (Keklist.getInstance().getConfig().getBoolean("chat-notify"))
+                                Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.notify.remove", cidr, senderName)), "keklist.notify.blacklist");
+
+                        } else {
+                            sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.not-blacklisted", cidr)));
                         }
                     }
                 }
@@ -206,16 +262,17 @@ public class BlacklistCommand extends Command {
                 case "motd" -> {
                     if (!sender.hasPermission("keklist.blacklist.motd")) {
                         sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("no-permission")));
-                        return false;
+                        return;
                     }
 
                     if (type.equals(BlacklistType.IPv4)) {
-                        ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklistMotd WHERE ip = ?", args[1]);
-                        if (rs.next()) {
+                        Optional<MotdBlacklistRepository.Entry> entry = Keklist.getDatabase().getMotdBlacklist().find(args[1]);
+                        if (entry.isPresent()) {
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.motd.already-blacklisted", args[1])));
                         } else {
-                            new IpAddToMOTDBlacklistEvent(args[1]).callEvent();
-                            Keklist.getDatabase().onUpdate("INSERT INTO blacklistMotd (ip, byPlayer, unix) VALUES (?, ?, ?)", args[1], senderName, System.currentTimeMillis());
+                            Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new IpAddToMOTDBlacklistEvent(args[1]).callEvent());
+                            CompletableFuture<Integer> write = Keklist.getDatabase().getMotdBlacklist().add(args[1], senderName, System.currentTimeMillis());
+                            Keklist.getListCache().add(write, ListCache.ListType.BLACKLIST_MOTD, args[1], null, senderName, System.currentTimeMillis());
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.motd.added", args[1])));
 
                             if (Keklist.getInstance().getConfig().getBoolean("chat-notify"))
@@ -228,22 +285,22 @@ public class BlacklistCommand extends Command {
                 case "info" -> {
                     if (!sender.hasPermission("keklist.blacklist.info")) {
                         sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("no-permission")));
-                        return false;
+                        return;
                     }
 
                     if (type.equals(BlacklistType.IPv4) || type.equals(BlacklistType.IPv6)) {
-                        ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklistIp WHERE ip = ?", args[1]);
-                        ResultSet rsMotd = Keklist.getDatabase().onQuery("SELECT * FROM blacklistMotd WHERE ip = ?", args[1]);
+                        Optional<BlacklistRepository.IpEntry> entry = Keklist.getDatabase().getBlacklist().findIp(args[1]);
+                        Optional<MotdBlacklistRepository.Entry> motdEntry = Keklist.getDatabase().getMotdBlacklist().find(args[1]);
 
                         SimpleDateFormat sdf = new SimpleDateFormat(Keklist.getInstance().getConfig().getString("date-format"));
                         LanguageUtil translations = Keklist.getTranslations();
                         MiniMessage miniMessage = Keklist.getInstance().getMiniMessage();
 
-                        if (rs.next()) {
-                            sendInfo(rs, sender, args[1]);
-                        } else if (rsMotd.next()) {
-                            String byPlayer = rsMotd.getString("byPlayer");
-                            String unix = sdf.format(rsMotd.getLong("unix"));
+                        if (entry.isPresent()) {
+                            sendInfo(sender, args[1], entry.get().byPlayer(), entry.get().unix(), entry.get().reason());
+                        } else if (motdEntry.isPresent()) {
+                            String byPlayer = motdEntry.get().byPlayer();
+                            String unix = sdf.format(motdEntry.get().unix());
 
                             sender.sendMessage(miniMessage.deserialize(translations.get("blacklist.info")));
                             sender.sendMessage(miniMessage.deserialize(translations.get("blacklist.info.entry", args[1])));
@@ -253,17 +310,25 @@ public class BlacklistCommand extends Command {
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.not-blacklisted", args[1])));
 
                     } else if (type.equals(BlacklistType.JAVA) || type.equals(BlacklistType.BEDROCK)) {
-                        ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklist WHERE name = ?", args[1]);
+                        Optional<BlacklistRepository.Entry> entry = Keklist.getDatabase().getBlacklist().findByName(args[1]);
 
-                        if (rs.next()) {
-                            sendInfo(rs, sender, args[1]);
+                        if (entry.isPresent()) {
+                            sendInfo(sender, args[1], entry.get().byPlayer(), entry.get().unix(), entry.get().reason());
                         } else {
-                            ResultSet rsUserFix = Keklist.getDatabase().onQuery("SELECT * FROM blacklist WHERE name = ?", args[1] + " (Old Name)");
-                            if (rsUserFix.next()) {
-                                sendInfo(rsUserFix, sender, args[1]);
+                            Optional<BlacklistRepository.Entry> oldNameEntry = Keklist.getDatabase().getBlacklist().findByName(args[1] + " (Old Name)");
+                            if (oldNameEntry.isPresent()) {
+                                sendInfo(sender, args[1], oldNameEntry.get().byPlayer(), oldNameEntry.get().unix(), oldNameEntry.get().reason());
                             } else
                                 sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.not-blacklisted", args[1])));
                         }
+                    } else if (type.equals(BlacklistType.RANGE)) {
+                        String cidr = IpRange.parse(args[1]).toString();
+                        Optional<BlacklistRepository.RangeEntry> entry = Keklist.getDatabase().getBlacklist().findRange(cidr);
+
+                        if (entry.isPresent()) {
+                            sendInfo(sender, cidr, entry.get().byPlayer(), entry.get().unix(), entry.get().reason());
+                        } else
+                            sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.not-blacklisted", cidr)));
                     }
                 }
 
@@ -276,152 +341,77 @@ public class BlacklistCommand extends Command {
         } catch (Exception e) {
             e.printStackTrace();
         }
-
-        return true;
     }
 
-    private void sendInfo(@NotNull ResultSet resultSet, @NotNull CommandSender sender, @NotNull String entry) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat(Keklist.getInstance().getConfig().getString("date-format"));
-
-            String byPlayer = resultSet.getString("byPlayer");
-            String blacklistedReason = resultSet.getString("reason");
-            blacklistedReason = blacklistedReason == null ? "No reason given" : blacklistedReason;
-            String unix = sdf.format(resultSet.getLong("unix"));
-
-            LanguageUtil translations = Keklist.getTranslations();
-            MiniMessage miniMessage = Keklist.getInstance().getMiniMessage();
-
-            sender.sendMessage(miniMessage.deserialize(translations.get("blacklist.info")));
-            sender.sendMessage(miniMessage.deserialize(translations.get("blacklist.info.entry", entry)));
-            sender.sendMessage(miniMessage.deserialize(translations.get("blacklist.info.by", byPlayer)));
-            sender.sendMessage(miniMessage.deserialize(translations.get("blacklist.info.at", unix)));
-            sender.sendMessage(miniMessage.deserialize(translations.get("blacklist.info.reason", blacklistedReason)));
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private void blacklistUser(CommandSender from, UUID uuid, String playerName, String reason) {
-        try {
-            ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklist WHERE uuid = ?", uuid.toString());
-            ResultSet rsUserFix = Keklist.getDatabase().onQuery("SELECT * FROM blacklist WHERE name = ?", playerName);
-
-            //User is not blacklisted
-            if (!rs.next()) {
-                if (rsUserFix.next()) {
-                    Keklist.getDatabase().onUpdate("UPDATE blacklist SET name = ? WHERE name = ?", playerName + " (Old Name)", playerName);
-                }
+    private void sendInfo(@NotNull CommandSender sender, @NotNull String entry, @Nullable String byPlayer, long unixTime, @Nullable String reason) {
+        SimpleDateFormat sdf = new SimpleDateFormat(Keklist.getInstance().getConfig().getString("date-format"));
 
-                if (reason == null) {
-                    Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new UUIDAddToBlacklistEvent(uuid, null).callEvent());
-                    Keklist.getDatabase().onUpdate("INSERT INTO blacklist (uuid, name, byPlayer, unix) VALUES (?, ?, ?, ?)", uuid.toString(), playerName, from.getName(), System.currentTimeMillis());
+        String blacklistedReason = reason == null ? "No reason given" : reason;
+        String unix = sdf.format(unixTime);
 
-                    if (Keklist.getWebhookManager() != null)
-                        Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_ADD, playerName, from.getName(), "No reason given!", System.currentTimeMillis());
-                } else {
-                    if (reason.length() <= 1500) {
-                        Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new UUIDAddToBlacklistEvent(uuid, reason).callEvent());
-                        Keklist.getDatabase().onUpdate("INSERT INTO blacklist (uuid, name, byPlayer, unix, reason) VALUES (?, ?, ?, ?, ?)", uuid.toString(), playerName, from.getName(), System.currentTimeMillis(), reason);
-
-                        if (Keklist.getWebhookManager() != null)
-                            Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_ADD, playerName, from.getName(), reason, System.currentTimeMillis());
-                    } else {
-                        from.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.reason-too-long")));
-                        return;
-                    }
-                }
+        LanguageUtil translations = Keklist.getTranslations();
+        MiniMessage miniMessage = Keklist.getInstance().getMiniMessage();
 
-                Player blacklisted = Bukkit.getPlayer(playerName);
-                if (blacklisted != null) {
-                    ResultSet rsMotd = Keklist.getDatabase().onQuery("SELECT * FROM blacklistMotd WHERE ip = ?", blacklisted.getAddress().getAddress().getHostAddress());
-                    if (!rsMotd.next()) {
-                        Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new IpAddToMOTDBlacklistEvent(blacklisted.getAddress().getAddress().getHostAddress()).callEvent());
-                        Keklist.getDatabase().onUpdate("INSERT INTO blacklistMotd (ip, byPlayer, unix) VALUES (?, ?, ?)", blacklisted.getAddress().getAddress().getHostAddress(), from.getName(), System.currentTimeMillis());
-                    }
-                }
-
-                from.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.added", playerName)));
-
-                if (Keklist.getInstance().getConfig().getBoolean("chat-notify"))
-                    Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.notify.add", playerName, from.getName())), "keklist.notify.blacklist");
-
-            } else
-                from.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.already-blacklisted", playerName)));
+        sender.sendMessage(miniMessage.deserialize(translations.get("blacklist.info")));
+        sender.sendMessage(miniMessage.deserialize(translations.get("blacklist.info.entry", entry)));
+        sender.sendMessage(miniMessage.deserialize(translations.get("blacklist.info.by", byPlayer)));
+        sender.sendMessage(miniMessage.deserialize(translations.get("blacklist.info.at", unix)));
+        sender.sendMessage(miniMessage.deserialize(translations.get("blacklist.info.reason", blacklistedReason)));
+    }
 
-        } catch (SQLException ex) {
-            ex.printStackTrace();
+    private void blacklistUser(CommandSender from, UUID uuid, String playerName, String reason) {
+        // The cache has every entry, no need to wait for the database
+        if (Keklist.getListCache().isBlacklisted(uuid)) {
+            from.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.already-blacklisted", playerName)));
+            return;
         }
-    }
 
-    private class UserBlacklistAddCallback implements Callback {
-        private final CommandSender player;
-        private final String reason;
-        private final BlacklistType type;
+        if (reason != null && reason.length() > 1500) {
+            from.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.reason-too-long")));
+            return;
+        }
 
-        public UserBlacklistAddCallback(CommandSender player, String reason, BlacklistType type) {
-            this.player = player;
-            this.reason = reason;
-            this.type = type;
+        if (Keklist.getListCache().keyByName(ListCache.ListType.BLACKLIST, playerName) != null) {
+            Keklist.getDatabase().getBlacklist().rename(playerName, playerName + " (Old Name)");
+            Keklist.getListCache().rename(ListCache.ListType.BLACKLIST, playerName, playerName + " (Old Name)");
         }
 
-        @Override
-        public void onResponse(@NotNull Call call, Response response) throws IOException {
-            String body = response.body().string();
-            if (checkForGoodResponse(body, type) != null) {
-                player.sendMessage(checkForGoodResponse(body, type));
+        Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new UUIDAddToBlacklistEvent(uuid, reason).callEvent());
+        CompletableFuture<Integer> write = Keklist.getDatabase().getBlacklist().add(uuid, playerName, from.getName(), System.currentTimeMillis(), reason);
+        Keklist.getListCache().add(write, ListCache.ListType.BLACKLIST, uuid.toString(), playerName, from.getName(), System.currentTimeMillis());
 
-            } else if (response.code() == 429) {
-                player.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.rate-limit")));
-            } else {
-                Map<String, String> map = gson.fromJson(body, token);
+        if (Keklist.getWebhookManager() != null)
+            Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_ADD, playerName, from.getName(), reason == null ? "No reason given!" : reason, System.currentTimeMillis());
 
-                String uuid;
-                String name;
+        // This runs after the profile lookup, players and the broadcast belong to the main thread
+        Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> {
+            Player blacklisted = Bukkit.getPlayer(playerName);
+            if (blacklisted != null && blacklisted.getAddress() != null) {
+                String ip = blacklisted.getAddress().getAddress().getHostAddress();
 
-                if (type.equals(BlacklistType.JAVA)) {
-                    uuid = map.get("id");
-                    name = map.get("name");
-                } else {
-                    uuid = map.get("floodgateuid");
-                    name = Keklist.getInstance().getConfig().getString("floodgate.prefix") + map.get("gamertag");
+                if (!Keklist.getListCache().isMotdBlacklisted(ip)) {
+                    new IpAddToMOTDBlacklistEvent(ip).callEvent();
+                    CompletableFuture<Integer> motdWrite = Keklist.getDatabase().getMotdBlacklist().add(ip, from.getName(), System.currentTimeMillis());
+                    Keklist.getListCache().add(motdWrite, ListCache.ListType.BLACKLIST_MOTD, ip, null, from.getName(), System.currentTimeMillis());
                 }
-
-                blacklistUser(player, UUID.fromString(uuid.replaceFirst(
-                        "(\\p{XDigit}{8})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}+)",
-                        "$1-$2-$3-$4-$5")), name, reason);
             }
 
-        }
+            if (Keklist.getInstance().getConfig().getBoolean("chat-notify"))
+                Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.notify.add", playerName, from.getName())), "keklist.notify.blacklist");
+        });
 
-        @Override
-        public void onFailure(@NotNull Call call, IOException e) {
-            player.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.error")));
-            player.sendMessage(Component.text(Keklist.getTranslations().get("http.detail", e.getMessage())));
-        }
+        from.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.added", playerName)));
     }
 
-    private Component checkForGoodResponse(String response, BlacklistType type) {
-        JsonElement element = JsonParser.parseString(response);
-
-        if (!element.isJsonNull()) {
-            if (type.equals(BlacklistType.JAVA)) {
-                if (element.getAsJsonObject().get("error") != null ||
-                        !element.getAsJsonObject().has("id") ||
-                        !element.getAsJsonObject().has("name")) {
-                    return Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.not-found", element.getAsJsonObject().get("error").getAsString()));
-                }
-            } else {
-                if (element.getAsJsonObject().get("message") != null)
-                    Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.not-found", element.getAsJsonObject().get("message").getAsString()));
-
-            }
+    private static void sendLookupError(@NotNull CommandSender sender, @NotNull Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
 
+        if (cause instanceof ProfileCache.RateLimitedException) {
+            sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.rate-limit")));
         } else {
-            return Component.text(Keklist.getTranslations().get("http.null-response"));
+            sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.error")));
+            sender.sendMessage(Component.text(Keklist.getTranslations().get("http.detail", cause.getMessage())));
         }
-
-        return null;
     }
 
     /**
@@ -431,7 +421,7 @@ public class BlacklistCommand extends Command {
      * <p> IPv6: Blacklist a player by their IPv6 address
      */
     private enum BlacklistType {
-        IPv4, IPv6, JAVA, BEDROCK
+        IPv4, IPv6, RANGE, JAVA, BEDROCK
     }
 
     @Override
@@ -448,23 +438,16 @@ public class BlacklistCommand extends Command {
 
                         List<String> list = new ArrayList<>();
 
-                        ResultSet rsUser = Keklist.getDatabase().onQuery("SELECT name FROM blacklist");
-                        while (rsUser.next()) {
-                            list.add(rsUser.getString("name"));
-                        }
+                        list.addAll(Keklist.getListCache().names(ListCache.ListType.BLACKLIST));
+                        list.addAll(Keklist.getListCache().keys(ListCache.ListType.BLACKLIST_IP));
+                        list.addAll(Keklist.getListCache().keys(ListCache.ListType.BLACKLIST_RANGE));
 
-                        ResultSet rsIp = Keklist.getDatabase().onQuery("SELECT ip FROM blacklistIp");
-                        while (rsIp.next()) {
-                            list.add(rsIp.getString("ip"));
-                        }
-
-                        ResultSet rsMotd = Keklist.getDatabase().onQuery("SELECT ip FROM blacklistMotd");
-                        while (rsMotd.next()) {
-                            if (list.contains(rsMotd.getString("ip"))) {
+                        for (String motd : Keklist.getListCache().keys(ListCache.ListType.BLACKLIST_MOTD)) {
+                            if (list.contains(motd)) {
                                 continue;
                             }
 
-                            list.add(rsMotd.getString("ip") + "(motd)");
+                            list.add(motd + "(motd)");
                         }
 
                         return list;
@@ -475,27 +458,15 @@ public class BlacklistCommand extends Command {
 
                         List<String> completions = new ArrayList<>();
 
+                        List<String> blacklistedNames = Keklist.getListCache().names(ListCache.ListType.BLACKLIST);
                         Bukkit.getOnlinePlayers().forEach(player -> {
-                            ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklist WHERE name = ?", player.getName());
-                            try {
-                                if (!rs.next()) {
-                                    completions.add(player.getName());
-                                }
-                            } catch (SQLException e) {
-                                throw new RuntimeException(e);
-                            }
-
+                            if (!blacklistedNames.contains(player.getName()))
+                                completions.add(player.getName());
                         });
 
                         Bukkit.getOnlinePlayers().forEach(player -> {
-                            ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklistIp WHERE ip = ?", player.getAddress().getAddress().getHostAddress());
-                            try {
-                                if (!rs.next()) {
-                                    completions.add(player.getAddress().getAddress().getHostAddress() + "(" + player.getName() + ")");
-                                }
-                            } catch (SQLException e) {
-                                throw new RuntimeException(e);
-                            }
+                            if (!Keklist.getListCache().isBlacklisted(player.getAddress().getAddress().getHostAddress()))
+                                completions.add(player.getAddress().getAddress().getHostAddress() + "(" + player.getName() + ")");
                         });
 
                         return completions;
@@ -506,15 +477,8 @@ public class BlacklistCommand extends Command {
 
                         List<String> completions = new ArrayList<>();
                         Bukkit.getOnlinePlayers().forEach(player -> {
-                            ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklistMotd WHERE ip = ?", player.getAddress().getAddress().getHostAddress());
-
-                            try {
-                                if (!rs.next()) {
-                                    completions.add(player.getAddress().getAddress().getHostAddress() + "(" + player.getName() + ")");
-                                }
-                            } catch (SQLException e) {
-                                throw new RuntimeException(e);
-                            }
+                            if (!Keklist.getListCache().isMotdBlacklisted(player.getAddress().getAddress().getHostAddress()))
+                                completions.add(player.getAddress().getAddress().getHostAddress() + "(" + player.getName() + ")");
                         });
 
                         return completions;
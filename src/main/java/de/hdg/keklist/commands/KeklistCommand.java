@@ -13,7 +13,10 @@ import org.jetbrains.annotations.NotNull;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 public class KeklistCommand extends Command {
 
@@ -41,6 +44,7 @@ public class KeklistCommand extends Command {
                                     Keklist.getInstance().getConfig().set("blacklist.enabled", true);
                                     try {
                                         Keklist.getInstance().getConfig().save(new File(Keklist.getInstance().getDataFolder(), "config.yml"));
+                                        Keklist.getInstance().reloadSettings();
                                         for (Player player : Bukkit.getOnlinePlayers()) {
                                             if (player.hasPermission("keklist.manage.blacklist")) {
                                                 player.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.enabled")));
@@ -61,6 +65,7 @@ public class KeklistCommand extends Command {
                                     Keklist.getInstance().getConfig().set("blacklist.enabled", false);
                                     try {
                                         Keklist.getInstance().getConfig().save(new File(Keklist.getInstance().getDataFolder(), "config.yml"));
+                                        Keklist.getInstance().reloadSettings();
                                         for (Player player : Bukkit.getOnlinePlayers()) {
                                             if (player.hasPermission("keklist.manage.blacklist")) {
                                                 player.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.disabled")));
@@ -81,6 +86,7 @@ public class KeklistCommand extends Command {
                                     Keklist.getInstance().getConfig().set("blacklist.allow-join-with-admin", true);
                                     try {
                                         Keklist.getInstance().getConfig().save(new File(Keklist.getInstance().getDataFolder(), "config.yml"));
+                                        Keklist.getInstance().reloadSettings();
                                         for (Player player : Bukkit.getOnlinePlayers()) {
                                             if (player.hasPermission("keklist.manage.blacklist")) {
                                                 player.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.allow-blacklisted")));
@@ -101,6 +107,7 @@ public class KeklistCommand extends Command {
                                     Keklist.getInstance().getConfig().set("blacklist.allow-join-with-admin", false);
                                     try {
                                         Keklist.getInstance().getConfig().save(new File(Keklist.getInstance().getDataFolder(), "config.yml"));
+                                        Keklist.getInstance().reloadSettings();
                                         for (Player player : Bukkit.getOnlinePlayers()) {
                                             if (player.hasPermission("keklist.manage.blacklist")) {
                                                 player.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.disallow-blacklisted")));
@@ -134,10 +141,14 @@ public class KeklistCommand extends Command {
                         case "import" -> {
                             if (args.length == 3) {
                                 if (args[2].equalsIgnoreCase("vanilla")) {
+                                    Map<UUID, String> players = new LinkedHashMap<>();
                                     for (OfflinePlayer player : Bukkit.getWhitelistedPlayers()) {
-                                        Bukkit.dispatchCommand(sender, "keklist whitelist add " + player.getName());
+                                        players.put(player.getUniqueId(), player.getName());
                                     }
 
+                                    // The vanilla whitelist already knows uuid and name, no need to ask Mojang for each player
+                                    Keklist.getApi().whitelistAll(players, sender.getName());
+
                                     sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.imported")));
                                 }
                             }
@@ -151,6 +162,7 @@ public class KeklistCommand extends Command {
                                     Keklist.getInstance().getConfig().set("whitelist.enabled", true);
                                     try {
                                         Keklist.getInstance().getConfig().save(new File(Keklist.getInstance().getDataFolder(), "config.yml"));
+                                        Keklist.getInstance().reloadSettings();
                                         for (Player player : Bukkit.getOnlinePlayers()) {
                                             if (player.hasPermission("keklist.manage.whitelist")) {
                                                 player.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.enabled")));
@@ -171,6 +183,7 @@ public class KeklistCommand extends Command {
                                     Keklist.getInstance().getConfig().set("whitelist.enabled", false);
                                     try {
                                         Keklist.getInstance().getConfig().save(new File(Keklist.getInstance().getDataFolder(), "config.yml"));
+                                        Keklist.getInstance().reloadSettings();
                                         for (Player player : Bukkit.getOnlinePlayers()) {
                                             if (player.hasPermission("keklist.manage.whitelist")) {
                                                 player.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.disabled")));
@@ -207,6 +220,9 @@ public class KeklistCommand extends Command {
 
                 try {
                     Keklist.getInstance().getConfig().load(new File(Keklist.getInstance().getDataFolder(), "config.yml"));
+                    Keklist.getInstance().reloadSettings();
+                    Keklist.getPingLimiter().reload(Keklist.getInstance().getConfig().getConfigurationSection("rate-limit.ping"));
+                    Keklist.getLoginLimiter().reload(Keklist.getInstance().getConfig().getConfigurationSection("rate-limit.login"));
                     sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("config-reloaded")));
                 } catch (IOException | InvalidConfigurationException e) {
                     throw new RuntimeException(e);
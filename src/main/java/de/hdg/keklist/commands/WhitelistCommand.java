@@ -1,17 +1,15 @@
 package de.hdg.keklist.commands;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
-import com.google.gson.reflect.TypeToken;
 import de.hdg.keklist.Keklist;
 import de.hdg.keklist.api.events.whitelist.*;
+import de.hdg.keklist.database.ListCache;
+import de.hdg.keklist.database.ProfileCache;
+import de.hdg.keklist.database.repository.WhitelistRepository;
+import de.hdg.keklist.util.IpRange;
 import de.hdg.keklist.util.LanguageUtil;
 import de.hdg.keklist.extentions.WebhookManager;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.MiniMessage;
-import okhttp3.*;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -19,21 +17,16 @@ import org.geysermc.floodgate.api.FloodgateApi;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class WhitelistCommand extends Command {
 
-    private static final OkHttpClient client = new OkHttpClient();
-    private static final Gson gson = new GsonBuilder().setPrettyPrinting().setLenient().create();
-    private static final TypeToken<Map<String, String>> token = new TypeToken<>() {
-    };
-
     public WhitelistCommand() {
         super("whitelist");
         setDescription(Keklist.getTranslations().get("whitelist.description"));
@@ -49,6 +42,12 @@ public class WhitelistCommand extends Command {
             return true;
         }
 
+        // Lookups, DNS and the floodgate API may block, none of that belongs on the main thread
+        Keklist.getDatabase().getExecutor().execute(() -> handle(sender, args));
+        return true;
+    }
+
+    private void handle(@NotNull CommandSender sender, @NotNull String[] args) {
         try {
             String senderName = sender.getName();
             WhiteListType type;
@@ -59,17 +58,19 @@ public class WhitelistCommand extends Command {
                 type = WhiteListType.IPv4;
             } else if (args[1].matches("^(?:[0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}$")) {
                 type = WhiteListType.IPv6;
+            } else if (IpRange.parse(args[1]) != null) {
+                type = WhiteListType.RANGE;
             } else if (args[1].startsWith(Keklist.getInstance().getConfig().getString("floodgate.prefix"))) {
                 if (Keklist.getInstance().getFloodgateApi() == null) {
                     sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.invalid-argument")));
-                    return true;
+                    return;
                 } else
                     type = WhiteListType.BEDROCK;
             } else if (args[1].matches("^((?!-))(xn--)?[a-z0-9][a-z0-9-_]{0,61}[a-z0-9]{0,}\\.?((xn--)?([a-z0-9\\-.]{1,61}|[a-z0-9-]{1,30})\\.?[a-z]{2,})$")) {
                 type = WhiteListType.DOMAIN;
             } else {
                 sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.invalid-argument")));
-                return true;
+                return;
             }
 
 
@@ -77,18 +78,25 @@ public class WhitelistCommand extends Command {
                 case "add" -> {
                     if (!sender.hasPermission("keklist.whitelist.add")) {
                         sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("no-permission")));
-                        return false;
+                        return;
                     }
 
                     if (type.equals(WhiteListType.JAVA)) {
-                        Request request = new Request.Builder().url("https://api.mojang.com/users/profiles/minecraft/" + args[1]).build();
-                        client.newCall(request).enqueue(new WhitelistCommand.UserWhitelistAddCallback(sender, type));
+                        Keklist.getProfileCache().byName(args[1]).whenComplete((profile, throwable) -> {
+                            if (throwable != null)
+                                sendLookupError(sender, throwable);
+                            else if (profile.isEmpty())
+                                sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.no-profile", args[1])));
+                            else
+                                whitelistUser(sender, profile.get().uuid(), profile.get().name());
+                        });
                     } else if (type.equals(WhiteListType.IPv4) || type.equals(WhiteListType.IPv6)) {
-                        ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelistIp WHERE ip = ?", args[1]);
+                        Optional<WhitelistRepository.IpEntry> entry = Keklist.getDatabase().getWhitelist().findIp(args[1]);
 
-                        if (!rs.next()) {
-                            new IpAddToWhitelistEvent(args[1]).callEvent();
-                            Keklist.getDatabase().onUpdate("INSERT INTO whitelistIp (ip, byPlayer, unix) VALUES (?, ?, ?)", args[1], senderName, System.currentTimeMillis());
+                        if (entry.isEmpty()) {
+                            Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new IpAddToWhitelistEvent(args[1]).callEvent());
+                            CompletableFuture<Integer> write = Keklist.getDatabase().getWhitelist().addIp(args[1], senderName, System.currentTimeMillis());
+                            Keklist.getListCache().add(write, ListCache.ListType.WHITELIST_IP, args[1], null, senderName, System.currentTimeMillis());
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.added", args[1])));
 
                             if (Keklist.getWebhookManager() != null)
@@ -99,6 +107,23 @@ public class WhitelistCommand extends Command {
                         } else
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.already-whitelisted", args[1])));
 
+                    } else if (type.equals(WhiteListType.RANGE)) {
+                        String cidr = IpRange.parse(args[1]).toString();
+                        Optional<WhitelistRepository.RangeEntry> entry = Keklist.getDatabase().getWhitelist().findRange(cidr);
+
+                        if (entry.isEmpty()) {
+                            CompletableFuture<Integer> write = Keklist.getDatabase().getWhitelist().addRange(cidr, senderName, System.currentTimeMillis());
+                            Keklist.getListCache().add(write, ListCache.ListType.WHITELIST_RANGE, cidr, null, senderName, System.currentTimeMillis());
+                            sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.added", cidr)));
+
+                            if (Keklist.getWebhookManager() != null)
+                                Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_ADD, cidr, senderName, System.currentTimeMillis());
+
+                            if (Keklist.getInstance().getConfig().getBoolean("chat-notify"))
+                                Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.notify.add", cidr, senderName)), "keklist.notify.whitelist");
+                        } else
+                            sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.already-whitelisted", cidr)));
+
                     } else if (type.equals(WhiteListType.BEDROCK)) {
                         FloodgateApi api = Keklist.getInstance().getFloodgateApi();
 
@@ -108,27 +133,30 @@ public class WhitelistCommand extends Command {
                         } catch (Exception ex) {
 
                             if (Keklist.getInstance().getConfig().getString("floodgate.api-key") != null) {
-                                Request request = new Request.Builder()
-                                        .url("https://mcprofile.io/api/v1/bedrock/gamertag/" + args[1].replace(".", ""))
-                                        .header("x-api-key", Keklist.getInstance().getConfig().getString("floodgate.api-key"))
-                                        .build();
-
-                                client.newCall(request).enqueue(new WhitelistCommand.UserWhitelistAddCallback(sender, type));
-                                return false;
+                                Keklist.getProfileCache().byGamertag(args[1].replace(".", ""), Keklist.getInstance().getConfig().getString("floodgate.api-key")).whenComplete((profile, throwable) -> {
+                                    if (throwable != null)
+                                        sendLookupError(sender, throwable);
+                                    else if (profile.isEmpty())
+                                        sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.no-profile", args[1])));
+                                    else
+                                        whitelistUser(sender, profile.get().uuid(), Keklist.getInstance().getConfig().getString("floodgate.prefix") + profile.get().name());
+                                });
+                                return;
                             } else
                                 sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("floodgate.api-key-not-set")));
 
                         }
 
                     } else if (type.equals(WhiteListType.DOMAIN)) {
-                        ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelistDomain WHERE domain = ?", args[1]);
+                        Optional<WhitelistRepository.DomainEntry> entry = Keklist.getDatabase().getWhitelist().findDomain(args[1]);
 
-                        if (!rs.next()) {
+                        if (entry.isEmpty()) {
                             try {
                                 InetAddress address = InetAddress.getByName(args[1]);
 
-                                new DomainAddToWhitelistEvent(args[1]).callEvent();
-                                Keklist.getDatabase().onUpdate("INSERT INTO whitelistDomain (domain, byPlayer, unix) VALUES (?, ?, ?)", args[1], senderName, System.currentTimeMillis());
+                                Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new DomainAddToWhitelistEvent(args[1]).callEvent());
+                                Keklist.getDatabase().getWhitelist().addDomain(args[1], senderName, System.currentTimeMillis());
+                                Keklist.getDomainResolver().add(args[1]);
                                 sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.domain-added", args[1], address.getHostAddress())));
 
                                 if (Keklist.getWebhookManager() != null)
@@ -140,27 +168,28 @@ public class WhitelistCommand extends Command {
 
                             } catch (UnknownHostException e) {
                                 sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.invalid-domain", args[1])));
-                                return true;
+                                return;
                             }
 
                         } else
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.already-whitelisted", args[1])));
                     }
 
-                    return true;
+                    return;
                 }
 
                 case "remove" -> {
                     if (!sender.hasPermission("keklist.whitelist.remove")) {
                         sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("no-permission")));
-                        return false;
+                        return;
                     }
 
                     if (type.equals(WhiteListType.JAVA) || type.equals(WhiteListType.BEDROCK)) {
-                        ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE name = ?", args[1]);
-                        if (rs.next()) {
-                            new PlayerRemovedFromWhitelistEvent(args[1]).callEvent();
-                            Keklist.getDatabase().onUpdate("DELETE FROM whitelist WHERE name = ?", args[1]);
+                        Optional<WhitelistRepository.Entry> entry = Keklist.getDatabase().getWhitelist().findByName(args[1]);
+                        if (entry.isPresent()) {
+                            Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new PlayerRemovedFromWhitelistEvent(args[1]).callEvent());
+                            Keklist.getDatabase().getWhitelist().removeByName(args[1]);
+                            Keklist.getListCache().removeByName(ListCache.ListType.WHITELIST, args[1]);
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.removed", args[1])));
 
                             if (Keklist.getWebhookManager() != null)
@@ -170,9 +199,10 @@ public class WhitelistCommand extends Command {
                                 Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.notify.remove", args[1], senderName)), "keklist.notify.whitelist");
 
                         } else {
-                            ResultSet rsUserFix = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE name = ?", args[1] + " (Old Name)");
-                            if (rsUserFix.next()) {
-                                Keklist.getDatabase().onUpdate("DELETE FROM whitelist WHERE name = ?", args[1] + " (Old Name)");
+                            Optional<WhitelistRepository.Entry> oldNameEntry = Keklist.getDatabase().getWhitelist().findByName(args[1] + " (Old Name)");
+                            if (oldNameEntry.isPresent()) {
+                                Keklist.getDatabase().getWhitelist().removeByName(args[1] + " (Old Name)");
+                                Keklist.getListCache().removeByName(ListCache.ListType.WHITELIST, args[1] + " (Old Name)");
                                 sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.removed", args[1] + " (Old Name)")));
 
                                 if (Keklist.getWebhookManager() != null)
@@ -186,10 +216,11 @@ public class WhitelistCommand extends Command {
                             }
                         }
                     } else if (type.equals(WhiteListType.IPv4) || type.equals(WhiteListType.IPv6)) {
-                        ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelistIp WHERE ip = ?", args[1]);
-                        if (rs.next()) {
-                            new IpRemovedFromWhitelistEvent(args[1]).callEvent();
-                            Keklist.getDatabase().onUpdate("DELETE FROM whitelistIp WHERE ip = ?", args[1]);
+                        Optional<WhitelistRepository.IpEntry> entry = Keklist.getDatabase().getWhitelist().findIp(args[1]);
+                        if (entry.isPresent()) {
+                            Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new IpRemovedFromWhitelistEvent(args[1]).callEvent());
+                            Keklist.getDatabase().getWhitelist().removeIp(args[1]);
+                            Keklist.getListCache().remove(ListCache.ListType.WHITELIST_IP, args[1]);
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.removed", args[1])));
 
                             if (Keklist.getWebhookManager() != null)
@@ -201,11 +232,29 @@ public class WhitelistCommand extends Command {
                         } else {
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.not-whitelisted", args[1])));
                         }
+                    } else if (type.equals(WhiteListType.RANGE)) {
+                        String cidr = IpRange.parse(args[1]).toString();
+                        Optional<WhitelistRepository.RangeEntry> entry = Keklist.getDatabase().getWhitelist().findRange(cidr);
+                        if (entry.isPresent()) {
+                            Keklist.getDatabase().getWhitelist().removeRange(cidr);
+                            Keklist.getListCache().remove(ListCache.ListType.WHITELIST_RANGE, cidr);
+                            sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.removed", cidr)));
+
+                            if (Keklist.getWebhookManager() != null)
+                                Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_REMOVE, cidr, senderName, System.currentTimeMillis());
+
+                            if (Keklist.getInstance().getConfig().getBoolean("chat-notify"))
+                                Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.notify.remove", cidr, senderName)), "keklist.notify.whitelist");
+
+                        } else {
+                            sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.not-whitelisted", cidr)));
+                        }
                     } else if (type.equals(WhiteListType.DOMAIN)) {
-                        ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelistDomain WHERE domain = ?", args[1]);
-                        if (rs.next()) {
-                            new DomainRemovedFromWhitelistEvent(args[1]).callEvent();
-                            Keklist.getDatabase().onUpdate("DELETE FROM whitelistDomain WHERE domain = ?", args[1]);
+                        Optional<WhitelistRepository.DomainEntry> entry = Keklist.getDatabase().getWhitelist().findDomain(args[1]);
+                        if (entry.isPresent()) {
+                            Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new DomainRemovedFromWhitelistEvent(args[1]).callEvent());
+                            Keklist.getDatabase().getWhitelist().removeDomain(args[1]);
+                            Keklist.getDomainResolver().remove(args[1]);
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.removed", args[1])));
 
                             if (Keklist.getWebhookManager() != null)
@@ -219,40 +268,48 @@ public class WhitelistCommand extends Command {
                         }
                     }
 
-                    return true;
+                    return;
                 }
 
                 case "info" -> {
                     if (!sender.hasPermission("keklist.whitelist.info")) {
                         sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("no-permission")));
-                        return false;
+                        return;
                     }
 
                     if (type.equals(WhitelistCommand.WhiteListType.IPv4) || type.equals(WhitelistCommand.WhiteListType.IPv6)) {
-                        ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelistIp WHERE ip = ?", args[1]);
+                        Optional<WhitelistRepository.IpEntry> entry = Keklist.getDatabase().getWhitelist().findIp(args[1]);
 
-                        if (rs.next()) {
-                            sendInfo(rs, sender, args[1]);
+                        if (entry.isPresent()) {
+                            sendInfo(sender, args[1], entry.get().byPlayer(), entry.get().unix());
                         } else
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.not-blacklisted", args[1])));
 
                     } else if (type.equals(WhitelistCommand.WhiteListType.JAVA) || type.equals(WhitelistCommand.WhiteListType.BEDROCK)) {
-                        ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE name = ?", args[1]);
+                        Optional<WhitelistRepository.Entry> entry = Keklist.getDatabase().getWhitelist().findByName(args[1]);
 
-                        if (rs.next()) {
-                            sendInfo(rs, sender, args[1]);
+                        if (entry.isPresent()) {
+                            sendInfo(sender, args[1], entry.get().byPlayer(), entry.get().unix());
                         } else {
-                            ResultSet rsUserFix = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE name = ?", args[1] + " (Old Name)");
-                            if (rsUserFix.next()) {
-                                sendInfo(rsUserFix, sender, args[1] + " (Old Name)");
+                            Optional<WhitelistRepository.Entry> oldNameEntry = Keklist.getDatabase().getWhitelist().findByName(args[1] + " (Old Name)");
+                            if (oldNameEntry.isPresent()) {
+                                sendInfo(sender, args[1] + " (Old Name)", oldNameEntry.get().byPlayer(), oldNameEntry.get().unix());
                             } else
                                 sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.not-whitelisted", args[1])));
                         }
+                    } else if (type.equals(WhitelistCommand.WhiteListType.RANGE)) {
+                        String cidr = IpRange.parse(args[1]).toString();
+                        Optional<WhitelistRepository.RangeEntry> entry = Keklist.getDatabase().getWhitelist().findRange(cidr);
+
+                        if (entry.isPresent()) {
+                            sendInfo(sender, cidr, entry.get().byPlayer(), entry.get().unix());
+                        } else
+                            sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.not-whitelisted", cidr)));
                     } else if (type.equals(WhitelistCommand.WhiteListType.DOMAIN)) {
-                        ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelistDomain WHERE domain = ?", args[1]);
+                        Optional<WhitelistRepository.DomainEntry> entry = Keklist.getDatabase().getWhitelist().findDomain(args[1]);
 
-                        if (rs.next()) {
-                            sendInfo(rs, sender, args[1]);
+                        if (entry.isPresent()) {
+                            sendInfo(sender, args[1], entry.get().byPlayer(), entry.get().unix());
                         } else
                             sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.not-whitelisted", args[1])));
                     }
@@ -267,41 +324,35 @@ public class WhitelistCommand extends Command {
         } catch (Exception e) {
             e.printStackTrace();
         }
-
-        return false;
     }
 
-    private void sendInfo(@NotNull ResultSet resultSet, @NotNull CommandSender sender, @NotNull String entry) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat(Keklist.getInstance().getConfig().getString("date-format"));
-
-            String byPlayer = resultSet.getString("byPlayer");
-            String unix = sdf.format(resultSet.getLong("unix"));
+    private void sendInfo(@NotNull CommandSender sender, @NotNull String entry, @Nullable String byPlayer, long unixTime) {
+        SimpleDateFormat sdf = new SimpleDateFormat(Keklist.getInstance().getConfig().getString("date-format"));
+        String unix = sdf.format(unixTime);
 
-            LanguageUtil translations = Keklist.getTranslations();
-            MiniMessage miniMessage = Keklist.getInstance().getMiniMessage();
+        LanguageUtil translations = Keklist.getTranslations();
+        MiniMessage miniMessage = Keklist.getInstance().getMiniMessage();
 
-            sender.sendMessage(miniMessage.deserialize(translations.get("whitelist.info")));
-            sender.sendMessage(miniMessage.deserialize(translations.get("whitelist.info.entry", entry)));
-            sender.sendMessage(miniMessage.deserialize(translations.get("whitelist.info.by", byPlayer)));
-            sender.sendMessage(miniMessage.deserialize(translations.get("whitelist.info.at", unix)));
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        sender.sendMessage(miniMessage.deserialize(translations.get("whitelist.info")));
+        sender.sendMessage(miniMessage.deserialize(translations.get("whitelist.info.entry", entry)));
+        sender.sendMessage(miniMessage.deserialize(translations.get("whitelist.info.by", byPlayer)));
+        sender.sendMessage(miniMessage.deserialize(translations.get("whitelist.info.at", unix)));
     }
 
     private void whitelistUser(CommandSender from, @NotNull UUID uuid, String playerName) {
         try {
-            ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE uuid = ?", uuid.toString());
-            ResultSet rsUserFix = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE name = ?", playerName);
+            Optional<WhitelistRepository.Entry> entry = Keklist.getDatabase().getWhitelist().find(uuid);
+            Optional<WhitelistRepository.Entry> oldNameEntry = Keklist.getDatabase().getWhitelist().findByName(playerName);
 
-            if (!rs.next()) {
-                if (rsUserFix.next()) {
-                    Keklist.getDatabase().onUpdate("UPDATE whitelist SET name = ? WHERE name = ?", playerName + " (Old Name)", playerName);
+            if (entry.isEmpty()) {
+                if (oldNameEntry.isPresent()) {
+                    Keklist.getDatabase().getWhitelist().rename(playerName, playerName + " (Old Name)");
+                    Keklist.getListCache().rename(ListCache.ListType.WHITELIST, playerName, playerName + " (Old Name)");
                 }
 
                 Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> new UUIDAddToWhitelistEvent(uuid).callEvent());
-                Keklist.getDatabase().onUpdate("INSERT INTO whitelist (uuid, name, byPlayer, unix) VALUES (?, ?, ?, ?)", uuid.toString(), playerName, from.getName(), System.currentTimeMillis());
+                CompletableFuture<Integer> write = Keklist.getDatabase().getWhitelist().add(uuid, playerName, from.getName(), System.currentTimeMillis());
+                Keklist.getListCache().add(write, ListCache.ListType.WHITELIST, uuid.toString(), playerName, from.getName(), System.currentTimeMillis());
                 from.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.added", playerName)));
 
                 if (Keklist.getWebhookManager() != null)
@@ -317,73 +368,15 @@ public class WhitelistCommand extends Command {
         }
     }
 
-    private class UserWhitelistAddCallback implements Callback {
-        private final CommandSender player;
-        private final WhiteListType type;
-
-        public UserWhitelistAddCallback(CommandSender player, WhiteListType type) {
-            this.player = player;
-            this.type = type;
-        }
-
-        @Override
-        public void onResponse(@NotNull Call call, Response response) throws IOException {
-
-            String body = response.body().string();
-
-            if (checkForGoodResponse(body, type) != null) {
-                player.sendMessage(checkForGoodResponse(body, type));
-            } else if (response.code() == 429) {
-                player.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.rate-limit")));
-            } else {
-                Map<String, String> map = gson.fromJson(body, token);
-
-                String uuid;
-                String name;
-
-                if (type.equals(WhiteListType.JAVA)) {
-                    uuid = map.get("id");
-                    name = map.get("name");
-                } else {
-                    uuid = map.get("floodgateuid");
-                    name = Keklist.getInstance().getConfig().getString("floodgate.prefix") + map.get("gamertag");
-                }
-
-                whitelistUser(player, UUID.fromString(uuid.replaceFirst(
-                        "(\\p{XDigit}{8})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}+)",
-                        "$1-$2-$3-$4-$5")), name);
-            }
-        }
-
-        @Override
-        public void onFailure(@NotNull Call call, IOException e) {
-            player.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.error")));
-            player.sendMessage(Component.text(Keklist.getTranslations().get("http.detail", e.getMessage())));
-        }
-    }
-
-    @Nullable
-    private static Component checkForGoodResponse(@NotNull String response, @NotNull WhiteListType type) {
-        JsonElement responseElement = JsonParser.parseString(response);
-
-        if (!responseElement.isJsonNull()) {
-            if (type.equals(WhiteListType.JAVA)) {
-                if (responseElement.getAsJsonObject().get("error") != null ||
-                        !responseElement.getAsJsonObject().has("id") ||
-                        !responseElement.getAsJsonObject().has("name")) {
-                    return Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.not-found", responseElement.getAsJsonObject().get("error").getAsString()));
-                }
-            } else {
-                if (responseElement.getAsJsonObject().get("message") != null)
-                    Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.not-found", responseElement.getAsJsonObject().get("message").getAsString()));
-
-            }
+    private static void sendLookupError(@NotNull CommandSender sender, @NotNull Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
 
+        if (cause instanceof ProfileCache.RateLimitedException) {
+            sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.rate-limit")));
         } else {
-            return Component.text(Keklist.getTranslations().get("http.null-response"));
+            sender.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("http.error")));
+            sender.sendMessage(Component.text(Keklist.getTranslations().get("http.detail", cause.getMessage())));
         }
-
-        return null;
     }
 
     /**
@@ -392,10 +385,11 @@ public class WhitelistCommand extends Command {
      * <p> IPv4: Whitelist a player by their IPv4 address
      * <p> IPv6: Whitelist a player by their IPv6 address
      * <p> BEDROCK: Whitelist a player by their Bedrock username
+     * <p> RANGE: Whitelist an IPv4 or IPv6 range in CIDR notation
      * <p> DOMAIN: Whitelist a domains which gets resolved to an IP
      */
     private enum WhiteListType {
-        IPv4, IPv6, JAVA, BEDROCK, DOMAIN
+        IPv4, IPv6, RANGE, JAVA, BEDROCK, DOMAIN
     }
 
     @Override
@@ -403,63 +397,38 @@ public class WhitelistCommand extends Command {
         if (args.length < 2) {
             return List.of("add", "remove", "info");
         } else if (args.length == 2) {
-            try {
-                switch (args[0]) {
-                    case "remove", "info" -> {
-                        if (!sender.hasPermission("keklist.whitelist.remove")
-                                || !sender.hasPermission("keklist.whitelist.info")) return Collections.emptyList();
-
-                        List<String> list = new ArrayList<>();
-
-                        ResultSet rsUser = Keklist.getDatabase().onQuery("SELECT name FROM whitelist");
-                        while (rsUser.next()) {
-                            list.add(rsUser.getString("name"));
-                        }
-
-                        ResultSet rsIp = Keklist.getDatabase().onQuery("SELECT ip FROM whitelistIp");
-                        while (rsIp.next()) {
-                            list.add(rsIp.getString("ip"));
-                        }
+            switch (args[0]) {
+                case "remove", "info" -> {
+                    if (!sender.hasPermission("keklist.whitelist.remove")
+                            || !sender.hasPermission("keklist.whitelist.info")) return Collections.emptyList();
 
-                        ResultSet rsDomain = Keklist.getDatabase().onQuery("SELECT domain FROM whitelistDomain");
-                        while (rsDomain.next()) {
-                            list.add(rsDomain.getString("domain"));
-                        }
+                    List<String> list = new ArrayList<>();
 
-                        return list;
-                    }
+                    list.addAll(Keklist.getListCache().names(ListCache.ListType.WHITELIST));
+                    list.addAll(Keklist.getListCache().keys(ListCache.ListType.WHITELIST_IP));
+                    list.addAll(Keklist.getListCache().keys(ListCache.ListType.WHITELIST_RANGE));
+                    list.addAll(Keklist.getDomainResolver().getDomains());
 
-                    case "add" -> {
-                        if (!sender.hasPermission("keklist.whitelist.add")) return Collections.emptyList();
+                    return list;
+                }
 
-                        List<String> completions = new ArrayList<>();
+                case "add" -> {
+                    if (!sender.hasPermission("keklist.whitelist.add")) return Collections.emptyList();
 
-                        Bukkit.getOnlinePlayers().forEach(player -> {
-                            ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE uuid = ?", player.getUniqueId().toString());
-                            try {
-                                if (!rs.next())
-                                    completions.add(player.getName());
-                            } catch (SQLException e) {
-                                e.printStackTrace();
-                            }
-                        });
+                    List<String> completions = new ArrayList<>();
 
-                        Bukkit.getOnlinePlayers().forEach(player -> {
-                            ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelistIp WHERE ip = ?", player.getAddress().getAddress().getHostAddress());
-                            try {
-                                if (!rs.next())
-                                    completions.add(player.getAddress().getAddress().getHostAddress() + "(" + player.getName() + ")");
+                    Bukkit.getOnlinePlayers().forEach(player -> {
+                        if (!Keklist.getListCache().isWhitelisted(player.getUniqueId()))
+                            completions.add(player.getName());
+                    });
 
-                            } catch (SQLException e) {
-                                e.printStackTrace();
-                            }
-                        });
+                    Bukkit.getOnlinePlayers().forEach(player -> {
+                        if (!Keklist.getListCache().isWhitelisted(player.getAddress().getAddress().getHostAddress()))
+                            completions.add(player.getAddress().getAddress().getHostAddress() + "(" + player.getName() + ")");
+                    });
 
-                        return completions;
-                    }
+                    return completions;
                 }
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
             }
         }
 
@@ -1,38 +1,108 @@
 package de.hdg.keklist.database;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import de.hdg.keklist.Keklist;
+import de.hdg.keklist.KeklistStats;
+import de.hdg.keklist.database.repository.BlacklistRepository;
+import de.hdg.keklist.database.repository.MotdBlacklistRepository;
+import de.hdg.keklist.database.repository.ProfileRepository;
+import de.hdg.keklist.database.repository.SkinRepository;
+import de.hdg.keklist.database.repository.WhitelistRepository;
+import lombok.Getter;
 import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
 import org.intellij.lang.annotations.Language;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.sqlite.SQLiteConfig;
 
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetFactory;
+import javax.sql.rowset.RowSetProvider;
 import java.io.File;
 import java.sql.*;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class DB {
 
-    private Connection connection;
+    private HikariDataSource writePool;
+    private HikariDataSource readPool;
     private final DBType type;
     private final Keklist plugin;
     private final AtomicInteger count = new AtomicInteger(0);
+    private static RowSetFactory rowSetFactory;
+    private static final int BATCH_SIZE = 1000;
+    // Length of the name column of the black- and whitelist
+    private static final int NAME_LENGTH = 16;
+
+    /**
+     * Runs queries and other blocking database work off the main thread
+     */
+    private final @Getter ExecutorService executor;
+    private final ExecutorService writeExecutor;
+    private final StatementCache statementCache;
+
+    private final @Getter BlacklistRepository blacklist = new BlacklistRepository(this);
+    private final @Getter WhitelistRepository whitelist = new WhitelistRepository(this);
+    private final @Getter MotdBlacklistRepository motdBlacklist = new MotdBlacklistRepository(this);
+    private final @Getter ProfileRepository profiles = new ProfileRepository(this);
+    private final @Getter SkinRepository skins = new SkinRepository(this);
 
     public DB(DBType dbType, Keklist plugin) {
         this.plugin = plugin;
         type = dbType;
+
+        executor = createExecutor();
+        writeExecutor = Executors.newSingleThreadExecutor(daemonFactory("Keklist-DB-Write"));
+
+        // MariaDB caches prepared statements in the driver, see the mariadb section of the config
+        statementCache = new StatementCache(type == DBType.SQLITE ? plugin.getConfig().getInt("sqlite.statement-cache-size") : 0);
+    }
+
+    /**
+     * Uses virtual threads when the server runs on Java 21 or newer,
+     * otherwise a small pool sized like the read pool
+     */
+    @NotNull
+    private ExecutorService createExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ignored) {
+            int threads = type == DBType.MARIADB ? plugin.getConfig().getInt("mariadb.pool.maximum-size") : plugin.getConfig().getInt("sqlite.read-connections");
+            return Executors.newFixedThreadPool(Math.max(2, threads), daemonFactory("Keklist-DB"));
+        }
+    }
+
+    @NotNull
+    private static ThreadFactory daemonFactory(@NotNull String name) {
+        AtomicInteger id = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + id.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
     public void connect() {
-       if(count.get() >= 4){
+       if(count.getAndIncrement() >= 4){
            plugin.getLogger().severe(Keklist.getTranslations().get("database.connect-fail"));
            Bukkit.getPluginManager().disablePlugin(plugin);
            return;
          }
 
+        // A reconnect must not leave the old pools and their connections behind
+        closePools();
+
         try {
+            FileConfiguration config = plugin.getConfig();
+
             switch (type){
                 case SQLITE -> {
                     File file = new File(Keklist.getInstance().getDataFolder(), "database.db");
@@ -40,7 +110,17 @@ public class DB {
                         file.createNewFile();
 
                     String url = "jdbc:sqlite:" + file.getPath();
-                    connection = DriverManager.getConnection(url);
+
+                    // SQLite only allows one writer at a time, but WAL lets the readers run next to it
+                    SQLiteConfig writeConfig = new SQLiteConfig();
+                    writeConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);
+                    writeConfig.setBusyTimeout(5000);
+                    writePool = createPool("Keklist-SQLite-Write", "org.sqlite.JDBC", url, writeConfig.toProperties(), 1, 1);
+
+                    SQLiteConfig readConfig = new SQLiteConfig();
+                    readConfig.setReadOnly(true);
+                    readConfig.setBusyTimeout(5000);
+                    readPool = createPool("Keklist-SQLite-Read", "org.sqlite.JDBC", url, readConfig.toProperties(), 1, Math.max(1, config.getInt("sqlite.read-connections")));
                 }
 
                 case MARIADB -> {
@@ -48,107 +128,467 @@ public class DB {
 
                     String url = "jdbc:mariadb://";
 
-                    String host = plugin.getConfig().getString("mariadb.host");
-                    String port = plugin.getConfig().getString("mariadb.port");
-                    String database = plugin.getConfig().getString("mariadb.database");
-                    String username = plugin.getConfig().getString("mariadb.username");
-                    String password = plugin.getConfig().getString("mariadb.password");
-                    String options = plugin.getConfig().getString("mariadb.options");
+                    String host = config.getString("mariadb.host");
+                    String port = config.getString("mariadb.port");
+                    String database = config.getString("mariadb.database");
+                    String username = config.getString("mariadb.username");
+                    String password = config.getString("mariadb.password");
+                    String options = config.getString("mariadb.options");
 
                     url += host + ":" + port + "/" + database + options;
-                    connection = DriverManager.getConnection(url, username, password);
+
+                    Properties properties = new Properties();
+                    properties.setProperty("user", username);
+                    properties.setProperty("password", password);
+
+                    // Server side prepares let MariaDB skip parsing and planning for statements the driver has cached
+                    int cacheSize = config.getInt("mariadb.prepared-statements.cache-size");
+                    properties.setProperty("useServerPrepStmts", String.valueOf(config.getBoolean("mariadb.prepared-statements.server-side")));
+                    properties.setProperty("cachePrepStmts", String.valueOf(cacheSize > 0));
+                    if (cacheSize > 0)
+                        properties.setProperty("prepStmtCacheSize", String.valueOf(cacheSize));
+
+                    writePool = createPool("Keklist-MariaDB", "org.mariadb.jdbc.Driver", url, properties,
+                            config.getInt("mariadb.pool.minimum-idle"), config.getInt("mariadb.pool.maximum-size"));
+                    readPool = writePool;
                 }
             }
 
             createTables();
-            count.incrementAndGet();
-        } catch (SQLException | java.io.IOException ex) {
+            count.set(0);
+        } catch (SQLException | java.io.IOException | RuntimeException ex) {
             ex.printStackTrace();
+            closePools();
             Bukkit.getPluginManager().disablePlugin(plugin);
         } catch (ClassNotFoundException e) {
             plugin.getLogger().severe(Keklist.getTranslations().get("database.driver-missing"));
+            closePools();
             Bukkit.getPluginManager().disablePlugin(plugin);
         }
     }
 
+    /**
+     * Creates a connection pool
+     * <p>
+     * Timeouts and leak detection are read from the mariadb.pool section, SQLite uses the same values.
+     */
+    @NotNull
+    private HikariDataSource createPool(@NotNull String name, @NotNull String driver, @NotNull String url, @NotNull Properties properties, int minIdle, int maxSize) {
+        FileConfiguration config = plugin.getConfig();
+
+        HikariConfig hikari = new HikariConfig();
+        hikari.setPoolName(name);
+        hikari.setDriverClassName(driver);
+        hikari.setJdbcUrl(url);
+        hikari.setDataSourceProperties(properties);
+        hikari.setMaximumPoolSize(Math.max(1, maxSize));
+        hikari.setMinimumIdle(Math.max(0, Math.min(minIdle, maxSize)));
+        hikari.setConnectionTimeout(TimeUnit.SECONDS.toMillis(config.getLong("mariadb.pool.connection-timeout", 5)));
+        hikari.setValidationTimeout(TimeUnit.SECONDS.toMillis(2));
+        hikari.setIdleTimeout(TimeUnit.SECONDS.toMillis(config.getLong("mariadb.pool.idle-timeout", 600)));
+        hikari.setMaxLifetime(TimeUnit.SECONDS.toMillis(config.getLong("mariadb.pool.max-lifetime", 1800)));
+        hikari.setLeakDetectionThreshold(TimeUnit.SECONDS.toMillis(config.getLong("mariadb.pool.leak-detection", 10)));
+
+        return new HikariDataSource(hikari);
+    }
+
+    /**
+     * @return The connection pools, the SQLite write and read pool or the single MariaDB pool
+     */
+    @NotNull
+    public List<HikariDataSource> getPools() {
+        if (writePool == null || readPool == null)
+            return List.of();
+
+        return readPool == writePool ? List.of(writePool) : List.of(writePool, readPool);
+    }
+
     public boolean isConnected() {
-        return (connection != null);
+        return writePool != null && !writePool.isClosed() && readPool != null && !readPool.isClosed();
     }
 
     public void disconnect() {
+        // Let queued writes finish before the pools go away
+        writeExecutor.shutdown();
+        executor.shutdown();
+
         try {
-            if (connection != null)
-                connection.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
+            if (!writeExecutor.awaitTermination(10, TimeUnit.SECONDS))
+                writeExecutor.shutdownNow();
+
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS))
+                executor.shutdownNow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+
+        closePools();
     }
 
-    @SuppressWarnings({"rawtypes", "unchecked"})
-    public void onUpdate(@NotNull @Language("SQL") final String statement, Object... preparedArgs) {
-        if (isConnected()) {
-            new FutureTask(new Runnable() {
-                PreparedStatement preparedStatement;
+    /**
+     * Closes the pools, also if only one of them was created
+     * <p>
+     * The fields keep the closed pools, so late callers get an SQLException instead of a NullPointerException.
+     */
+    private void closePools() {
+        statementCache.clear();
 
-                public void run() {
-                    try {
-                        this.preparedStatement = connection.prepareStatement(statement);
+        if (readPool != null && readPool != writePool)
+            readPool.close();
 
-                        for (int i = 0; i < preparedArgs.length; i++) {
-                            this.preparedStatement.setObject(i + 1, preparedArgs[i]);
-                        }
+        if (writePool != null)
+            writePool.close();
+    }
 
-                        this.preparedStatement.executeUpdate();
-                        this.preparedStatement.close();
-                    } catch (SQLException throwable) {
-                        throwable.printStackTrace();
-                    }
-                }
-            }, null).run();
+    public void onUpdate(@NotNull @Language("SQL") final String statement, Object... preparedArgs) {
+        if (isConnected()) {
+            long started = System.nanoTime();
+            try (Connection connection = writePool.getConnection();
+                 StatementCache.Lease lease = prepare(connection, statement, preparedArgs)) {
+                lease.statement().executeUpdate();
+            } catch (SQLException throwable) {
+                throwable.printStackTrace();
+            } finally {
+                Keklist.getStats().recordDatabase(KeklistStats.DbOperation.UPDATE, System.nanoTime() - started);
+            }
         } else {
             connect();
-            onUpdate(statement, preparedArgs);
+
+            if (isConnected())
+                onUpdate(statement, preparedArgs);
         }
     }
 
+    /**
+     * Runs a query on a pooled connection
+     * <p>
+     * The returned set is detached from the database. The connection is back in the pool
+     * before this method returns, so the result does not need to be closed.
+     *
+     * @param query        The SQL query
+     * @param preparedArgs Values for the placeholders
+     * @return The rows or null if the query failed
+     * @deprecated Use the repositories or {@link #query(String, RowMapper, Object...)}, they map the rows and report failures
+     */
     @Nullable
+    @Deprecated
     public ResultSet onQuery(@NotNull @Language("SQL") final String query, Object... preparedArgs) {
         if (isConnected()) {
+            long started = System.nanoTime();
+            try (Connection connection = readPool.getConnection();
+                 StatementCache.Lease lease = prepare(connection, query, preparedArgs)) {
+                try (ResultSet rs = lease.statement().executeQuery()) {
+                    CachedRowSet rowSet = getRowSetFactory().createCachedRowSet();
+                    rowSet.populate(rs);
+                    return rowSet;
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            } finally {
+                Keklist.getStats().recordDatabase(KeklistStats.DbOperation.QUERY, System.nanoTime() - started);
+            }
+        } else {
+            connect();
+
+            if (isConnected())
+                return onQuery(query, preparedArgs);
+        }
+        return null;
+    }
+
+    /**
+     * Runs a query and maps every row
+     * <p>
+     * Blocks until the database answered, use {@link #queryAsync(String, RowMapper, Object...)} on the main thread.
+     *
+     * @param query        The SQL query
+     * @param mapper       Maps a single row
+     * @param preparedArgs Values for the placeholders
+     * @return The mapped rows
+     * @throws SQLException If the query failed or no connection could be made
+     */
+    @NotNull
+    public <T> List<T> query(@NotNull @Language("SQL") final String query, @NotNull RowMapper<T> mapper, Object... preparedArgs) throws SQLException {
+        ensureConnected();
+
+        long started = System.nanoTime();
+        try (Connection connection = readPool.getConnection();
+             StatementCache.Lease lease = prepare(connection, query, preparedArgs);
+             ResultSet rs = lease.statement().executeQuery()) {
+            List<T> rows = new ArrayList<>();
+
+            while (rs.next())
+                rows.add(mapper.map(rs));
+
+            return rows;
+        } finally {
+            Keklist.getStats().recordDatabase(KeklistStats.DbOperation.QUERY, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Runs a query and maps the first row
+     *
+     * @param query        The SQL query
+     * @param mapper       Maps a single row
+     * @param preparedArgs Values for the placeholders
+     * @return The first mapped row or empty if there is none
+     * @throws SQLException If the query failed or no connection could be made
+     */
+    @NotNull
+    public <T> Optional<T> queryFirst(@NotNull @Language("SQL") final String query, @NotNull RowMapper<T> mapper, Object... preparedArgs) throws SQLException {
+        ensureConnected();
+
+        long started = System.nanoTime();
+        try (Connection connection = readPool.getConnection();
+             StatementCache.Lease lease = prepare(connection, query, preparedArgs);
+             ResultSet rs = lease.statement().executeQuery()) {
+            return rs.next() ? Optional.ofNullable(mapper.map(rs)) : Optional.empty();
+        } finally {
+            Keklist.getStats().recordDatabase(KeklistStats.DbOperation.QUERY, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Runs an insert, update or delete
+     *
+     * @param statement    The SQL statement
+     * @param preparedArgs Values for the placeholders
+     * @return The number of changed rows
+     * @throws SQLException If the statement failed or no connection could be made
+     */
+    public int update(@NotNull @Language("SQL") final String statement, Object... preparedArgs) throws SQLException {
+        ensureConnected();
+
+        long started = System.nanoTime();
+        try (Connection connection = writePool.getConnection();
+             StatementCache.Lease lease = prepare(connection, statement, preparedArgs)) {
+            return lease.statement().executeUpdate();
+        } finally {
+            Keklist.getStats().recordDatabase(KeklistStats.DbOperation.UPDATE, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Async version of {@link #query(String, RowMapper, Object...)}
+     * <p>
+     * The future completes on a database thread, hop back with the scheduler before touching the world.
+     */
+    @NotNull
+    public <T> CompletableFuture<List<T>> queryAsync(@NotNull @Language("SQL") final String query, @NotNull RowMapper<T> mapper, Object... preparedArgs) {
+        return supply(() -> query(query, mapper, preparedArgs), executor);
+    }
+
+    /**
+     * Async version of {@link #queryFirst(String, RowMapper, Object...)}
+     */
+    @NotNull
+    public <T> CompletableFuture<Optional<T>> queryFirstAsync(@NotNull @Language("SQL") final String query, @NotNull RowMapper<T> mapper, Object... preparedArgs) {
+        return supply(() -> queryFirst(query, mapper, preparedArgs), executor);
+    }
+
+    /**
+     * Async version of {@link #update(String, Object...)}
+     * <p>
+     * Writes run one after another in the order they were submitted.
+     * Failures are logged, the future still completes exceptionally for callers that care.
+     */
+    @NotNull
+    public CompletableFuture<Integer> updateAsync(@NotNull @Language("SQL") final String statement, Object... preparedArgs) {
+        return supply(() -> update(statement, preparedArgs), writeExecutor).whenComplete((rows, throwable) -> {
+            if (throwable != null)
+                throwable.printStackTrace();
+        });
+    }
+
+    /**
+     * Runs several statements as JDBC batches inside one transaction
+     * <p>
+     * The batches are executed in the given order. If any row fails, the whole transaction is rolled back.
+     * Like {@link #updateAsync(String, Object...)} this is queued on the database writer and failures are logged.
+     *
+     * @param batches The statements and their rows
+     * @return The number of changed rows, if the driver reports them
+     */
+    @NotNull
+    public CompletableFuture<Integer> batchAsync(@NotNull List<Batch> batches) {
+        return supply(() -> batch(batches), writeExecutor).whenComplete((rows, throwable) -> {
+            if (throwable != null)
+                throwable.printStackTrace();
+        });
+    }
+
+    private int batch(@NotNull List<Batch> batches) throws SQLException {
+        ensureConnected();
+
+        long started = System.nanoTime();
+        try (Connection connection = writePool.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
             try {
-                FutureTask<ResultSet> task = new FutureTask<>(new Callable<>() {
-                    PreparedStatement ps;
+                int changed = 0;
 
-                    public ResultSet call() throws Exception {
-                        this.ps = connection.prepareStatement(query);
+                for (Batch batch : batches) {
+                    if (batch.rows().isEmpty())
+                        continue;
 
-                        for (int i = 0; i < preparedArgs.length; i++) {
-                            this.ps.setObject(i + 1, preparedArgs[i]);
+                    // Batches are one-off, no need to keep them in the statement cache
+                    try (PreparedStatement statement = connection.prepareStatement(batch.statement())) {
+                        int pending = 0;
+
+                        for (Object[] row : batch.rows()) {
+                            for (int i = 0; i < row.length; i++) {
+                                statement.setObject(i + 1, row[i]);
+                            }
+                            statement.addBatch();
+
+                            if (++pending == BATCH_SIZE) {
+                                changed += sum(statement.executeBatch());
+                                pending = 0;
+                            }
                         }
 
-                        return this.ps.executeQuery();
+                        if (pending > 0)
+                            changed += sum(statement.executeBatch());
                     }
-                });
+                }
 
-                task.run();
-                return task.get();
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
+                connection.commit();
+                return changed;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
             }
-        } else {
-            connect();
-            return onQuery(query);
+        } finally {
+            Keklist.getStats().recordDatabase(KeklistStats.DbOperation.BATCH, System.nanoTime() - started);
         }
-        return null;
+    }
+
+    private static int sum(int[] counts) {
+        int sum = 0;
+        for (int count : counts) {
+            // Drivers may answer with SUCCESS_NO_INFO instead of a row count
+            if (count > 0)
+                sum += count;
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the insert keyword that skips rows which already exist
+     * <p>
+     * Other servers sharing the database may have added a row since the cache was loaded,
+     * a single duplicate must not roll back a whole batch.
+     *
+     * @return INSERT OR IGNORE for SQLite, INSERT IGNORE for MariaDB
+     */
+    @NotNull
+    public String insertIgnore() {
+        return type == DBType.SQLITE ? "INSERT OR IGNORE" : "INSERT IGNORE";
+    }
+
+    /**
+     * Returns the update keyword that skips rows which would break a unique key
+     *
+     * @return UPDATE OR IGNORE for SQLite, UPDATE IGNORE for MariaDB
+     */
+    @NotNull
+    public String updateIgnore() {
+        return type == DBType.SQLITE ? "UPDATE OR IGNORE" : "UPDATE IGNORE";
+    }
+
+    /**
+     * Returns the name a listed player keeps when a new player takes over their name
+     *
+     * @param name The taken name
+     * @return The name with " (Old Name)" or null if that does not fit the name column
+     */
+    @Nullable
+    public static String oldName(@NotNull String name) {
+        String oldName = name + " (Old Name)";
+        return oldName.length() <= NAME_LENGTH ? oldName : null;
+    }
+
+    @NotNull
+    private static <T> CompletableFuture<T> supply(@NotNull Callable<T> callable, @NotNull Executor executor) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(callable.call());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    @NotNull
+    private StatementCache.Lease prepare(@NotNull Connection connection, @NotNull String sql, Object... preparedArgs) throws SQLException {
+        StatementCache.Lease lease = statementCache.prepare(connection, sql);
+
+        try {
+            for (int i = 0; i < preparedArgs.length; i++) {
+                lease.statement().setObject(i + 1, preparedArgs[i]);
+            }
+        } catch (SQLException e) {
+            lease.close();
+            throw e;
+        }
+
+        return lease;
+    }
+
+    private void ensureConnected() throws SQLException {
+        if (isConnected())
+            return;
+
+        synchronized (this) {
+            if (!isConnected())
+                connect();
+        }
+
+        if (!isConnected())
+            throw new SQLException("Not connected to the database");
+    }
+
+    private static synchronized RowSetFactory getRowSetFactory() throws SQLException {
+        if (rowSetFactory == null)
+            rowSetFactory = RowSetProvider.newFactory();
+
+        return rowSetFactory;
     }
 
     private void createTables() {
         onUpdate("CREATE TABLE IF NOT EXISTS whitelist (uuid VARCHAR(36) PRIMARY KEY, name VARCHAR(16) UNIQUE, byPlayer VARCHAR(16), unix BIGINT(13))");
         onUpdate("CREATE TABLE IF NOT EXISTS whitelistIp (ip VARCHAR(39) PRIMARY KEY, byPlayer VARCHAR(16), unix BIGINT(13))");
+        onUpdate("CREATE TABLE IF NOT EXISTS whitelistRange (cidr VARCHAR(43) PRIMARY KEY, byPlayer VARCHAR(16), unix BIGINT(13))");
         onUpdate("CREATE TABLE IF NOT EXISTS whitelistDomain (domain VARCHAR(253) PRIMARY KEY, byPlayer VARCHAR(16), unix BIGINT(13))");
 
         onUpdate("CREATE TABLE IF NOT EXISTS blacklist (uuid VARCHAR(36) PRIMARY KEY, name VARCHAR(16) UNIQUE, byPlayer VARCHAR(16), unix BIGINT(13), reason VARCHAR(1500) DEFAULT 'No reason given')");
         onUpdate("CREATE TABLE IF NOT EXISTS blacklistIp (ip VARCHAR(39) PRIMARY KEY, byPlayer VARCHAR(16), unix BIGINT(13), reason VARCHAR(1500) DEFAULT 'No reason given')");
+        onUpdate("CREATE TABLE IF NOT EXISTS blacklistRange (cidr VARCHAR(43) PRIMARY KEY, byPlayer VARCHAR(16), unix BIGINT(13), reason VARCHAR(1500) DEFAULT 'No reason given')");
         onUpdate("CREATE TABLE IF NOT EXISTS blacklistMotd (ip VARCHAR(39) PRIMARY KEY, byPlayer VARCHAR(16), unix BIGINT(13))");
+
+        onUpdate("CREATE TABLE IF NOT EXISTS profileCache (lookup VARCHAR(64) PRIMARY KEY, uuid VARCHAR(36), name VARCHAR(32), unix BIGINT(13))");
+        onUpdate("CREATE TABLE IF NOT EXISTS skinCache (uuid VARCHAR(36) PRIMARY KEY, texture TEXT, signature TEXT, unix BIGINT(13))");
+    }
+
+    /**
+     * A statement and the placeholder values for each of its executions
+     *
+     * @param statement The SQL statement
+     * @param rows      One array of placeholder values per execution
+     */
+    public record Batch(@NotNull @Language("SQL") String statement, @NotNull List<Object[]> rows) {
     }
 
     /**
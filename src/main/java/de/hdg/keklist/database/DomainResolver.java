@@ -0,0 +1,141 @@
+package de.hdg.keklist.database;
+
+import de.hdg.keklist.Keklist;
+import de.hdg.keklist.database.repository.WhitelistRepository;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the whitelisted domains in the background
+ * <p>
+ * Domains are usually dynamic DNS names of players without a static IP. Resolving them while a player
+ * logs in means one blocking DNS lookup per domain, so instead every domain is resolved again by
+ * {@link #refresh()} and the login check only looks up the address in a reverse index.
+ * <p>
+ * If a domain can't be resolved, its last known addresses are kept until the next refresh. Lookups run on a few
+ * threads of their own, so a slow DNS server never holds up the database.
+ */
+public class DomainResolver {
+
+    private static final int THREADS = 4;
+
+    private final Set<String> domains = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<String>> addresses = new ConcurrentHashMap<>();
+    private volatile Map<String, String> domainsByAddress = Map.of();
+    private final ExecutorService executor;
+
+    public DomainResolver() {
+        AtomicInteger id = new AtomicInteger();
+
+        this.executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "Keklist-DNS-" + id.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads the domains from the database and resolves all of them again
+     * <p>
+     * Blocks until every lookup finished, call this off the main thread.
+     */
+    public void refresh() {
+        List<String> loaded;
+
+        try {
+            loaded = Keklist.getDatabase().getWhitelist().findAllDomains().stream().map(WhitelistRepository.DomainEntry::domain).toList();
+        } catch (Exception e) {
+            Keklist.getInstance().getLogger().severe(Keklist.getTranslations().get("database.cache-fail", "whitelistDomain"));
+            e.printStackTrace();
+            return;
+        }
+
+        domains.addAll(loaded);
+        domains.retainAll(Set.copyOf(loaded));
+        addresses.keySet().retainAll(Set.copyOf(loaded));
+
+        // Lookups are independent, a slow DNS server for one domain should not hold up the others
+        CompletableFuture.allOf(loaded.stream()
+                .map(domain -> CompletableFuture.runAsync(() -> resolve(domain), executor))
+                .toArray(CompletableFuture[]::new)).exceptionally(throwable -> null).join();
+
+        rebuild();
+    }
+
+    /**
+     * Resolves a newly whitelisted domain
+     *
+     * @param domain The domain
+     */
+    public void add(@NotNull String domain) {
+        domains.add(domain);
+
+        CompletableFuture.runAsync(() -> {
+            resolve(domain);
+            rebuild();
+        }, executor);
+    }
+
+    public void remove(@NotNull String domain) {
+        domains.remove(domain);
+        addresses.remove(domain);
+        rebuild();
+    }
+
+    /**
+     * @return Every whitelisted domain, resolved or not
+     */
+    @NotNull
+    public Set<String> getDomains() {
+        return Collections.unmodifiableSet(domains);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Looks up which whitelisted domain points to an address
+     *
+     * @param address The address of the player
+     * @return The domain or null if no whitelisted domain resolved to the address
+     */
+    @Nullable
+    public String match(@NotNull InetAddress address) {
+        return domainsByAddress.get(address.getHostAddress());
+    }
+
+    private void resolve(@NotNull String domain) {
+        try {
+            Set<String> resolved = Arrays.stream(InetAddress.getAllByName(domain)).map(InetAddress::getHostAddress).collect(Collectors.toUnmodifiableSet());
+            // The domain may have been removed during the lookup, it must not come back
+            addresses.compute(domain, (key, old) -> domains.contains(domain) ? resolved : null);
+        } catch (UnknownHostException e) {
+            Keklist.getInstance().getLogger().warning(Keklist.getTranslations().get("whitelist.domain-resolve-fail", domain));
+        }
+    }
+
+    private synchronized void rebuild() {
+        Map<String, String> index = new HashMap<>();
+        addresses.forEach((domain, resolved) -> {
+            if (domains.contains(domain))
+                resolved.forEach(address -> index.putIfAbsent(address, domain));
+        });
+        domainsByAddress = Map.copyOf(index);
+    }
+}
@@ -0,0 +1,479 @@
+package de.hdg.keklist.database;
+
+import de.hdg.keklist.Keklist;
+import de.hdg.keklist.database.repository.BlacklistRepository;
+import de.hdg.keklist.database.repository.MotdBlacklistRepository;
+import de.hdg.keklist.database.repository.WhitelistRepository;
+import de.hdg.keklist.util.CountingBloomFilter;
+import de.hdg.keklist.util.IpRange;
+import de.hdg.keklist.util.IpRangeTrie;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory copy of the black- and whitelist tables, including the MOTD blacklist
+ * <p>
+ * The login and server list ping checks only read from here, so players never wait for the database.
+ * IP ranges are additionally kept in a {@link IpRangeTrie} for longest-prefix matches, and the blacklists are
+ * fronted by a {@link CountingBloomFilter} so the common "not listed" answer needs no map lookup.
+ * Every write done by the plugin updates the cache right after the database, and
+ * {@link #load()} reloads everything to pick up changes made by other servers sharing the same MariaDB.
+ * Keys changed by the plugin while a list is loading are newer than the loaded rows, so the load leaves them alone.
+ * <p>
+ * {@link ChangeListener}s are told about every entry which was added or removed, no matter where the change came from.
+ * Every list has a lock, which is held while the list changes and its listeners are called.
+ */
+public class ListCache {
+
+    private final Map<ListType, Map<String, Entry>> entries = new EnumMap<>(ListType.class);
+    private final Map<ListType, IpRangeTrie<String>> ranges = new EnumMap<>(ListType.class);
+    private final Map<ListType, CountingBloomFilter> filters = new EnumMap<>(ListType.class);
+    private final Map<ListType, Object> locks = new EnumMap<>(ListType.class);
+    // Player name to uuid of the uuid lists, guarded by the lock of the list like the entries
+    private final Map<ListType, Map<String, String>> keysByName = new EnumMap<>(ListType.class);
+    // Keys changed while a list is loading, only present during the load, guarded by the lock of the list
+    private final Map<ListType, Set<String>> changedWhileLoading = new ConcurrentHashMap<>();
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public ListCache() {
+        double fpp = Keklist.getInstance().getConfig().getDouble("blacklist.bloom-filter-fpp");
+
+        for (ListType type : ListType.values()) {
+            entries.put(type, new ConcurrentHashMap<>());
+            locks.put(type, new Object());
+
+            if (type.hasName())
+                keysByName.put(type, new ConcurrentHashMap<>());
+
+            if (type.isRange())
+                ranges.put(type, new IpRangeTrie<>());
+
+            // Nearly every connection is not blacklisted, the filter answers that without touching the map
+            if (fpp > 0 && fpp < 1 && (type == ListType.BLACKLIST || type == ListType.BLACKLIST_IP))
+                filters.put(type, new CountingBloomFilter(1024, fpp));
+        }
+    }
+
+    /**
+     * (Re)loads every list from the database
+     * <p>
+     * Blocks, loads never run at the same time.
+     */
+    public synchronized void load() {
+        DB db = Keklist.getDatabase();
+
+        replace(ListType.BLACKLIST, () -> db.getBlacklist().findAll().stream()
+                .collect(Collectors.toMap(entry -> entry.uuid().toString(), entry -> new Entry(entry.name(), entry.byPlayer(), entry.unix()))));
+        replace(ListType.BLACKLIST_IP, () -> db.getBlacklist().findAllIps().stream()
+                .collect(Collectors.toMap(BlacklistRepository.IpEntry::ip, entry -> new Entry(null, entry.byPlayer(), entry.unix()))));
+        replace(ListType.WHITELIST, () -> db.getWhitelist().findAll().stream()
+                .collect(Collectors.toMap(entry -> entry.uuid().toString(), entry -> new Entry(entry.name(), entry.byPlayer(), entry.unix()))));
+        replace(ListType.WHITELIST_IP, () -> db.getWhitelist().findAllIps().stream()
+                .collect(Collectors.toMap(WhitelistRepository.IpEntry::ip, entry -> new Entry(null, entry.byPlayer(), entry.unix()))));
+        replace(ListType.BLACKLIST_RANGE, () -> db.getBlacklist().findAllRanges().stream()
+                .collect(Collectors.toMap(BlacklistRepository.RangeEntry::cidr, entry -> new Entry(null, entry.byPlayer(), entry.unix()))));
+        replace(ListType.WHITELIST_RANGE, () -> db.getWhitelist().findAllRanges().stream()
+                .collect(Collectors.toMap(WhitelistRepository.RangeEntry::cidr, entry -> new Entry(null, entry.byPlayer(), entry.unix()))));
+        replace(ListType.BLACKLIST_MOTD, () -> db.getMotdBlacklist().findAll().stream()
+                .collect(Collectors.toMap(MotdBlacklistRepository.Entry::ip, entry -> new Entry(null, entry.byPlayer(), entry.unix()))));
+    }
+
+    private void replace(@NotNull ListType type, @NotNull Callable<Map<String, Entry>> loader) {
+        Object lock = locks.get(type);
+        synchronized (lock) {
+            changedWhileLoading.put(type, new HashSet<>());
+        }
+
+        Map<String, Entry> loaded;
+
+        try {
+            loaded = loader.call();
+        } catch (Exception e) {
+            synchronized (lock) {
+                changedWhileLoading.remove(type);
+            }
+
+            Keklist.getInstance().getLogger().severe(Keklist.getTranslations().get("database.cache-fail", type.getTable()));
+            e.printStackTrace();
+            return;
+        }
+
+        synchronized (lock) {
+            Set<String> changed = changedWhileLoading.remove(type);
+            Map<String, Entry> current = entries.get(type);
+            List<String> removed = new ArrayList<>();
+            List<String> added = new ArrayList<>();
+
+            current.keySet().removeIf(key -> {
+                if (loaded.containsKey(key) || changed.contains(key))
+                    return false;
+
+                removed.add(key);
+                return true;
+            });
+
+            loaded.forEach((key, entry) -> {
+                if (!changed.contains(key) && current.put(key, entry) == null)
+                    added.add(key);
+            });
+
+            Map<String, String> names = keysByName.get(type);
+            if (names != null) {
+                names.clear();
+                current.forEach((key, entry) -> {
+                    if (entry.name() != null)
+                        names.put(entry.name(), key);
+                });
+            }
+
+            CountingBloomFilter filter = filters.get(type);
+            if (filter != null)
+                filter.rebuild(current.keySet());
+
+            if (type.isRange()) {
+                Map<IpRange, String> parsed = new HashMap<>();
+                current.keySet().forEach(cidr -> {
+                    IpRange range = IpRange.parse(cidr);
+                    if (range != null)
+                        parsed.put(range, cidr);
+                });
+                ranges.get(type).replaceAll(parsed);
+            }
+
+            removed.forEach(key -> listeners.forEach(listener -> listener.onRemove(type, key)));
+            added.forEach(key -> listeners.forEach(listener -> listener.onAdd(type, key)));
+        }
+    }
+
+    /**
+     * Registers a listener for changes of the cached lists
+     *
+     * @param listener The listener
+     */
+    public void addListener(@NotNull ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public boolean isBlacklisted(@NotNull UUID uuid) {
+        return contains(ListType.BLACKLIST, uuid.toString());
+    }
+
+    public boolean isBlacklisted(@NotNull String ip) {
+        return contains(ListType.BLACKLIST_IP, ip);
+    }
+
+    public boolean isMotdBlacklisted(@NotNull String ip) {
+        return contains(ListType.BLACKLIST_MOTD, ip);
+    }
+
+    public boolean isWhitelisted(@NotNull UUID uuid) {
+        return contains(ListType.WHITELIST, uuid.toString());
+    }
+
+    public boolean isWhitelisted(@NotNull String ip) {
+        return contains(ListType.WHITELIST_IP, ip);
+    }
+
+    /**
+     * Finds the most specific range containing an address
+     *
+     * @param type    Either {@link ListType#BLACKLIST_RANGE} or {@link ListType#WHITELIST_RANGE}
+     * @param address The address to look up
+     * @return The CIDR of the matching range or null if no range contains the address
+     */
+    @Nullable
+    public String matchRange(@NotNull ListType type, @NotNull InetAddress address) {
+        return ranges.get(type).match(address);
+    }
+
+    /**
+     * Looks up an address, first by the exact ip and then by the ranges of the list
+     *
+     * @param exact   Either {@link ListType#BLACKLIST_IP} or {@link ListType#WHITELIST_IP}
+     * @param range   The range list belonging to it
+     * @param address The address to look up
+     * @return The matching entry or null if the address is not listed
+     */
+    @Nullable
+    public Entry getIp(@NotNull ListType exact, @NotNull ListType range, @NotNull InetAddress address) {
+        Entry entry = get(exact, address.getHostAddress());
+        if (entry != null)
+            return entry;
+
+        String cidr = matchRange(range, address);
+        return cidr == null ? null : get(range, cidr);
+    }
+
+    public boolean contains(@NotNull ListType type, @NotNull String key) {
+        CountingBloomFilter filter = filters.get(type);
+        if (filter != null && !filter.mightContain(key))
+            return false;
+
+        return entries.get(type).containsKey(key);
+    }
+
+    @Nullable
+    public Entry get(@NotNull ListType type, @NotNull String key) {
+        CountingBloomFilter filter = filters.get(type);
+        if (filter != null && !filter.mightContain(key))
+            return null;
+
+        return entries.get(type).get(key);
+    }
+
+    /**
+     * Returns a snapshot of the keys of a list
+     *
+     * @param type The list
+     * @return UUIDs or IPs of the list
+     */
+    @NotNull
+    public Set<String> keys(@NotNull ListType type) {
+        return Set.copyOf(entries.get(type).keySet());
+    }
+
+    /**
+     * Returns the stored player names of an uuid list
+     *
+     * @param type Either {@link ListType#BLACKLIST} or {@link ListType#WHITELIST}
+     * @return Names of the list
+     */
+    @NotNull
+    public List<String> names(@NotNull ListType type) {
+        Map<String, String> names = keysByName.get(type);
+        return names == null ? List.of() : List.copyOf(names.keySet());
+    }
+
+    /**
+     * Finds the uuid stored with a player name
+     *
+     * @param type Either {@link ListType#BLACKLIST} or {@link ListType#WHITELIST}
+     * @param name The name stored in the database
+     * @return The uuid or null if no entry has the name
+     */
+    @Nullable
+    public String keyByName(@NotNull ListType type, @NotNull String name) {
+        Map<String, String> names = keysByName.get(type);
+        return names == null ? null : names.get(name);
+    }
+
+    public void add(@NotNull ListType type, @NotNull String key, @Nullable String name, @Nullable String byPlayer, long unix) {
+        synchronized (locks.get(type)) {
+            Entry previous = entries.get(type).put(key, new Entry(name, byPlayer, unix));
+            boolean added = previous == null;
+            indexName(type, key, previous == null ? null : previous.name(), name);
+            markChanged(type, key);
+
+            // The filter must see every change of the map in the same order, or counters of other keys would break
+            CountingBloomFilter filter = filters.get(type);
+            if (filter != null) {
+                if (added)
+                    filter.add(key);
+
+                if (filter.isOverCapacity())
+                    filter.rebuild(entries.get(type).keySet());
+            }
+
+            if (type.isRange()) {
+                IpRange range = IpRange.parse(key);
+                if (range != null)
+                    ranges.get(type).put(range, key);
+            }
+
+            if (added)
+                listeners.forEach(listener -> listener.onAdd(type, key));
+        }
+    }
+
+    /**
+     * Adds an entry which is being written to the database, and takes it out again if the write fails
+     * <p>
+     * Logins are answered from the cache, so an entry without a row must not grant or deny access until the next load.
+     *
+     * @param write The write which stores the entry
+     */
+    public void add(@NotNull CompletableFuture<?> write, @NotNull ListType type, @NotNull String key, @Nullable String name, @Nullable String byPlayer, long unix) {
+        add(type, key, name, byPlayer, unix);
+        removeIfFailed(write, type, List.of(key));
+    }
+
+    /**
+     * Takes entries out of the cache again if the write which stored them fails
+     *
+     * @param write The write which stores the entries
+     * @param type  The list
+     * @param keys  The keys of the entries
+     */
+    public void removeIfFailed(@NotNull CompletableFuture<?> write, @NotNull ListType type, @NotNull Collection<String> keys) {
+        write.whenComplete((result, throwable) -> {
+            if (throwable != null)
+                keys.forEach(key -> remove(type, key));
+        });
+    }
+
+    public void remove(@NotNull ListType type, @NotNull String key) {
+        synchronized (locks.get(type)) {
+            Entry previous = entries.get(type).remove(key);
+            boolean removed = previous != null;
+            if (removed)
+                indexName(type, key, previous.name(), null);
+            markChanged(type, key);
+
+            CountingBloomFilter filter = filters.get(type);
+            if (filter != null && removed)
+                filter.remove(key);
+
+            if (type.isRange()) {
+                IpRange range = IpRange.parse(key);
+                if (range != null)
+                    ranges.get(type).remove(range);
+            }
+
+            if (removed)
+                listeners.forEach(listener -> listener.onRemove(type, key));
+        }
+    }
+
+    /**
+     * Keeps a running load from undoing a change, call this while holding the lock of the list
+     */
+    private void markChanged(@NotNull ListType type, @NotNull String key) {
+        Set<String> changed = changedWhileLoading.get(type);
+        if (changed != null)
+            changed.add(key);
+    }
+
+    /**
+     * Moves a name in the name index, call this while holding the lock of the list
+     */
+    private void indexName(@NotNull ListType type, @NotNull String key, @Nullable String oldName, @Nullable String newName) {
+        Map<String, String> names = keysByName.get(type);
+        if (names == null)
+            return;
+
+        if (oldName != null && !oldName.equals(newName))
+            names.remove(oldName, key);
+
+        if (newName != null)
+            names.put(newName, key);
+    }
+
+    /**
+     * Removes an uuid entry by the stored player name
+     *
+     * @param type Either {@link ListType#BLACKLIST} or {@link ListType#WHITELIST}
+     * @param name The name stored in the database
+     */
+    public void removeByName(@NotNull ListType type, @NotNull String name) {
+        synchronized (locks.get(type)) {
+            String key = keyByName(type, name);
+            if (key != null)
+                remove(type, key);
+        }
+    }
+
+    /**
+     * Mirrors the "(Old Name)" rename done when a new player takes over a name
+     *
+     * @param type    Either {@link ListType#BLACKLIST} or {@link ListType#WHITELIST}
+     * @param oldName The currently stored name
+     * @param newName The new name
+     */
+    public void rename(@NotNull ListType type, @NotNull String oldName, @NotNull String newName) {
+        synchronized (locks.get(type)) {
+            String key = keyByName(type, oldName);
+            if (key != null)
+                setName(type, key, newName);
+        }
+    }
+
+    /**
+     * Changes the stored player name of an uuid entry
+     *
+     * @param type Either {@link ListType#BLACKLIST} or {@link ListType#WHITELIST}
+     * @param key  The uuid
+     * @param name The new name, null if the entry has none
+     */
+    public void setName(@NotNull ListType type, @NotNull String key, @Nullable String name) {
+        synchronized (locks.get(type)) {
+            Entry entry = entries.get(type).get(key);
+            if (entry == null)
+                return;
+
+            entries.get(type).put(key, new Entry(name, entry.byPlayer(), entry.unix()));
+            indexName(type, key, entry.name(), name);
+            markChanged(type, key);
+        }
+    }
+
+    /**
+     * A cached row of one of the lists
+     *
+     * @param name     Player name, null for ip entries
+     * @param byPlayer Who added the entry
+     * @param unix     When the entry was added
+     */
+    public record Entry(@Nullable String name, @Nullable String byPlayer, long unix) {
+    }
+
+    /**
+     * Gets told about changes of the cached lists
+     * <p>
+     * Called on the thread which changed the cache, right after the change and while the list is still locked, so
+     * the changes of a list arrive in order. Listeners must not block. Changes found by {@link #load()} are reported
+     * as well. Updating an existing entry is no change.
+     */
+    public interface ChangeListener {
+
+        void onAdd(@NotNull ListType type, @NotNull String key);
+
+        void onRemove(@NotNull ListType type, @NotNull String key);
+    }
+
+    /**
+     * Lists held by the cache and their backing tables
+     */
+    @Getter
+    public enum ListType {
+        BLACKLIST("blacklist", "uuid"),
+        BLACKLIST_IP("blacklistIp", "ip"),
+        WHITELIST("whitelist", "uuid"),
+        WHITELIST_IP("whitelistIp", "ip"),
+        BLACKLIST_RANGE("blacklistRange", "cidr"),
+        WHITELIST_RANGE("whitelistRange", "cidr"),
+        BLACKLIST_MOTD("blacklistMotd", "ip");
+
+        private final String table;
+        private final String keyColumn;
+
+        ListType(String table, String keyColumn) {
+            this.table = table;
+            this.keyColumn = keyColumn;
+        }
+
+        public boolean hasName() {
+            return keyColumn.equals("uuid");
+        }
+
+        public boolean isRange() {
+            return keyColumn.equals("cidr");
+        }
+    }
+}
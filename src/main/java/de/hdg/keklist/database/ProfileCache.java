@@ -0,0 +1,290 @@
+package de.hdg.keklist.database;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.hdg.keklist.Keklist;
+import de.hdg.keklist.KeklistStats;
+import de.hdg.keklist.database.repository.ProfileRepository;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caches name and uuid lookups against the Mojang and mcprofile.io APIs
+ * <p>
+ * Results are kept in a small in-memory LRU and in the profileCache table, so they survive restarts and
+ * are shared between servers on the same MariaDB. Players that don't exist are remembered as well,
+ * just for a shorter time. Identical lookups running at the same time share one request.
+ * <p>
+ * Requests to the APIs run on a few threads of their own, so slow answers never hold up the database.
+ * The futures complete on a database thread. A lookup fails with an {@link IOException} if the API could
+ * not be reached and with a {@link RateLimitedException} if it answered with 429, failures are not cached.
+ */
+public class ProfileCache {
+
+    private static final OkHttpClient client = new OkHttpClient();
+    private static final int HTTP_THREADS = 4;
+
+    private final Map<String, Lookup> memory;
+    private final Map<String, CompletableFuture<Optional<Profile>>> inFlight = new ConcurrentHashMap<>();
+    private final long ttl;
+    private final long negativeTtl;
+    private final ExecutorService httpExecutor;
+
+    public ProfileCache(@NotNull FileConfiguration config) {
+        int size = Math.max(1, config.getInt("profile-cache.size"));
+        this.ttl = config.getLong("profile-cache.ttl") * 1000L;
+        this.negativeTtl = config.getLong("profile-cache.negative-ttl") * 1000L;
+
+        this.memory = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Lookup> eldest) {
+                return size() > size;
+            }
+        });
+
+        AtomicInteger id = new AtomicInteger();
+        this.httpExecutor = Executors.newFixedThreadPool(HTTP_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "Keklist-HTTP-" + id.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Looks up a Java profile by its name
+     *
+     * @param name The name of the player, case does not matter
+     * @return The profile or an empty optional if no player has this name
+     */
+    @NotNull
+    public CompletableFuture<Optional<Profile>> byName(@NotNull String name) {
+        return lookup("java:name:" + name.toLowerCase(Locale.ROOT), () -> {
+            Request request = new Request.Builder().url("https://api.mojang.com/users/profiles/minecraft/" + name).build();
+            return fetch(request, "id", "name");
+        });
+    }
+
+    /**
+     * Looks up the current name of a Java profile
+     *
+     * @param uuid The uuid of the player
+     * @return The profile or an empty optional if no player has this uuid
+     */
+    @NotNull
+    public CompletableFuture<Optional<Profile>> byUuid(@NotNull UUID uuid) {
+        return lookup("java:uuid:" + uuid, () -> {
+            Request request = new Request.Builder().url("https://sessionserver.mojang.com/session/minecraft/profile/" + uuid).build();
+            return fetch(request, "id", "name");
+        });
+    }
+
+    /**
+     * Looks up the floodgate uuid of a Bedrock player through mcprofile.io
+     *
+     * @param gamertag The gamertag without the floodgate prefix
+     * @param apiKey   The mcprofile.io api key
+     * @return The profile with the plain gamertag as name or an empty optional if no player has this gamertag
+     */
+    @NotNull
+    public CompletableFuture<Optional<Profile>> byGamertag(@NotNull String gamertag, @NotNull String apiKey) {
+        return lookup("bedrock:" + gamertag.toLowerCase(Locale.ROOT), () -> {
+            Request request = new Request.Builder()
+                    .url("https://mcprofile.io/api/v1/bedrock/gamertag/" + gamertag)
+                    .header("x-api-key", apiKey)
+                    .build();
+            return fetch(request, "floodgateuid", "gamertag");
+        });
+    }
+
+    /**
+     * Stores a profile that is already known, e.g. from an authenticated login
+     *
+     * @param uuid The uuid of the player
+     * @param name The name of the player
+     */
+    public void remember(@NotNull UUID uuid, @NotNull String name) {
+        Profile profile = new Profile(uuid, name);
+        Lookup known = memory.get("java:uuid:" + uuid);
+
+        if (known != null && profile.equals(known.profile()) && isFresh(known))
+            return;
+
+        store("java:uuid:" + uuid, profile);
+        store("java:name:" + name.toLowerCase(Locale.ROOT), profile);
+    }
+
+    /**
+     * Deletes lookups from the database which would not be used anymore
+     */
+    public void prune() {
+        Keklist.getDatabase().getProfiles().removeOlderThan(System.currentTimeMillis() - Math.max(ttl, negativeTtl));
+    }
+
+    public void shutdown() {
+        httpExecutor.shutdownNow();
+    }
+
+    @NotNull
+    private CompletableFuture<Optional<Profile>> lookup(@NotNull String key, @NotNull Fetcher fetcher) {
+        Lookup cached = memory.get(key);
+        if (cached != null && isFresh(cached)) {
+            Keklist.getStats().recordCache(KeklistStats.Cache.PROFILE, true);
+            return CompletableFuture.completedFuture(Optional.ofNullable(cached.profile()));
+        }
+
+        CompletableFuture<Optional<Profile>> created = new CompletableFuture<>();
+        CompletableFuture<Optional<Profile>> running = inFlight.putIfAbsent(key, created);
+        if (running != null)
+            return running;
+
+        created.whenComplete((profile, throwable) -> inFlight.remove(key, created));
+        run(Keklist.getDatabase().getExecutor(), created, () -> load(key, fetcher, created));
+
+        return created;
+    }
+
+    /**
+     * Answers from the database if possible, otherwise asks the API and goes back to a database thread to store the answer
+     */
+    private void load(@NotNull String key, @NotNull Fetcher fetcher, @NotNull CompletableFuture<Optional<Profile>> result) throws Exception {
+        Optional<ProfileRepository.Entry> stored = Keklist.getDatabase().getProfiles().find(key);
+
+        if (stored.isPresent()) {
+            ProfileRepository.Entry entry = stored.get();
+            Lookup lookup = new Lookup(entry.uuid() == null || entry.name() == null ? null : new Profile(entry.uuid(), entry.name()), entry.unix());
+
+            if (isFresh(lookup)) {
+                memory.put(key, lookup);
+                Keklist.getStats().recordCache(KeklistStats.Cache.PROFILE, true);
+                result.complete(Optional.ofNullable(lookup.profile()));
+                return;
+            }
+        }
+
+        Keklist.getStats().recordCache(KeklistStats.Cache.PROFILE, false);
+        run(httpExecutor, result, () -> {
+            long started = System.nanoTime();
+            Profile profile;
+            try {
+                profile = fetcher.fetch();
+            } finally {
+                Keklist.getStats().recordLookup(KeklistStats.Cache.PROFILE, System.nanoTime() - started);
+            }
+
+            run(Keklist.getDatabase().getExecutor(), result, () -> {
+                store(key, profile);
+                result.complete(Optional.ofNullable(profile));
+            });
+        });
+    }
+
+    /**
+     * Runs a step of a lookup, the lookup fails if the step throws or can't be started
+     */
+    private static void run(@NotNull Executor executor, @NotNull CompletableFuture<?> result, @NotNull Step step) {
+        try {
+            executor.execute(() -> {
+                try {
+                    step.run();
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void store(@NotNull String key, @Nullable Profile profile) {
+        long now = System.currentTimeMillis();
+        memory.put(key, new Lookup(profile, now));
+        Keklist.getDatabase().getProfiles().save(key, profile == null ? null : profile.uuid(), profile == null ? null : profile.name(), now);
+    }
+
+    private boolean isFresh(@NotNull Lookup lookup) {
+        return System.currentTimeMillis() - lookup.unix() < (lookup.profile() == null ? negativeTtl : ttl);
+    }
+
+    @Nullable
+    private static Profile fetch(@NotNull Request request, @NotNull String uuidField, @NotNull String nameField) throws IOException {
+        try (Response response = client.newCall(request).execute()) {
+            if (response.code() == 429)
+                throw new RateLimitedException();
+
+            // Mojang answers with 204 or 404 for unknown players
+            if (response.code() == 204 || response.code() == 404)
+                return null;
+
+            if (!response.isSuccessful())
+                throw new IOException("HTTP " + response.code() + " from " + request.url().host());
+
+            JsonElement element = JsonParser.parseString(response.body().string());
+            if (!element.isJsonObject())
+                return null;
+
+            JsonObject object = element.getAsJsonObject();
+            if (!object.has(uuidField) || !object.has(nameField))
+                return null;
+
+            return new Profile(parseUuid(object.get(uuidField).getAsString()), object.get(nameField).getAsString());
+        }
+    }
+
+    @NotNull
+    private static UUID parseUuid(@NotNull String uuid) {
+        return UUID.fromString(uuid.replaceFirst(
+                "(\\p{XDigit}{8})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}+)",
+                "$1-$2-$3-$4-$5"));
+    }
+
+    /**
+     * A player profile
+     *
+     * @param uuid The uuid, for Bedrock players the floodgate uuid
+     * @param name The name, for Bedrock players the gamertag without prefix
+     */
+    public record Profile(@NotNull UUID uuid, @NotNull String name) {
+    }
+
+    /**
+     * Thrown if the API answered with 429 Too Many Requests
+     */
+    public static class RateLimitedException extends IOException {
+
+        public RateLimitedException() {
+            super("Rate limit reached");
+        }
+    }
+
+    private record Lookup(@Nullable Profile profile, long unix) {
+    }
+
+    @FunctionalInterface
+    private interface Fetcher {
+        @Nullable Profile fetch() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void run() throws Exception;
+    }
+}
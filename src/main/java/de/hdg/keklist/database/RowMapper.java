@@ -0,0 +1,19 @@
+package de.hdg.keklist.database;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a {@link ResultSet} to an object
+ * <p>
+ * The mapper must not move the cursor or close the set, {@link DB} takes care of both.
+ *
+ * @param <T> The mapped type
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    T map(@NotNull ResultSet rs) throws SQLException;
+}
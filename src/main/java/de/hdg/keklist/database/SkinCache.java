@@ -0,0 +1,301 @@
+package de.hdg.keklist.database;
+
+import com.destroystokyo.paper.profile.PlayerProfile;
+import com.destroystokyo.paper.profile.ProfileProperty;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import de.hdg.keklist.Keklist;
+import de.hdg.keklist.KeklistStats;
+import de.hdg.keklist.database.repository.SkinRepository;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.inventory.meta.SkullMeta;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caches the skin textures shown on the player heads of the GUIs
+ * <p>
+ * A head with only an owner makes the server look up the textures while the inventory is built, sometimes blocking.
+ * Heads get the textures from this cache instead, or stay plain until they are known. Textures live in a small
+ * in-memory LRU and in the skinCache table, and are refreshed from the session server in the background once they
+ * are older than the ttl. Until then the old textures are shown. Requests to the session server are spread out
+ * to stay below its rate limit.
+ * <p>
+ * Players who are added to a list are fetched right away, listed players bring their textures with them when they join.
+ */
+public class SkinCache implements ListCache.ChangeListener, Listener {
+
+    private static final OkHttpClient client = new OkHttpClient();
+    private static final int READS_PER_RUN = 256;
+
+    private final Map<UUID, Skin> memory;
+    private final long ttl;
+    private final double requestsPerSecond;
+
+    // Waiting to be read from the database and to be fetched from the session server, guarded by themselves
+    private final Set<UUID> toRead = new LinkedHashSet<>();
+    private final Set<UUID> toFetch = new LinkedHashSet<>();
+    private final ReentrantLock working = new ReentrantLock();
+    private double credit;
+
+    public SkinCache(@NotNull FileConfiguration config) {
+        int size = Math.max(1, config.getInt("skin-cache.size"));
+        this.ttl = config.getLong("skin-cache.ttl") * 1000L;
+        this.requestsPerSecond = Math.max(1, config.getInt("skin-cache.requests-per-minute")) / 60.0;
+
+        this.memory = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Skin> eldest) {
+                return size() > size;
+            }
+        });
+    }
+
+    /**
+     * Gives a head the skin of a player, never looks anything up
+     * <p>
+     * If the textures are not known yet, the head keeps the default skin and the textures are fetched for the next time.
+     *
+     * @param meta The meta of the head
+     * @param uuid The uuid of the player
+     * @param name The name of the player, null if it is not known
+     */
+    public void apply(@NotNull SkullMeta meta, @NotNull UUID uuid, @Nullable String name) {
+        Skin skin = memory.get(uuid);
+        Keklist.getStats().recordCache(KeklistStats.Cache.SKIN, skin != null);
+
+        if (skin == null || !isFresh(skin))
+            prefetch(uuid);
+
+        if (skin == null || skin.texture() == null)
+            return;
+
+        PlayerProfile profile = Bukkit.createProfile(uuid, name);
+        profile.setProperty(new ProfileProperty("textures", skin.texture(), skin.signature()));
+        meta.setPlayerProfile(profile);
+    }
+
+    /**
+     * Reads the textures of some players from the database into memory, e.g. before a page of heads is built
+     *
+     * @param uuids The players
+     * @return A future which completes on a database thread
+     */
+    @NotNull
+    public CompletableFuture<Void> load(@NotNull Collection<UUID> uuids) {
+        List<UUID> missing = uuids.stream().filter(uuid -> !memory.containsKey(uuid)).toList();
+        if (missing.isEmpty())
+            return CompletableFuture.completedFuture(null);
+
+        return CompletableFuture.runAsync(() -> missing.forEach(this::read), Keklist.getDatabase().getExecutor());
+    }
+
+    /**
+     * Makes sure the textures of a player are known soon, without waiting for them
+     */
+    public void prefetch(@NotNull UUID uuid) {
+        synchronized (toRead) {
+            toRead.add(uuid);
+        }
+    }
+
+    /**
+     * Reads queued players from the database and fetches what is missing or outdated from the session server
+     * <p>
+     * Blocks, call this off the main thread every second. A call while the previous one still runs does nothing.
+     */
+    public void work() {
+        if (!working.tryLock()) return;
+
+        try {
+            drain();
+        } finally {
+            working.unlock();
+        }
+    }
+
+    private void drain() {
+        List<UUID> reads;
+        synchronized (toRead) {
+            reads = toRead.stream().limit(READS_PER_RUN).toList();
+            reads.forEach(toRead::remove);
+        }
+
+        reads.forEach(uuid -> {
+            Skin known = memory.get(uuid);
+            if (known == null)
+                read(uuid);
+            else if (!isFresh(known))
+                queueFetch(uuid);
+        });
+
+        credit = Math.min(credit + requestsPerSecond, Math.max(1, requestsPerSecond));
+        while (credit >= 1) {
+            UUID uuid;
+            synchronized (toFetch) {
+                Iterator<UUID> iterator = toFetch.iterator();
+                if (!iterator.hasNext()) return;
+
+                uuid = iterator.next();
+                iterator.remove();
+            }
+
+            credit--;
+            long started = System.nanoTime();
+            try {
+                store(uuid, fetch(uuid));
+            } catch (IOException e) {
+                // The session server is unavailable or we were too fast, try again later
+                queueFetch(uuid);
+                credit = 0;
+                if (Keklist.isDebug())
+                    e.printStackTrace();
+            } finally {
+                Keklist.getStats().recordLookup(KeklistStats.Cache.SKIN, System.nanoTime() - started);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        UUID uuid = event.getPlayer().getUniqueId();
+
+        // Only listed players have a head in the GUIs
+        if (!Keklist.getListCache().isBlacklisted(uuid) && !Keklist.getListCache().isWhitelisted(uuid))
+            return;
+
+        Skin known = memory.get(uuid);
+
+        for (ProfileProperty property : event.getPlayer().getPlayerProfile().getProperties()) {
+            if (!property.getName().equals("textures")) continue;
+
+            if (known == null || !property.getValue().equals(known.texture()) || !isFresh(known))
+                store(uuid, new Skin(property.getValue(), property.getSignature(), System.currentTimeMillis()));
+            return;
+        }
+    }
+
+    @Override
+    public void onAdd(@NotNull ListCache.ListType type, @NotNull String key) {
+        if (type == ListCache.ListType.BLACKLIST || type == ListCache.ListType.WHITELIST)
+            parse(key).ifPresent(this::prefetch);
+    }
+
+    @Override
+    public void onRemove(@NotNull ListCache.ListType type, @NotNull String key) {
+        if (type != ListCache.ListType.BLACKLIST && type != ListCache.ListType.WHITELIST) return;
+
+        Optional<UUID> uuid = parse(key);
+        if (uuid.isEmpty() || Keklist.getListCache().isBlacklisted(uuid.get()) || Keklist.getListCache().isWhitelisted(uuid.get()))
+            return;
+
+        // Nobody shows this head anymore
+        memory.remove(uuid.get());
+        Keklist.getDatabase().getSkins().remove(uuid.get());
+    }
+
+    private void read(@NotNull UUID uuid) {
+        try {
+            Optional<SkinRepository.Entry> stored = Keklist.getDatabase().getSkins().find(uuid);
+
+            if (stored.isEmpty()) {
+                queueFetch(uuid);
+                return;
+            }
+
+            Skin skin = new Skin(stored.get().texture(), stored.get().signature(), stored.get().unix());
+            memory.put(uuid, skin);
+
+            if (!isFresh(skin))
+                queueFetch(uuid);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void queueFetch(@NotNull UUID uuid) {
+        synchronized (toFetch) {
+            toFetch.add(uuid);
+        }
+    }
+
+    private void store(@NotNull UUID uuid, @NotNull Skin skin) {
+        memory.put(uuid, skin);
+        Keklist.getDatabase().getSkins().save(uuid, skin.texture(), skin.signature(), skin.unix());
+    }
+
+    private boolean isFresh(@NotNull Skin skin) {
+        return System.currentTimeMillis() - skin.unix() < ttl;
+    }
+
+    @NotNull
+    private static Skin fetch(@NotNull UUID uuid) throws IOException {
+        Request request = new Request.Builder()
+                .url("https://sessionserver.mojang.com/session/minecraft/profile/" + uuid.toString().replace("-", "") + "?unsigned=false")
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            // Unknown players, e.g. Bedrock players, have no skin to fetch
+            if (response.code() == 204 || response.code() == 404)
+                return new Skin(null, null, System.currentTimeMillis());
+
+            if (!response.isSuccessful())
+                throw new IOException("HTTP " + response.code() + " from " + request.url().host());
+
+            JsonElement element = JsonParser.parseString(response.body().string());
+            if (element.isJsonObject() && element.getAsJsonObject().has("properties")) {
+                for (JsonElement property : element.getAsJsonObject().getAsJsonArray("properties")) {
+                    JsonObject object = property.getAsJsonObject();
+
+                    if (object.get("name").getAsString().equals("textures"))
+                        return new Skin(object.get("value").getAsString(), object.has("signature") ? object.get("signature").getAsString() : null, System.currentTimeMillis());
+                }
+            }
+
+            return new Skin(null, null, System.currentTimeMillis());
+        }
+    }
+
+    @NotNull
+    private static Optional<UUID> parse(@NotNull String key) {
+        try {
+            return Optional.of(UUID.fromString(key));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The textures of a player
+     *
+     * @param texture   The textures property or null if the player has none
+     * @param signature The signature of the property
+     * @param unix      When the textures were fetched
+     */
+    private record Skin(@Nullable String texture, @Nullable String signature, long unix) {
+    }
+}
@@ -0,0 +1,126 @@
+package de.hdg.keklist.database;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps prepared statements open per physical connection
+ * <p>
+ * The SQLite driver parses and plans every statement again on prepare. The plugin only uses a handful
+ * of fixed queries, so each connection keeps its most recently used statements around and evicts the
+ * least recently used one once the limit is reached.
+ * <p>
+ * Statements are prepared on the connection behind the pool proxy, otherwise the pool would close them
+ * when the connection is returned. A pooled connection is only used by one thread at a time, so the
+ * per-connection maps need no locking.
+ */
+public class StatementCache {
+
+    private final Map<Connection, Map<String, PreparedStatement>> connections = new ConcurrentHashMap<>();
+    private final int size;
+
+    public StatementCache(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Returns a prepared statement for the sql, reusing a cached one if possible
+     *
+     * @param connection A connection borrowed from the pool
+     * @param sql        The SQL statement
+     * @return A lease that must be closed after the statement and its results were used
+     * @throws SQLException If the statement could not be prepared
+     */
+    @NotNull
+    public Lease prepare(@NotNull Connection connection, @NotNull String sql) throws SQLException {
+        if (size <= 0)
+            return new Lease(connection.prepareStatement(sql), false);
+
+        Connection physical = connection.unwrap(Connection.class);
+        Map<String, PreparedStatement> statements = connections.get(physical);
+
+        if (statements == null) {
+            // The pool replaces connections from time to time, forget the ones it closed
+            connections.keySet().removeIf(StatementCache::isClosed);
+
+            statements = new LinkedHashMap<>(size, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= StatementCache.this.size)
+                        return false;
+
+                    try {
+                        eldest.getValue().close();
+                    } catch (SQLException ignored) {
+                    }
+                    return true;
+                }
+            };
+            connections.put(physical, statements);
+        }
+
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = physical.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+
+        return new Lease(statement, true);
+    }
+
+    /**
+     * Closes every cached statement
+     */
+    public void clear() {
+        connections.values().forEach(statements -> statements.values().forEach(statement -> {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }));
+        connections.clear();
+    }
+
+    private static boolean isClosed(@NotNull Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /**
+     * A statement handed out by the cache
+     * <p>
+     * Closing the lease resets cached statements for the next use and closes uncached ones.
+     */
+    public static class Lease implements AutoCloseable {
+
+        private final PreparedStatement statement;
+        private final boolean cached;
+
+        private Lease(@NotNull PreparedStatement statement, boolean cached) {
+            this.statement = statement;
+            this.cached = cached;
+        }
+
+        @NotNull
+        public PreparedStatement statement() {
+            return statement;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (cached)
+                statement.clearParameters();
+            else
+                statement.close();
+        }
+    }
+}
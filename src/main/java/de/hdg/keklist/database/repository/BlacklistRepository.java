@@ -0,0 +1,243 @@
+package de.hdg.keklist.database.repository;
+
+import de.hdg.keklist.database.DB;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Access to the blacklist, blacklistIp and blacklistRange tables
+ * <p>
+ * Reads block and should be called off the main thread, writes are queued on the database writer.
+ */
+public class BlacklistRepository {
+
+    private final DB db;
+
+    public BlacklistRepository(@NotNull DB db) {
+        this.db = db;
+    }
+
+    @NotNull
+    public Optional<Entry> find(@NotNull UUID uuid) throws SQLException {
+        return db.queryFirst("SELECT * FROM blacklist WHERE uuid = ?", Entry::map, uuid.toString());
+    }
+
+    @NotNull
+    public Optional<Entry> findByName(@NotNull String name) throws SQLException {
+        return db.queryFirst("SELECT * FROM blacklist WHERE name = ?", Entry::map, name);
+    }
+
+    @NotNull
+    public List<Entry> findAll() throws SQLException {
+        return db.query("SELECT * FROM blacklist", Entry::map);
+    }
+
+    /**
+     * Reads the players after a key, ordered by it
+     * <p>
+     * Players without a name are ordered by their uuid, see {@link Entry#displayName()}.
+     *
+     * @param after The last display name of the previous page or null for the first page
+     * @param limit Maximum number of rows
+     */
+    @NotNull
+    public CompletableFuture<List<Entry>> findPage(@Nullable String after, int limit) {
+        return db.queryAsync("SELECT * FROM blacklist WHERE COALESCE(name, uuid) > ? ORDER BY COALESCE(name, uuid) LIMIT ?", Entry::map, after == null ? "" : after, limit);
+    }
+
+    @NotNull
+    public Optional<IpEntry> findIp(@NotNull String ip) throws SQLException {
+        return db.queryFirst("SELECT * FROM blacklistIp WHERE ip = ?", IpEntry::map, ip);
+    }
+
+    @NotNull
+    public List<IpEntry> findAllIps() throws SQLException {
+        return db.query("SELECT * FROM blacklistIp", IpEntry::map);
+    }
+
+    /**
+     * Reads the ips after a key, ordered by it
+     *
+     * @param after The last ip of the previous page or null for the first page
+     * @param limit Maximum number of rows
+     */
+    @NotNull
+    public CompletableFuture<List<IpEntry>> findIpPage(@Nullable String after, int limit) {
+        return db.queryAsync("SELECT * FROM blacklistIp WHERE ip > ? ORDER BY ip LIMIT ?", IpEntry::map, after == null ? "" : after, limit);
+    }
+
+    @NotNull
+    public Optional<RangeEntry> findRange(@NotNull String cidr) throws SQLException {
+        return db.queryFirst("SELECT * FROM blacklistRange WHERE cidr = ?", RangeEntry::map, cidr);
+    }
+
+    @NotNull
+    public List<RangeEntry> findAllRanges() throws SQLException {
+        return db.query("SELECT * FROM blacklistRange", RangeEntry::map);
+    }
+
+    /**
+     * Adds a player to the blacklist
+     *
+     * @param reason The reason or null to keep the table default
+     */
+    @NotNull
+    public CompletableFuture<Integer> add(@NotNull UUID uuid, @Nullable String name, @NotNull String byPlayer, long unix, @Nullable String reason) {
+        if (reason == null)
+            return db.updateAsync("INSERT INTO blacklist (uuid, name, byPlayer, unix) VALUES (?, ?, ?, ?)", uuid.toString(), name, byPlayer, unix);
+
+        return db.updateAsync("INSERT INTO blacklist (uuid, name, byPlayer, unix, reason) VALUES (?, ?, ?, ?, ?)", uuid.toString(), name, byPlayer, unix, reason);
+    }
+
+    /**
+     * Adds many players in one transaction
+     * <p>
+     * Like the single add, a name already taken by another uuid is renamed to "(Old Name)" first.
+     * If that name is taken as well or does not fit the column, the other player keeps no name instead.
+     * Rows that already exist are skipped.
+     *
+     * @param players  UUIDs and their names, names may be null
+     * @param byPlayer Who added the entries
+     * @param unix     When the entries were added
+     * @param reason   The reason for all entries, null for the default
+     * @return The number of changed rows
+     */
+    @NotNull
+    public CompletableFuture<Integer> addAll(@NotNull Map<UUID, String> players, @NotNull String byPlayer, long unix, @Nullable String reason) {
+        List<Object[]> renames = new ArrayList<>();
+        List<Object[]> frees = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>(players.size());
+
+        players.forEach((uuid, name) -> {
+            if (name != null) {
+                String oldName = DB.oldName(name);
+                if (oldName != null)
+                    renames.add(new Object[]{oldName, name, uuid.toString()});
+                frees.add(new Object[]{name, uuid.toString()});
+            }
+            inserts.add(reason == null ? new Object[]{uuid.toString(), name, byPlayer, unix} : new Object[]{uuid.toString(), name, byPlayer, unix, reason});
+        });
+
+        String insert = reason == null
+                ? db.insertIgnore() + " INTO blacklist (uuid, name, byPlayer, unix) VALUES (?, ?, ?, ?)"
+                : db.insertIgnore() + " INTO blacklist (uuid, name, byPlayer, unix, reason) VALUES (?, ?, ?, ?, ?)";
+
+        return db.batchAsync(List.of(
+                new DB.Batch(db.updateIgnore() + " blacklist SET name = ? WHERE name = ? AND uuid <> ?", renames),
+                new DB.Batch("UPDATE blacklist SET name = NULL WHERE name = ? AND uuid <> ?", frees),
+                new DB.Batch(insert, inserts)));
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> rename(@NotNull String oldName, @NotNull String newName) {
+        return db.updateAsync("UPDATE blacklist SET name = ? WHERE name = ?", newName, oldName);
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> remove(@NotNull UUID uuid) {
+        return db.updateAsync("DELETE FROM blacklist WHERE uuid = ?", uuid.toString());
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> removeByName(@NotNull String name) {
+        return db.updateAsync("DELETE FROM blacklist WHERE name = ?", name);
+    }
+
+    /**
+     * Adds an ip to the blacklist
+     *
+     * @param reason The reason or null to keep the table default
+     */
+    @NotNull
+    public CompletableFuture<Integer> addIp(@NotNull String ip, @NotNull String byPlayer, long unix, @Nullable String reason) {
+        if (reason == null)
+            return db.updateAsync("INSERT INTO blacklistIp (ip, byPlayer, unix) VALUES (?, ?, ?)", ip, byPlayer, unix);
+
+        return db.updateAsync("INSERT INTO blacklistIp (ip, byPlayer, unix, reason) VALUES (?, ?, ?, ?)", ip, byPlayer, unix, reason);
+    }
+
+    /**
+     * Adds many ips in one transaction, rows that already exist are skipped
+     */
+    @NotNull
+    public CompletableFuture<Integer> addAllIps(@NotNull Collection<String> ips, @NotNull String byPlayer, long unix, @Nullable String reason) {
+        List<Object[]> inserts = ips.stream().map(ip -> reason == null ? new Object[]{ip, byPlayer, unix} : new Object[]{ip, byPlayer, unix, reason}).toList();
+        String insert = reason == null
+                ? db.insertIgnore() + " INTO blacklistIp (ip, byPlayer, unix) VALUES (?, ?, ?)"
+                : db.insertIgnore() + " INTO blacklistIp (ip, byPlayer, unix, reason) VALUES (?, ?, ?, ?)";
+
+        return db.batchAsync(List.of(new DB.Batch(insert, inserts)));
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> removeIp(@NotNull String ip) {
+        return db.updateAsync("DELETE FROM blacklistIp WHERE ip = ?", ip);
+    }
+
+    /**
+     * Adds an ip range in CIDR notation, it should be normalized by {@link de.hdg.keklist.util.IpRange}
+     */
+    @NotNull
+    public CompletableFuture<Integer> addRange(@NotNull String cidr, @NotNull String byPlayer, long unix, @Nullable String reason) {
+        if (reason == null)
+            return db.updateAsync("INSERT INTO blacklistRange (cidr, byPlayer, unix) VALUES (?, ?, ?)", cidr, byPlayer, unix);
+
+        return db.updateAsync("INSERT INTO blacklistRange (cidr, byPlayer, unix, reason) VALUES (?, ?, ?, ?)", cidr, byPlayer, unix, reason);
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> removeRange(@NotNull String cidr) {
+        return db.updateAsync("DELETE FROM blacklistRange WHERE cidr = ?", cidr);
+    }
+
+    /**
+     * A row of the blacklist table
+     */
+    public record Entry(@NotNull UUID uuid, @Nullable String name, @Nullable String byPlayer, long unix, @Nullable String reason) {
+
+        /**
+         * @return The name or the uuid if the player has no name
+         */
+        @NotNull
+        public String displayName() {
+            return name != null ? name : uuid.toString();
+        }
+
+        @NotNull
+        static Entry map(@NotNull ResultSet rs) throws SQLException {
+            return new Entry(UUID.fromString(rs.getString("uuid")), rs.getString("name"), rs.getString("byPlayer"), rs.getLong("unix"), rs.getString("reason"));
+        }
+    }
+
+    /**
+     * A row of the blacklistIp table
+     */
+    public record IpEntry(@NotNull String ip, @Nullable String byPlayer, long unix, @Nullable String reason) {
+
+        @NotNull
+        static IpEntry map(@NotNull ResultSet rs) throws SQLException {
+            return new IpEntry(rs.getString("ip"), rs.getString("byPlayer"), rs.getLong("unix"), rs.getString("reason"));
+        }
+    }
+
+    /**
+     * A row of the blacklistRange table
+     */
+    public record RangeEntry(@NotNull String cidr, @Nullable String byPlayer, long unix, @Nullable String reason) {
+
+        @NotNull
+        static RangeEntry map(@NotNull ResultSet rs) throws SQLException {
+            return new RangeEntry(rs.getString("cidr"), rs.getString("byPlayer"), rs.getLong("unix"), rs.getString("reason"));
+        }
+    }
+}
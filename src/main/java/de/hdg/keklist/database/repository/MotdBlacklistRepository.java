@@ -0,0 +1,67 @@
+package de.hdg.keklist.database.repository;
+
+import de.hdg.keklist.database.DB;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Access to the blacklistMotd table
+ * <p>
+ * Reads block and should be called off the main thread, writes are queued on the database writer.
+ */
+public class MotdBlacklistRepository {
+
+    private final DB db;
+
+    public MotdBlacklistRepository(@NotNull DB db) {
+        this.db = db;
+    }
+
+    @NotNull
+    public Optional<Entry> find(@NotNull String ip) throws SQLException {
+        return db.queryFirst("SELECT * FROM blacklistMotd WHERE ip = ?", Entry::map, ip);
+    }
+
+    @NotNull
+    public List<Entry> findAll() throws SQLException {
+        return db.query("SELECT * FROM blacklistMotd", Entry::map);
+    }
+
+    /**
+     * Reads the ips after a key, ordered by it
+     *
+     * @param after The last ip of the previous page or null for the first page
+     * @param limit Maximum number of rows
+     */
+    @NotNull
+    public CompletableFuture<List<Entry>> findPage(@Nullable String after, int limit) {
+        return db.queryAsync("SELECT * FROM blacklistMotd WHERE ip > ? ORDER BY ip LIMIT ?", Entry::map, after == null ? "" : after, limit);
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> add(@NotNull String ip, @NotNull String byPlayer, long unix) {
+        return db.updateAsync("INSERT INTO blacklistMotd (ip, byPlayer, unix) VALUES (?, ?, ?)", ip, byPlayer, unix);
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> remove(@NotNull String ip) {
+        return db.updateAsync("DELETE FROM blacklistMotd WHERE ip = ?", ip);
+    }
+
+    /**
+     * A row of the blacklistMotd table
+     */
+    public record Entry(@NotNull String ip, @Nullable String byPlayer, long unix) {
+
+        @NotNull
+        static Entry map(@NotNull ResultSet rs) throws SQLException {
+            return new Entry(rs.getString("ip"), rs.getString("byPlayer"), rs.getLong("unix"));
+        }
+    }
+}
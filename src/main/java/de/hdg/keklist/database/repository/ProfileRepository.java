@@ -0,0 +1,60 @@
+package de.hdg.keklist.database.repository;
+
+import de.hdg.keklist.database.DB;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Access to the profileCache table
+ * <p>
+ * Reads block and should be called off the main thread, writes are queued on the database writer.
+ */
+public class ProfileRepository {
+
+    private final DB db;
+
+    public ProfileRepository(@NotNull DB db) {
+        this.db = db;
+    }
+
+    @NotNull
+    public Optional<Entry> find(@NotNull String lookup) throws SQLException {
+        return db.queryFirst("SELECT * FROM profileCache WHERE lookup = ?", Entry::map, lookup);
+    }
+
+    /**
+     * Stores the result of a lookup, replacing an older one
+     *
+     * @param lookup The key of the lookup, like java:name:steve
+     * @param uuid   The found uuid, null if the profile does not exist
+     * @param name   The found name, null if the profile does not exist
+     * @param unix   When the lookup was done
+     */
+    @NotNull
+    public CompletableFuture<Integer> save(@NotNull String lookup, @Nullable UUID uuid, @Nullable String name, long unix) {
+        return db.updateAsync("REPLACE INTO profileCache (lookup, uuid, name, unix) VALUES (?, ?, ?, ?)", lookup, uuid == null ? null : uuid.toString(), name, unix);
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> removeOlderThan(long unix) {
+        return db.updateAsync("DELETE FROM profileCache WHERE unix < ?", unix);
+    }
+
+    /**
+     * A row of the profileCache table
+     */
+    public record Entry(@NotNull String lookup, @Nullable UUID uuid, @Nullable String name, long unix) {
+
+        @NotNull
+        static Entry map(@NotNull ResultSet rs) throws SQLException {
+            String uuid = rs.getString("uuid");
+            return new Entry(rs.getString("lookup"), uuid == null ? null : UUID.fromString(uuid), rs.getString("name"), rs.getLong("unix"));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package de.hdg.keklist.database.repository;
+
+import de.hdg.keklist.database.DB;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Access to the skinCache table
+ * <p>
+ * Reads block and should be called off the main thread, writes are queued on the database writer.
+ */
+public class SkinRepository {
+
+    private final DB db;
+
+    public SkinRepository(@NotNull DB db) {
+        this.db = db;
+    }
+
+    @NotNull
+    public Optional<Entry> find(@NotNull UUID uuid) throws SQLException {
+        return db.queryFirst("SELECT * FROM skinCache WHERE uuid = ?", Entry::map, uuid.toString());
+    }
+
+    /**
+     * Stores the textures of a player, replacing older ones
+     *
+     * @param uuid      The uuid of the player
+     * @param texture   The textures property, null if the player has none
+     * @param signature The signature of the property
+     * @param unix      When the textures were fetched
+     */
+    @NotNull
+    public CompletableFuture<Integer> save(@NotNull UUID uuid, @Nullable String texture, @Nullable String signature, long unix) {
+        return db.updateAsync("REPLACE INTO skinCache (uuid, texture, signature, unix) VALUES (?, ?, ?, ?)", uuid.toString(), texture, signature, unix);
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> remove(@NotNull UUID uuid) {
+        return db.updateAsync("DELETE FROM skinCache WHERE uuid = ?", uuid.toString());
+    }
+
+    /**
+     * A row of the skinCache table
+     */
+    public record Entry(@NotNull UUID uuid, @Nullable String texture, @Nullable String signature, long unix) {
+
+        @NotNull
+        static Entry map(@NotNull ResultSet rs) throws SQLException {
+            return new Entry(UUID.fromString(rs.getString("uuid")), rs.getString("texture"), rs.getString("signature"), rs.getLong("unix"));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package de.hdg.keklist.database.repository;
+
+import de.hdg.keklist.database.DB;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Access to the whitelist, whitelistIp, whitelistRange and whitelistDomain tables
+ * <p>
+ * Reads block and should be called off the main thread, writes are queued on the database writer.
+ */
+public class WhitelistRepository {
+
+    private final DB db;
+
+    public WhitelistRepository(@NotNull DB db) {
+        this.db = db;
+    }
+
+    @NotNull
+    public Optional<Entry> find(@NotNull UUID uuid) throws SQLException {
+        return db.queryFirst("SELECT * FROM whitelist WHERE uuid = ?", Entry::map, uuid.toString());
+    }
+
+    @NotNull
+    public Optional<Entry> findByName(@NotNull String name) throws SQLException {
+        return db.queryFirst("SELECT * FROM whitelist WHERE name = ?", Entry::map, name);
+    }
+
+    @NotNull
+    public List<Entry> findAll() throws SQLException {
+        return db.query("SELECT * FROM whitelist", Entry::map);
+    }
+
+    /**
+     * Reads the players after a key, ordered by it
+     * <p>
+     * Players without a name are ordered by their uuid, see {@link Entry#displayName()}.
+     *
+     * @param after The last display name of the previous page or null for the first page
+     * @param limit Maximum number of rows
+     */
+    @NotNull
+    public CompletableFuture<List<Entry>> findPage(@Nullable String after, int limit) {
+        return db.queryAsync("SELECT * FROM whitelist WHERE COALESCE(name, uuid) > ? ORDER BY COALESCE(name, uuid) LIMIT ?", Entry::map, after == null ? "" : after, limit);
+    }
+
+    @NotNull
+    public Optional<IpEntry> findIp(@NotNull String ip) throws SQLException {
+        return db.queryFirst("SELECT * FROM whitelistIp WHERE ip = ?", IpEntry::map, ip);
+    }
+
+    @NotNull
+    public List<IpEntry> findAllIps() throws SQLException {
+        return db.query("SELECT * FROM whitelistIp", IpEntry::map);
+    }
+
+    /**
+     * Reads the ips after a key, ordered by it
+     *
+     * @param after The last ip of the previous page or null for the first page
+     * @param limit Maximum number of rows
+     */
+    @NotNull
+    public CompletableFuture<List<IpEntry>> findIpPage(@Nullable String after, int limit) {
+        return db.queryAsync("SELECT * FROM whitelistIp WHERE ip > ? ORDER BY ip LIMIT ?", IpEntry::map, after == null ? "" : after, limit);
+    }
+
+    @NotNull
+    public Optional<RangeEntry> findRange(@NotNull String cidr) throws SQLException {
+        return db.queryFirst("SELECT * FROM whitelistRange WHERE cidr = ?", RangeEntry::map, cidr);
+    }
+
+    @NotNull
+    public List<RangeEntry> findAllRanges() throws SQLException {
+        return db.query("SELECT * FROM whitelistRange", RangeEntry::map);
+    }
+
+    @NotNull
+    public Optional<DomainEntry> findDomain(@NotNull String domain) throws SQLException {
+        return db.queryFirst("SELECT * FROM whitelistDomain WHERE domain = ?", DomainEntry::map, domain);
+    }
+
+    @NotNull
+    public List<DomainEntry> findAllDomains() throws SQLException {
+        return db.query("SELECT * FROM whitelistDomain", DomainEntry::map);
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> add(@NotNull UUID uuid, @Nullable String name, @NotNull String byPlayer, long unix) {
+        return db.updateAsync("INSERT INTO whitelist (uuid, name, byPlayer, unix) VALUES (?, ?, ?, ?)", uuid.toString(), name, byPlayer, unix);
+    }
+
+    /**
+     * Adds many players in one transaction
+     * <p>
+     * Like the single add, a name already taken by another uuid is renamed to "(Old Name)" first.
+     * If that name is taken as well or does not fit the column, the other player keeps no name instead.
+     * Rows that already exist are skipped.
+     *
+     * @param players  UUIDs and their names, names may be null
+     * @param byPlayer Who added the entries
+     * @param unix     When the entries were added
+     * @return The number of changed rows
+     */
+    @NotNull
+    public CompletableFuture<Integer> addAll(@NotNull Map<UUID, String> players, @NotNull String byPlayer, long unix) {
+        List<Object[]> renames = new ArrayList<>();
+        List<Object[]> frees = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>(players.size());
+
+        players.forEach((uuid, name) -> {
+            if (name != null) {
+                String oldName = DB.oldName(name);
+                if (oldName != null)
+                    renames.add(new Object[]{oldName, name, uuid.toString()});
+                frees.add(new Object[]{name, uuid.toString()});
+            }
+            inserts.add(new Object[]{uuid.toString(), name, byPlayer, unix});
+        });
+
+        return db.batchAsync(List.of(
+                new DB.Batch(db.updateIgnore() + " whitelist SET name = ? WHERE name = ? AND uuid <> ?", renames),
+                new DB.Batch("UPDATE whitelist SET name = NULL WHERE name = ? AND uuid <> ?", frees),
+                new DB.Batch(db.insertIgnore() + " INTO whitelist (uuid, name, byPlayer, unix) VALUES (?, ?, ?, ?)", inserts)));
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> rename(@NotNull String oldName, @NotNull String newName) {
+        return db.updateAsync("UPDATE whitelist SET name = ? WHERE name = ?", newName, oldName);
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> remove(@NotNull UUID uuid) {
+        return db.updateAsync("DELETE FROM whitelist WHERE uuid = ?", uuid.toString());
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> removeByName(@NotNull String name) {
+        return db.updateAsync("DELETE FROM whitelist WHERE name = ?", name);
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> addIp(@NotNull String ip, @NotNull String byPlayer, long unix) {
+        return db.updateAsync("INSERT INTO whitelistIp (ip, byPlayer, unix) VALUES (?, ?, ?)", ip, byPlayer, unix);
+    }
+
+    /**
+     * Adds many ips in one transaction, rows that already exist are skipped
+     */
+    @NotNull
+    public CompletableFuture<Integer> addAllIps(@NotNull Collection<String> ips, @NotNull String byPlayer, long unix) {
+        List<Object[]> inserts = ips.stream().map(ip -> new Object[]{ip, byPlayer, unix}).toList();
+        return db.batchAsync(List.of(new DB.Batch(db.insertIgnore() + " INTO whitelistIp (ip, byPlayer, unix) VALUES (?, ?, ?)", inserts)));
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> removeIp(@NotNull String ip) {
+        return db.updateAsync("DELETE FROM whitelistIp WHERE ip = ?", ip);
+    }
+
+    /**
+     * Adds an ip range in CIDR notation, it should be normalized by {@link de.hdg.keklist.util.IpRange}
+     */
+    @NotNull
+    public CompletableFuture<Integer> addRange(@NotNull String cidr, @NotNull String byPlayer, long unix) {
+        return db.updateAsync("INSERT INTO whitelistRange (cidr, byPlayer, unix) VALUES (?, ?, ?)", cidr, byPlayer, unix);
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> removeRange(@NotNull String cidr) {
+        return db.updateAsync("DELETE FROM whitelistRange WHERE cidr = ?", cidr);
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> addDomain(@NotNull String domain, @NotNull String byPlayer, long unix) {
+        return db.updateAsync("INSERT INTO whitelistDomain (domain, byPlayer, unix) VALUES (?, ?, ?)", domain, byPlayer, unix);
+    }
+
+    @NotNull
+    public CompletableFuture<Integer> removeDomain(@NotNull String domain) {
+        return db.updateAsync("DELETE FROM whitelistDomain WHERE domain = ?", domain);
+    }
+
+    /**
+     * A row of the whitelist table
+     */
+    public record Entry(@NotNull UUID uuid, @Nullable String name, @Nullable String byPlayer, long unix) {
+
+        /**
+         * @return The name or the uuid if the player has no name
+         */
+        @NotNull
+        public String displayName() {
+            return name != null ? name : uuid.toString();
+        }
+
+        @NotNull
+        static Entry map(@NotNull ResultSet rs) throws SQLException {
+            return new Entry(UUID.fromString(rs.getString("uuid")), rs.getString("name"), rs.getString("byPlayer"), rs.getLong("unix"));
+        }
+    }
+
+    /**
+     * A row of the whitelistIp table
+     */
+    public record IpEntry(@NotNull String ip, @Nullable String byPlayer, long unix) {
+
+        @NotNull
+        static IpEntry map(@NotNull ResultSet rs) throws SQLException {
+            return new IpEntry(rs.getString("ip"), rs.getString("byPlayer"), rs.getLong("unix"));
+        }
+    }
+
+    /**
+     * A row of the whitelistRange table
+     */
+    public record RangeEntry(@NotNull String cidr, @Nullable String byPlayer, long unix) {
+
+        @NotNull
+        static RangeEntry map(@NotNull ResultSet rs) throws SQLException {
+            return new RangeEntry(rs.getString("cidr"), rs.getString("byPlayer"), rs.getLong("unix"));
+        }
+    }
+
+    /**
+     * A row of the whitelistDomain table
+     */
+    public record DomainEntry(@NotNull String domain, @Nullable String byPlayer, long unix) {
+
+        @NotNull
+        static DomainEntry map(@NotNull ResultSet rs) throws SQLException {
+            return new DomainEntry(rs.getString("domain"), rs.getString("byPlayer"), rs.getLong("unix"));
+        }
+    }
+}
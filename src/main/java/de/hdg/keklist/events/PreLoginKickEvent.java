@@ -1,13 +1,12 @@
 package de.hdg.keklist.events;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
 import de.hdg.keklist.Keklist;
+import de.hdg.keklist.KeklistStats;
+import de.hdg.keklist.database.ListCache;
 import de.hdg.keklist.extentions.WebhookManager;
+import de.hdg.keklist.util.KeklistSettings;
 import net.kyori.adventure.text.Component;
-import okhttp3.*;
 import org.bukkit.Bukkit;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -19,280 +18,226 @@ import org.bukkit.event.player.PlayerLoginEvent;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
 import java.net.InetAddress;
-import java.sql.ResultSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PreLoginKickEvent implements Listener {
 
-    private final FileConfiguration config = Keklist.getInstance().getConfig();
-    private final OkHttpClient client = new OkHttpClient();
+    private static final long LIMBO_REQUEST_TIMEOUT = 60_000;
+
+    // Players who were sent to the limbo and when, the request waits for them to join if the server is empty
+    private final Map<UUID, Long> limboRequests = new ConcurrentHashMap<>();
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.HIGHEST)
     public void onPreLogin(AsyncPlayerPreLoginEvent event) {
-        if (config.getBoolean("blacklist.enabled")) {
-            ResultSet rsUser = Keklist.getDatabase().onQuery("SELECT * FROM blacklist WHERE uuid = ?", event.getUniqueId().toString());
-            ResultSet rsIp = Keklist.getDatabase().onQuery("SELECT * FROM blacklistIp WHERE ip = ?", event.getRawAddress().getHostName());
-
-            boolean isIpBanned = false;
-            boolean isUserBanned = false;
-
-            try {
-                if (rsIp.next())
-                    isIpBanned = true;
-
-                if (rsUser.next())
-                    isUserBanned = true;
-
-                if (isUserBanned || isIpBanned) {
-                    if (config.getBoolean("blacklist.allow-join-with-admin")) {
-                        for (Player player : Keklist.getInstance().getServer().getOnlinePlayers()) {
-                            if (player.hasPermission(config.getString("blacklist.admin-permission"))) {
-                                return;
-                            }
-                        }
-                    }
+        long started = System.nanoTime();
+        KeklistStats.LoginPath path = check(event);
+        Keklist.getStats().recordLoginCheck(path, System.nanoTime() - started);
+    }
 
-                    if (config.getBoolean("blacklist.limbo")) {
-                        Keklist.getInstance().sendUserToLimbo(event.getUniqueId()); //This might fail, so we need to handle this in the login event
-                        return;
-                    }
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAllowedPreLogin(AsyncPlayerPreLoginEvent event) {
+        // Only players who get in are stored, a wave of rejected logins must not flood the profile cache
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED || limboRequests.containsKey(event.getUniqueId()))
+            return;
 
-                    if (isIpBanned) {
-                        if (Keklist.getInstance().getConfig().getBoolean("chat-notify"))
-                            Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("notify.kick", event.getRawAddress().getHostName())), "keklist.notify.kicked");
+        // In online mode the name was verified by Mojang, later lookups of this player don't need to ask again
+        if (Bukkit.getOnlineMode() && (Keklist.getInstance().getFloodgateApi() == null || !Keklist.getInstance().getFloodgateApi().isFloodgateId(event.getUniqueId())))
+            Keklist.getProfileCache().remember(event.getUniqueId(), event.getName());
+    }
 
-                        if (Keklist.getWebhookManager() != null)
-                            Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_KICK, event.getRawAddress().getHostName(), rsIp.getString("byPlayer"), null, System.currentTimeMillis());
+    @NotNull
+    private KeklistStats.LoginPath check(@NotNull AsyncPlayerPreLoginEvent event) {
+        String ip = event.getAddress().getHostAddress();
+        KeklistSettings settings = Keklist.getSettings();
 
-                        event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, Keklist.getInstance().getMiniMessage().deserialize(Keklist.getInstance().getRandomizedKickMessage(Keklist.RandomType.BLACKLISTED)));
-                        return;
-                    }
+        boolean whitelisted = isWhitelisted(event.getUniqueId(), event.getAddress());
 
-                    if (isUserBanned) {
-                        if (Keklist.getInstance().getFloodgateApi() != null) {
-                            if (Keklist.getInstance().getFloodgateApi().isFloodgatePlayer(event.getUniqueId())) {
-                                if (Keklist.getWebhookManager() != null)
-                                    Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_KICK, Keklist.getInstance().getFloodgateApi().getPlayer(event.getUniqueId()).getUsername(), rsUser.getString("byPlayer"), null, System.currentTimeMillis());
-
-                                if (Keklist.getInstance().getConfig().getBoolean("chat-notify"))
-                                    Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("notify.kick", Keklist.getInstance().getFloodgateApi().getPlayer(event.getUniqueId()).getUsername())), "keklist.notify.kicked");
-                            } else {
-                                Request request = new Request.Builder().url("https://sessionserver.mojang.com/session/minecraft/profile/" + event.getUniqueId()).build();
-                                client.newCall(request).enqueue(new PreLoginKickEvent.WebhooknameCallback(WebhookManager.EVENT_TYPE.BLACKLIST_KICK, event.getAddress().getHostAddress(), rsUser.getString("byPlayer"), System.currentTimeMillis()));
-                            }
-                        } else {
-                            Request request = new Request.Builder().url("https://sessionserver.mojang.com/session/minecraft/profile/" + event.getUniqueId()).build();
-                            client.newCall(request).enqueue(new PreLoginKickEvent.WebhooknameCallback(WebhookManager.EVENT_TYPE.BLACKLIST_KICK, event.getAddress().getHostAddress(), rsUser.getString("byPlayer"), System.currentTimeMillis()));
-                        }
-                    }
-
-                    event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, Keklist.getInstance().getMiniMessage().deserialize(Keklist.getInstance().getRandomizedKickMessage(Keklist.RandomType.BLACKLISTED)));
-                    return;
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+        // Whitelisted players are never charged, they often share an address with others, e.g. behind a NAT
+        if (!whitelisted && !Keklist.getLoginLimiter().tryAcquire(ip)) {
+            Keklist.getStats().recordKick(KeklistStats.Kick.RATE_LIMITED);
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("rate-limited")));
+            return KeklistStats.LoginPath.RATE_LIMITED;
         }
 
-        if (config.getBoolean("whitelist.enabled")) {
-            ResultSet rsUser = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE uuid = ?", event.getUniqueId().toString());
-            ResultSet rsIp = Keklist.getDatabase().onQuery("SELECT * FROM whitelistIp WHERE ip = ?", event.getAddress().getHostAddress());
-
-            try {
-                if (!rsUser.next()) {
-                    if (Keklist.getInstance().getFloodgateApi() != null) {
-                        if (!Keklist.getInstance().getFloodgateApi().isFloodgateId(event.getUniqueId())) {
-                            Request request = new Request.Builder().url("https://sessionserver.mojang.com/session/minecraft/profile/" + event.getUniqueId()).build();
-                            client.newCall(request).enqueue(new PreLoginKickEvent.WebhooknameCallback(WebhookManager.EVENT_TYPE.WHITELIST_KICK, event.getAddress().getHostAddress(), null, System.currentTimeMillis()));
-                        } else {
-                            if (Keklist.getWebhookManager() != null)
-                                Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_KICK, event.getName()+ " (" + event.getAddress().getHostAddress() + ")", null, System.currentTimeMillis());
-
-                            if (Keklist.getInstance().getConfig().getBoolean("chat-notify"))
-                                Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("notify.kick", event.getName())), "keklist.notify.kicked");
+        if (settings.blacklistEnabled()) {
+            ListCache.Entry userEntry = Keklist.getListCache().get(ListCache.ListType.BLACKLIST, event.getUniqueId().toString());
+            ListCache.Entry ipEntry = Keklist.getListCache().getIp(ListCache.ListType.BLACKLIST_IP, ListCache.ListType.BLACKLIST_RANGE, event.getAddress());
+
+            if (userEntry != null || ipEntry != null) {
+                if (settings.allowJoinWithAdmin()) {
+                    for (Player player : Keklist.getInstance().getServer().getOnlinePlayers()) {
+                        if (player.hasPermission(settings.adminPermission())) {
+                            return KeklistStats.LoginPath.ADMIN_BYPASS;
                         }
-                    } else {
-                        Request request = new Request.Builder().url("https://sessionserver.mojang.com/session/minecraft/profile/" + event.getUniqueId()).build();
-                        client.newCall(request).enqueue(new PreLoginKickEvent.WebhooknameCallback(WebhookManager.EVENT_TYPE.WHITELIST_KICK, event.getAddress().getHostAddress(), null, System.currentTimeMillis()));
                     }
+                }
 
-                    event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_WHITELIST, Keklist.getInstance().getMiniMessage().deserialize(Keklist.getInstance().getRandomizedKickMessage(Keklist.RandomType.WHITELISTED)));
-                } else
-                    return;
+                if (settings.limbo()) {
+                    requestLimbo(event.getUniqueId());
+                    return KeklistStats.LoginPath.LIMBO;
+                }
 
-                if (!rsIp.next()) {
-                    ResultSet rsDDNS = Keklist.getDatabase().onQuery("SELECT * FROM whitelistDomain");
+                if (ipEntry != null) {
+                    if (settings.chatNotify())
+                        Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("notify.kick", ip)), "keklist.notify.kicked");
 
-                    while (rsDDNS.next()) {
-                        InetAddress address = InetAddress.getByName(rsDDNS.getString("domain"));
+                    if (Keklist.getWebhookManager() != null)
+                        Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_KICK, ip, ipEntry.byPlayer(), null, System.currentTimeMillis());
 
-                        if (address.getHostAddress().equals(event.getAddress().getHostAddress()) ||
-                                address.getHostName().equals(event.getAddress().getHostName()) ||
-                                address.getHostAddress().equals(event.getAddress().getHostName()) ||
-                                address.getHostName().equals(event.getAddress().getHostAddress())) {
-                            return;
-                        }
-                    }
+                    Keklist.getStats().recordKick(KeklistStats.Kick.BLACKLISTED);
+                    event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, settings.randomKickMessage(Keklist.RandomType.BLACKLISTED));
+                    return KeklistStats.LoginPath.BLACKLISTED;
+                }
 
-                    if (Keklist.getInstance().getConfig().getBoolean("chat-notify"))
-                        Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("notify.kick", event.getRawAddress().getHostName())), "keklist.notify.kicked");
+                if (Keklist.getInstance().getFloodgateApi() != null && Keklist.getInstance().getFloodgateApi().isFloodgatePlayer(event.getUniqueId())) {
+                    if (Keklist.getWebhookManager() != null)
+                        Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_KICK, Keklist.getInstance().getFloodgateApi().getPlayer(event.getUniqueId()).getUsername(), userEntry.byPlayer(), null, System.currentTimeMillis());
 
-                    event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_WHITELIST, Keklist.getInstance().getMiniMessage().deserialize(Keklist.getInstance().getRandomizedKickMessage(Keklist.RandomType.WHITELISTED)));
+                    if (settings.chatNotify())
+                        Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("notify.kick", Keklist.getInstance().getFloodgateApi().getPlayer(event.getUniqueId()).getUsername())), "keklist.notify.kicked");
+                } else {
+                    notifyKick(WebhookManager.EVENT_TYPE.BLACKLIST_KICK, event.getUniqueId(), event.getName(), ip, userEntry.byPlayer());
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
+
+                Keklist.getStats().recordKick(KeklistStats.Kick.BLACKLISTED);
+                event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, settings.randomKickMessage(Keklist.RandomType.BLACKLISTED));
+                return KeklistStats.LoginPath.BLACKLISTED;
             }
         }
+
+        if (settings.whitelistEnabled()) {
+            if (whitelisted)
+                return KeklistStats.LoginPath.WHITELISTED;
+
+            if (Keklist.getInstance().getFloodgateApi() != null && Keklist.getInstance().getFloodgateApi().isFloodgateId(event.getUniqueId())) {
+                if (Keklist.getWebhookManager() != null)
+                    Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_KICK, event.getName() + " (" + ip + ")", null, System.currentTimeMillis());
+
+                if (settings.chatNotify())
+                    Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("notify.kick", event.getName())), "keklist.notify.kicked");
+            } else {
+                notifyKick(WebhookManager.EVENT_TYPE.WHITELIST_KICK, event.getUniqueId(), event.getName(), ip, null);
+            }
+
+            Keklist.getStats().recordKick(KeklistStats.Kick.NOT_WHITELISTED);
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_WHITELIST, settings.randomKickMessage(Keklist.RandomType.WHITELISTED));
+            return KeklistStats.LoginPath.NOT_WHITELISTED;
+        }
+
+        return KeklistStats.LoginPath.ALLOWED;
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.HIGHEST)
     public void onLogin(PlayerLoginEvent event) {
-        if (config.getBoolean("blacklist.enabled")) {
-            ResultSet rsUser = Keklist.getDatabase().onQuery("SELECT * FROM blacklist WHERE uuid = ?", event.getPlayer().getUniqueId().toString());
-            ResultSet rsIp = Keklist.getDatabase().onQuery("SELECT * FROM blacklistIp WHERE ip = ?", event.getAddress().getHostAddress());
-
-            boolean isIpBanned = false;
-            boolean isUserBanned = false;
-
-            try {
-                if (rsIp.next())
-                    isIpBanned = true;
-
-                if (rsUser.next())
-                    isUserBanned = true;
-
-                if (isIpBanned || isUserBanned) {
-                    if (config.getBoolean("blacklist.allow-join-with-admin")) {
-                        for (Player player : Keklist.getInstance().getServer().getOnlinePlayers()) {
-                            if (player.hasPermission(config.getString("blacklist.admin-permission"))) {
-                                return;
-                            }
+        String ip = event.getAddress().getHostAddress();
+        KeklistSettings settings = Keklist.getSettings();
+
+        if (settings.blacklistEnabled()) {
+            ListCache.Entry userEntry = Keklist.getListCache().get(ListCache.ListType.BLACKLIST, event.getPlayer().getUniqueId().toString());
+            ListCache.Entry ipEntry = Keklist.getListCache().getIp(ListCache.ListType.BLACKLIST_IP, ListCache.ListType.BLACKLIST_RANGE, event.getAddress());
+
+            if (userEntry != null || ipEntry != null) {
+                if (settings.allowJoinWithAdmin()) {
+                    for (Player player : Keklist.getInstance().getServer().getOnlinePlayers()) {
+                        if (player.hasPermission(settings.adminPermission())) {
+                            return;
                         }
                     }
+                }
 
-                    if (config.getBoolean("blacklist.limbo")) {
-                        Keklist.getInstance().sendUserToLimbo(event.getPlayer()); //Might fail, so we need to handle this in the login event
-                        return;
-                    }
+                if (settings.limbo()) {
+                    // Usually requested in the pre login already, unless the entry was added in the meantime
+                    if (!limboRequests.containsKey(event.getPlayer().getUniqueId()))
+                        requestLimbo(event.getPlayer().getUniqueId());
+                    return;
+                }
 
-                    if (isIpBanned && Keklist.getWebhookManager() != null)
-                        Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_KICK, event.getAddress().getHostName(), rsIp.getString("byPlayer"), null, System.currentTimeMillis());
+                if (ipEntry != null && Keklist.getWebhookManager() != null)
+                    Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_KICK, ip, ipEntry.byPlayer(), null, System.currentTimeMillis());
 
-                    if (isUserBanned && Keklist.getWebhookManager() != null)
-                        Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_KICK, event.getPlayer().getName(), rsIp.getString("byPlayer"), null, System.currentTimeMillis());
+                if (userEntry != null && Keklist.getWebhookManager() != null)
+                    Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_KICK, event.getPlayer().getName(), userEntry.byPlayer(), null, System.currentTimeMillis());
 
-                    event.disallow(PlayerLoginEvent.Result.KICK_BANNED, Keklist.getInstance().getMiniMessage().deserialize(Keklist.getInstance().getRandomizedKickMessage(Keklist.RandomType.BLACKLISTED)));
-                    return;
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
+                Keklist.getStats().recordKick(KeklistStats.Kick.BLACKLISTED);
+                event.disallow(PlayerLoginEvent.Result.KICK_BANNED, settings.randomKickMessage(Keklist.RandomType.BLACKLISTED));
+                return;
             }
         }
 
-        if (config.getBoolean("whitelist.enabled")) {
-            ResultSet rsUser = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE uuid = ?", event.getPlayer().getUniqueId().toString());
-            ResultSet rsIp = Keklist.getDatabase().onQuery("SELECT * FROM whitelistIp WHERE ip = ?", event.getAddress().getHostAddress());
+        if (settings.whitelistEnabled()) {
+            if (Keklist.getListCache().getIp(ListCache.ListType.WHITELIST_IP, ListCache.ListType.WHITELIST_RANGE, event.getAddress()) != null) return;
+            if (Keklist.getListCache().isWhitelisted(event.getPlayer().getUniqueId())) return;
+            if (Keklist.getDomainResolver().match(event.getAddress()) != null) return;
 
-            try {
-                if (rsIp.next()) return;
-                if (rsUser.next()) return;
-
-                if (Keklist.getWebhookManager() != null)
-                    Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_KICK, event.getPlayer().getName() + "/" + event.getAddress().getHostAddress(), null, System.currentTimeMillis());
+            if (Keklist.getWebhookManager() != null)
+                Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_KICK, event.getPlayer().getName() + "/" + ip, null, System.currentTimeMillis());
 
-                event.disallow(PlayerLoginEvent.Result.KICK_WHITELIST, Keklist.getInstance().getMiniMessage().deserialize(Keklist.getInstance().getRandomizedKickMessage(Keklist.RandomType.WHITELISTED)));
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+            Keklist.getStats().recordKick(KeklistStats.Kick.NOT_WHITELISTED);
+            event.disallow(PlayerLoginEvent.Result.KICK_WHITELIST, settings.randomKickMessage(Keklist.RandomType.WHITELISTED));
         }
     }
 
     @EventHandler(priority = EventPriority.HIGHEST)
     public void onJoin(PlayerJoinEvent event) {
-        if (config.getBoolean("blacklist.enabled")) {
-            ResultSet rsUser = Keklist.getDatabase().onQuery("SELECT * FROM blacklist WHERE uuid = ?", event.getPlayer().getUniqueId().toString());
-            ResultSet rsIp = Keklist.getDatabase().onQuery("SELECT * FROM blacklistIp WHERE ip = ?", event.getPlayer().getAddress().getAddress().getHostAddress());
-
-            try {
-                if (rsUser.next() || rsIp.next()) {
-                    event.joinMessage(Component.empty());
-                    Keklist.getInstance().sendUserToLimbo(event.getPlayer());
-
-                    Bukkit.getScheduler().runTaskLater(Keklist.getInstance(), () -> {
-                        //Keklist.getInstance().sendUserToLimbo(event.getPlayer());
-                        event.getPlayer().kick(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getInstance().getRandomizedKickMessage(Keklist.RandomType.BLACKLISTED)), PlayerKickEvent.Cause.BANNED);
-                    }, 10L);
+        // The queued limbo request is sent through this player's connection as soon as the proxy registered the channel
+        if (limboRequests.remove(event.getPlayer().getUniqueId()) != null) {
+            event.joinMessage(Component.empty());
+
+            // Without a proxy nobody takes the player away
+            Bukkit.getScheduler().runTaskLater(Keklist.getInstance(), () -> {
+                if (event.getPlayer().isOnline()) {
+                    Keklist.getStats().recordKick(KeklistStats.Kick.BLACKLISTED);
+                    event.getPlayer().kick(Keklist.getSettings().randomKickMessage(Keklist.RandomType.BLACKLISTED), PlayerKickEvent.Cause.BANNED);
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+            }, 40L);
         }
     }
 
-    private class WebhooknameCallback implements Callback {
-        private final WebhookManager.EVENT_TYPE type;
-        private final String addedBy;
-        private final long unixTime;
-        private final String ip;
-
-        public WebhooknameCallback(@NotNull WebhookManager.EVENT_TYPE type, @NotNull String ip, @Nullable String by, long unixTime) {
-            this.type = type;
-            this.addedBy = by;
-            this.unixTime = unixTime;
-            this.ip = ip;
-        }
+    private static boolean isWhitelisted(@NotNull UUID uuid, @NotNull InetAddress address) {
+        return Keklist.getListCache().isWhitelisted(uuid)
+                || Keklist.getListCache().getIp(ListCache.ListType.WHITELIST_IP, ListCache.ListType.WHITELIST_RANGE, address) != null
+                || Keklist.getDomainResolver().match(address) != null;
+    }
 
-        @Override
-        public void onResponse(@NotNull Call call, Response response) throws IOException {
-            String body = response.body().string();
+    private void requestLimbo(@NotNull UUID uuid) {
+        long now = System.currentTimeMillis();
 
-            if (checkForGoodResponse(body) != null) {
-                Keklist.getInstance().getLogger().severe(checkForGoodResponse(body));
-            } else {
-                JsonElement responseElement = JsonParser.parseString(body);
-                String name = responseElement.getAsJsonObject().get("name").getAsString();
+        // Players who never joined after their pre login
+        limboRequests.values().removeIf(requested -> now - requested > LIMBO_REQUEST_TIMEOUT);
+        limboRequests.put(uuid, now);
 
-                switch (type) {
-                    case BLACKLIST_KICK -> {
-                        if (Keklist.getWebhookManager() != null)
-                            Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_KICK, name + " (" + ip + ")", addedBy, null, unixTime);
+        Keklist.getInstance().sendUserToLimbo(uuid);
+    }
 
-                        if (Keklist.getInstance().getConfig().getBoolean("chat-notify"))
-                            Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("notify.kick", name)), "keklist.notify.kicked");
-                    }
-                    case WHITELIST_KICK -> {
-                        if (Keklist.getWebhookManager() != null)
-                            Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_KICK, name + " (" + ip + ")", null, unixTime);
+    private void notifyKick(@NotNull WebhookManager.EVENT_TYPE type, @NotNull UUID uuid, @NotNull String loginName, @NotNull String ip, @Nullable String addedBy) {
+        long unixTime = System.currentTimeMillis();
 
-                        if (Keklist.getInstance().getConfig().getBoolean("chat-notify"))
-                            Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("notify.kick", name)), "keklist.notify.kicked");
-                    }
-                }
-            }
-        }
+        Keklist.getProfileCache().byUuid(uuid).whenComplete((profile, throwable) -> {
+            if (throwable != null)
+                Keklist.getInstance().getLogger().warning(Keklist.getTranslations().get("discord.http.namefetch", throwable.getMessage()));
 
-        @Override
-        public void onFailure(@NotNull Call call, IOException e) {
-            Keklist.getInstance().getLogger().warning(Keklist.getTranslations().get("discord.http.namefetch", e.getMessage()));
-        }
+            // Offline mode players have no Mojang profile, the name they logged in with is all there is
+            String name = profile != null && profile.isPresent() ? profile.get().name() : loginName;
 
-    }
+            switch (type) {
+                case BLACKLIST_KICK -> {
+                    if (Keklist.getWebhookManager() != null)
+                        Keklist.getWebhookManager().fireBlacklistEvent(WebhookManager.EVENT_TYPE.BLACKLIST_KICK, name + " (" + ip + ")", addedBy, null, unixTime);
 
-    @Nullable
-    private String checkForGoodResponse(@NotNull String response) {
-        JsonElement responseElement = JsonParser.parseString(response);
+                    if (Keklist.getSettings().chatNotify())
+                        Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("notify.kick", name)), "keklist.notify.kicked");
+                }
+                case WHITELIST_KICK -> {
+                    if (Keklist.getWebhookManager() != null)
+                        Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_KICK, name + " (" + ip + ")", null, unixTime);
 
-        if (!responseElement.isJsonNull()) {
-            if (responseElement.getAsJsonObject().get("error") != null ||
-                    !responseElement.getAsJsonObject().has("id") ||
-                    !responseElement.getAsJsonObject().has("name")) {
-                return Keklist.getTranslations().get("discord.http.uuid-error", responseElement.getAsJsonObject().get("error").getAsString());
+                    if (Keklist.getSettings().chatNotify())
+                        Bukkit.broadcast(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("notify.kick", name)), "keklist.notify.kicked");
+                }
             }
-        } else {
-            return Keklist.getTranslations().get("http.null-response");
-        }
-
-        return null;
+        });
     }
 }
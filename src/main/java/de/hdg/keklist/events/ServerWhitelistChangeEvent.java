@@ -3,6 +3,7 @@ package de.hdg.keklist.events;
 import de.hdg.keklist.Keklist;
 import de.hdg.keklist.api.events.whitelist.PlayerRemovedFromWhitelistEvent;
 import de.hdg.keklist.api.events.whitelist.UUIDAddToWhitelistEvent;
+import de.hdg.keklist.database.ListCache;
 import de.hdg.keklist.extentions.WebhookManager;
 import io.papermc.paper.event.server.WhitelistStateUpdateEvent;
 import org.bukkit.Bukkit;
@@ -10,31 +11,29 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class ServerWhitelistChangeEvent implements Listener {
 
     @EventHandler(priority = EventPriority.HIGH)
-    public void onStateUpdate(WhitelistStateUpdateEvent event) throws SQLException {
+    public void onStateUpdate(WhitelistStateUpdateEvent event) {
 
         String playerName = event.getPlayerProfile().getName();
         UUID uuid = event.getPlayerProfile().getId();
 
         switch (event.getStatus()) {
             case ADDED -> {
-                ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE uuid = ?", event.getPlayerProfile().getId());
-                ResultSet rsUserFix = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE name = ?", event.getPlayerProfile().getName());
-
-                if (!rs.next()) {
-                    if (rsUserFix.next()) {
-                        Keklist.getDatabase().onUpdate("UPDATE whitelist SET name = ? WHERE name = ?", playerName + " (Old Name)", playerName);
+                if (!Keklist.getListCache().isWhitelisted(uuid)) {
+                    if (Keklist.getListCache().names(ListCache.ListType.WHITELIST).contains(playerName)) {
+                        Keklist.getDatabase().getWhitelist().rename(playerName, playerName + " (Old Name)");
+                        Keklist.getListCache().rename(ListCache.ListType.WHITELIST, playerName, playerName + " (Old Name)");
                     }
 
                     new UUIDAddToWhitelistEvent(uuid).callEvent();
 
-                    Keklist.getDatabase().onUpdate("INSERT INTO whitelist (uuid, name, byPlayer, unix) VALUES (?, ?, ?, ?)", uuid.toString(), playerName, "SYSTEM", System.currentTimeMillis());
+                    CompletableFuture<Integer> write = Keklist.getDatabase().getWhitelist().add(uuid, playerName, "SYSTEM", System.currentTimeMillis());
+                    Keklist.getListCache().add(write, ListCache.ListType.WHITELIST, uuid.toString(), playerName, "SYSTEM", System.currentTimeMillis());
 
                     if (Keklist.getWebhookManager() != null)
                         Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_ADD, playerName, "SYSTEM", System.currentTimeMillis());
@@ -46,11 +45,10 @@ public class ServerWhitelistChangeEvent implements Listener {
             }
 
             case REMOVED -> {
-                ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE uuid = ?", uuid.toString());
-
-                if (rs.next()) {
+                if (Keklist.getListCache().isWhitelisted(uuid)) {
                     new PlayerRemovedFromWhitelistEvent(playerName).callEvent();
-                    Keklist.getDatabase().onUpdate("DELETE FROM whitelist WHERE uuid = ?", uuid.toString());
+                    Keklist.getDatabase().getWhitelist().remove(uuid);
+                    Keklist.getListCache().remove(ListCache.ListType.WHITELIST, uuid.toString());
 
                     if (Keklist.getWebhookManager() != null)
                         Keklist.getWebhookManager().fireWhitelistEvent(WebhookManager.EVENT_TYPE.WHITELIST_REMOVE, playerName, "SYSTEM", System.currentTimeMillis());
@@ -8,7 +8,6 @@ import com.djrapitops.plan.extension.icon.Color;
 import com.djrapitops.plan.extension.icon.Family;
 import de.hdg.keklist.Keklist;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.UUID;
 
@@ -44,8 +43,7 @@ public class KekDataExtension implements DataExtension {
     )
     public boolean isWhitelisted(UUID uuid) {
         try {
-            ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE uuid = ?", uuid.toString());
-            return rs.next();
+            return Keklist.getDatabase().getWhitelist().find(uuid).isPresent();
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -62,8 +60,7 @@ public class KekDataExtension implements DataExtension {
     )
     public boolean isBlacklisted(UUID uuid) {
         try {
-            ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklist WHERE uuid = ?", uuid.toString());
-            return rs.next();
+            return Keklist.getDatabase().getBlacklist().find(uuid).isPresent();
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -1,11 +1,12 @@
 package de.hdg.keklist.extentions;
 
 import de.hdg.keklist.Keklist;
+import de.hdg.keklist.KeklistStats;
+import de.hdg.keklist.database.ListCache;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
 
-import java.sql.ResultSet;
 
 public class PlaceholderAPIExtension extends PlaceholderExpansion {
     private final Keklist plugin;
@@ -30,6 +31,12 @@ public class PlaceholderAPIExtension extends PlaceholderExpansion {
         return plugin.getPluginMeta().getVersion();
     }
 
+    /**
+     * Answers from memory only, scoreboards and tab lists request these for every player every few ticks
+     * <p>
+     * Besides the player's own status there are the sizes of the lists, like {@code blacklist_ip_count}, and the
+     * kicks of the last hour, either all of them as {@code kicks} or per reason, like {@code kicks_not_whitelisted}.
+     */
     @Override
     public String onRequest(OfflinePlayer player, @NotNull String identifier) {
         switch (identifier) {
@@ -38,21 +45,42 @@ public class PlaceholderAPIExtension extends PlaceholderExpansion {
             }
 
             case "whitelisted" -> {
-                ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE uuid = ?", player.getUniqueId().toString());
-                try {
-                    return String.valueOf(rs.next());
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
+                return player == null ? null : String.valueOf(Keklist.getListCache().isWhitelisted(player.getUniqueId()));
             }
 
             case "blacklisted" -> {
-                ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklist WHERE uuid = ?", player.getUniqueId().toString());
-                try {
-                    return String.valueOf(rs.next());
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
+                return player == null ? null : String.valueOf(Keklist.getListCache().isBlacklisted(player.getUniqueId()));
+            }
+
+            case "whitelist_count" -> {
+                return String.valueOf(Keklist.getStats().listSize(ListCache.ListType.WHITELIST));
+            }
+
+            case "whitelist_ip_count" -> {
+                return String.valueOf(Keklist.getStats().listSize(ListCache.ListType.WHITELIST_IP));
+            }
+
+            case "blacklist_count" -> {
+                return String.valueOf(Keklist.getStats().listSize(ListCache.ListType.BLACKLIST));
+            }
+
+            case "blacklist_ip_count" -> {
+                return String.valueOf(Keklist.getStats().listSize(ListCache.ListType.BLACKLIST_IP));
+            }
+
+            case "blacklist_motd_count" -> {
+                return String.valueOf(Keklist.getStats().listSize(ListCache.ListType.BLACKLIST_MOTD));
+            }
+
+            case "kicks" -> {
+                return String.valueOf(Keklist.getStats().recentKicks(null, KeklistStats.WINDOW_MINUTES));
+            }
+        }
+
+        if (identifier.startsWith("kicks_")) {
+            for (KeklistStats.Kick kick : KeklistStats.Kick.values()) {
+                if (identifier.equals("kicks_" + kick.name().toLowerCase()))
+                    return String.valueOf(Keklist.getStats().recentKicks(kick, KeklistStats.WINDOW_MINUTES));
             }
         }
 
@@ -0,0 +1,167 @@
+package de.hdg.keklist.extentions;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import de.hdg.keklist.Keklist;
+import de.hdg.keklist.KeklistStats;
+import de.hdg.keklist.database.ListCache;
+import de.hdg.keklist.util.Histogram;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the {@link KeklistStats} in the Prometheus text format at /metrics
+ * <p>
+ * Uses the HTTP server of the JDK, so neither a library nor a running Prometheus is needed to start it. Every scrape
+ * only reads counters, nothing is computed in the background.
+ */
+public class PrometheusExporter {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Binds the exporter and starts serving
+     *
+     * @param bind The address to listen on
+     * @param port The port to listen on
+     * @throws IOException If the port can't be bound
+     */
+    public PrometheusExporter(@NotNull String bind, int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(bind, port), 0);
+        this.executor = Executors.newSingleThreadExecutor(job -> {
+            Thread thread = new Thread(job);
+            thread.setName("keklist-prometheus-thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server.createContext("/metrics", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void shutdown() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handle(@NotNull HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @NotNull
+    private String scrape() {
+        KeklistStats stats = Keklist.getStats();
+        StringBuilder out = new StringBuilder();
+
+        header(out, "keklist_list_entries", "gauge", "Entries of each list");
+        for (ListCache.ListType type : ListCache.ListType.values())
+            sample(out, "keklist_list_entries", "list=\"" + label(type) + "\"", stats.listSize(type));
+
+        header(out, "keklist_kicks_total", "counter", "Players turned away, by reason");
+        for (Map.Entry<KeklistStats.Kick, Long> kick : stats.totalKicks().entrySet())
+            sample(out, "keklist_kicks_total", "reason=\"" + label(kick.getKey()) + "\"", kick.getValue());
+
+        header(out, "keklist_login_check_seconds", "histogram", "Duration of the pre login check, by how it ended");
+        stats.getLoginChecks().forEach((path, histogram) -> histogram(out, "keklist_login_check_seconds", "path=\"" + label(path) + "\"", histogram));
+
+        header(out, "keklist_pings_total", "counter", "Server list pings");
+        sample(out, "keklist_pings_total", null, stats.getPings());
+
+        header(out, "keklist_pings_limited_total", "counter", "Server list pings dropped by the rate limit");
+        sample(out, "keklist_pings_limited_total", null, stats.getLimitedPings());
+
+        header(out, "keklist_db_seconds", "histogram", "Duration of database statements, by kind");
+        stats.getDatabase().forEach((operation, histogram) -> histogram(out, "keklist_db_seconds", "operation=\"" + label(operation) + "\"", histogram));
+
+        List<HikariDataSource> pools = Keklist.getDatabase() == null ? List.of() : Keklist.getDatabase().getPools();
+
+        header(out, "keklist_db_pool_connections", "gauge", "Connections of the database pools, by state");
+        for (HikariDataSource pool : pools) {
+            HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            if (bean == null) continue;
+
+            sample(out, "keklist_db_pool_connections", "pool=\"" + pool.getPoolName() + "\",state=\"active\"", bean.getActiveConnections());
+            sample(out, "keklist_db_pool_connections", "pool=\"" + pool.getPoolName() + "\",state=\"idle\"", bean.getIdleConnections());
+        }
+
+        header(out, "keklist_db_pool_waiting", "gauge", "Threads waiting for a database connection");
+        for (HikariDataSource pool : pools) {
+            HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            if (bean != null)
+                sample(out, "keklist_db_pool_waiting", "pool=\"" + pool.getPoolName() + "\"", bean.getThreadsAwaitingConnection());
+        }
+
+        header(out, "keklist_cache_requests_total", "counter", "Requests to the caches in front of the Mojang APIs, by result");
+        for (KeklistStats.Cache cache : KeklistStats.Cache.values()) {
+            sample(out, "keklist_cache_requests_total", "cache=\"" + label(cache) + "\",result=\"hit\"", stats.getHits(cache));
+            sample(out, "keklist_cache_requests_total", "cache=\"" + label(cache) + "\",result=\"miss\"", stats.getMisses(cache));
+        }
+
+        header(out, "keklist_mojang_lookup_seconds", "histogram", "Duration of requests to the Mojang APIs, by cache");
+        stats.getLookups().forEach((cache, histogram) -> histogram(out, "keklist_mojang_lookup_seconds", "cache=\"" + label(cache) + "\"", histogram));
+
+        header(out, "keklist_webhook_queue", "gauge", "Discord notifications waiting to be sent");
+        sample(out, "keklist_webhook_queue", null, Keklist.getWebhookManager() == null ? 0 : Keklist.getWebhookManager().getQueueSize());
+
+        return out.toString();
+    }
+
+    private static void header(@NotNull StringBuilder out, @NotNull String name, @NotNull String type, @NotNull String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(@NotNull StringBuilder out, @NotNull String name, @Nullable String labels, @NotNull Number value) {
+        out.append(name);
+        if (labels != null)
+            out.append('{').append(labels).append('}');
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static void histogram(@NotNull StringBuilder out, @NotNull String name, @NotNull String labels, @NotNull Histogram histogram) {
+        double[] bounds = histogram.bounds();
+        long[] counts = histogram.cumulativeCounts();
+
+        for (int i = 0; i < bounds.length; i++)
+            sample(out, name + "_bucket", labels + ",le=\"" + BigDecimal.valueOf(bounds[i]).toPlainString() + "\"", counts[i]);
+
+        sample(out, name + "_bucket", labels + ",le=\"+Inf\"", counts[bounds.length]);
+        sample(out, name + "_sum", labels, histogram.sumSeconds());
+        sample(out, name + "_count", labels, counts[bounds.length]);
+    }
+
+    @NotNull
+    private static String label(@NotNull Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
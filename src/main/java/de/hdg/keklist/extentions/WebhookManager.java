@@ -1,155 +1,342 @@
 package de.hdg.keklist.extentions;
 
-import club.minnced.discord.webhook.WebhookClient;
-import club.minnced.discord.webhook.WebhookClientBuilder;
 import club.minnced.discord.webhook.send.AllowedMentions;
 import club.minnced.discord.webhook.send.WebhookEmbed;
 import club.minnced.discord.webhook.send.WebhookEmbedBuilder;
 import club.minnced.discord.webhook.send.WebhookMessageBuilder;
 import de.hdg.keklist.Keklist;
 import lombok.Getter;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Sends the Discord notifications
+ * <p>
+ * Events only build an immutable embed and put it into a bounded queue, a single dispatcher thread sends up to
+ * {@value #MAX_EMBEDS} embeds per message, as long as their text stays within Discord's limit of
+ * {@value #MAX_MESSAGE_LENGTH} characters. Kicks of the same type are collapsed, so a bot wave ends up as one
+ * summary with a count instead of one message per connection. The dispatcher waits as long as Discord asks for with
+ * its rate limit headers. If the queue is full, new notifications are dropped and counted.
+ * If Discord rejects a message, its embeds are sent again one by one, so only the broken one is lost.
+ */
 public class WebhookManager {
 
+    private static final int MAX_EMBEDS = 10;
+    private static final int MAX_DESCRIPTION_LENGTH = 4096;
+    private static final int MAX_MESSAGE_LENGTH = 6000;
+    private static final long SHUTDOWN_TIMEOUT = 10_000;
+    private static final int QUEUE_SIZE = 100;
+    private static final int SUMMARY_ENTRIES = 5;
+    private static final Set<EVENT_TYPE> KICKS = EnumSet.of(EVENT_TYPE.BLACKLIST_KICK, EVENT_TYPE.WHITELIST_KICK, EVENT_TYPE.LIMBO);
+
     private final Keklist keklist;
-    private WebhookClient client;
-    private WebhookEmbedBuilder embedBuilder;
-    private static final List<EVENT_TYPE> triggerEvents = new ArrayList<>();
+    private final OkHttpClient client = new OkHttpClient();
+    private final ScheduledExecutorService dispatcher;
+    private final BlockingQueue<WebhookEmbed> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final Map<EVENT_TYPE, Kicks> kicks = new ConcurrentHashMap<>();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final Set<EVENT_TYPE> triggerEvents = EnumSet.noneOf(EVENT_TYPE.class);
+
+    private final String url;
+    private final String username;
+    private final String avatarUrl;
+    private final String content;
+    private final String footer;
+
+    // Only touched by the dispatcher thread
+    private final List<WebhookEmbed> pending = new ArrayList<>();
+    private long retryAt;
+    // Embeds of a rejected message, which are sent again one per message
+    private int isolated;
 
     public WebhookManager(Keklist keklist) {
         this.keklist = keklist;
-        init();
-    }
 
-    private void init() {
-        if (keklist.getConfig().getBoolean("discord.enabled")) {
-            String url = keklist.getConfig().getString("discord.webhook-url");
+        String url = keklist.getConfig().getString("discord.webhook-url");
+        this.url = url == null ? "https://discord.com" : url;
+        this.username = keklist.getConfig().getString("discord.username");
+        this.avatarUrl = keklist.getConfig().getString("discord.avatar-url");
+        this.footer = "Keklist v" + keklist.getPluginMeta().getVersion();
 
-            WebhookClientBuilder builder = new WebhookClientBuilder(url == null ? "https://cdn.discordapp.com/attachments/1056727727991959673/1102655035290157176/keklist.png" : url);
-            builder.setThreadFactory((job) -> {
-                Thread thread = new Thread(job);
-                thread.setName("keklist-discord-webhook-thread");
-                thread.setDaemon(true);
-                return thread;
-            });
-            builder.setWait(true);
-            builder.setAllowedMentions(AllowedMentions.all());
+        StringBuilder rolesBuilder = new StringBuilder();
+        for (String role : keklist.getConfig().getStringList("discord.ping-roles")) {
+            rolesBuilder.append("<@&").append(role).append("> ");
+        }
+        this.content = rolesBuilder.toString().trim();
 
-            client = builder.build();
+        keklist.getConfig().getStringList("discord.events").stream().map(EVENT_TYPE::getByConfigValue).filter(Objects::nonNull).forEach(triggerEvents::add);
 
-            embedBuilder = new WebhookEmbedBuilder();
-            embedBuilder.setFooter(new WebhookEmbed.EmbedFooter("Keklist v" + keklist.getPluginMeta().getVersion(), null));
+        dispatcher = Executors.newSingleThreadScheduledExecutor(job -> {
+            Thread thread = new Thread(job);
+            thread.setName("keklist-discord-webhook-thread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::dispatch, 1, 1, TimeUnit.SECONDS);
+    }
 
-            keklist.getConfig().getStringList("discord.events").stream().map(EVENT_TYPE::getByConfigValue).forEach(triggerEvents::add);
-        }
+    /**
+     * @return Notifications waiting for the dispatcher
+     */
+    public int getQueueSize() {
+        return queue.size();
     }
 
-    private void sendWebhookMessage(@NotNull WebhookEmbed message) {
-        if (client == null) init();
-        WebhookMessageBuilder builder = new WebhookMessageBuilder();
-        builder.addEmbeds(message);
-        builder.setAvatarUrl(keklist.getConfig().getString("discord.avatar-url"));
-        builder.setUsername(keklist.getConfig().getString("discord.username"));
+    /**
+     * Sends what is still queued and stops the dispatcher
+     * <p>
+     * Gives up after {@value #SHUTDOWN_TIMEOUT} milliseconds, also when Discord keeps rate limiting.
+     */
+    public void shutdown() {
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT;
+        dispatcher.shutdown();
 
-        StringBuilder rolesBuilder = new StringBuilder();
-        if (keklist.getConfig().getStringList("discord.ping-roles").isEmpty()) {
-            for (String role : keklist.getConfig().getStringList("discord.ping-roles")) {
-                rolesBuilder.append("<@&").append(role).append("> ");
+        try {
+            if (!dispatcher.awaitTermination(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS))
+                return;
+
+            // The dispatcher is stopped, so its state belongs to this thread now
+            while (!pending.isEmpty() || !queue.isEmpty() || !kicks.isEmpty()) {
+                long now = System.currentTimeMillis();
+                if (Math.max(now, retryAt) >= deadline)
+                    return;
+
+                if (now < retryAt)
+                    Thread.sleep(retryAt - now);
+
+                dispatch();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-
-        builder.setContent(rolesBuilder.toString().trim());
-        client.send(builder.build());
     }
 
     public void fireWhitelistEvent(@NotNull EVENT_TYPE type, @NotNull String entry, @Nullable String from, long unix) {
         switch (type) {
-            case WHITELIST_ADD -> {
-                if (!triggerEvents.contains(EVENT_TYPE.WHITELIST_ADD)) return;
-
-                embedBuilder.setTimestamp(new Date().toInstant());
-                embedBuilder.setColor(1545123);
-                embedBuilder.setTitle(new WebhookEmbed.EmbedTitle("Whitelist Add", null));
-                embedBuilder.setThumbnailUrl("https://cdn.discordapp.com/attachments/1056727727991959673/1101488230240616500/check-button.png");
-                embedBuilder.setDescription(Keklist.getTranslations().get("discord.whitelist.added", entry, from, "<t:" + (unix / 1000) + ":f>"));
-                sendWebhookMessage(embedBuilder.build());
-            }
-            case WHITELIST_REMOVE -> {
-                if (!triggerEvents.contains(EVENT_TYPE.WHITELIST_REMOVE)) return;
-
-                embedBuilder.setTimestamp(new Date().toInstant());
-                embedBuilder.setColor(11553045);
-                embedBuilder.setTitle(new WebhookEmbed.EmbedTitle("Whitelist Remove", null));
-                embedBuilder.setThumbnailUrl("https://cdn.discordapp.com/attachments/1056727727991959673/1101489868162465802/minus-taste.png");
-                embedBuilder.setDescription(Keklist.getTranslations().get("discord.whitelist.removed", entry, from, "<t:" + (unix / 1000) + ":f>"));
-                sendWebhookMessage(embedBuilder.build());
-            }
-            case WHITELIST_KICK -> {
-                if (!triggerEvents.contains(EVENT_TYPE.WHITELIST_KICK)) return;
-
-                embedBuilder.setTimestamp(new Date().toInstant());
-                embedBuilder.setColor(13418516);
-                embedBuilder.setTitle(new WebhookEmbed.EmbedTitle("Whitelist Kick", null));
-                embedBuilder.setThumbnailUrl("https://cdn.discordapp.com/attachments/1056727727991959673/1102636063761125496/alarm.png");
-                embedBuilder.setDescription(Keklist.getTranslations().get("discord.whitelist.kicked", entry, "<t:" + (unix / 1000) + ":f>"));
-                sendWebhookMessage(embedBuilder.build());
-            }
+            case WHITELIST_ADD -> enqueue(type, entry, embed(1545123, "Whitelist Add",
+                    "https://cdn.discordapp.com/attachments/1056727727991959673/1101488230240616500/check-button.png",
+                    Keklist.getTranslations().get("discord.whitelist.added", entry, from, "<t:" + (unix / 1000) + ":f>")));
+            case WHITELIST_REMOVE -> enqueue(type, entry, embed(11553045, "Whitelist Remove",
+                    "https://cdn.discordapp.com/attachments/1056727727991959673/1101489868162465802/minus-taste.png",
+                    Keklist.getTranslations().get("discord.whitelist.removed", entry, from, "<t:" + (unix / 1000) + ":f>")));
+            case WHITELIST_KICK -> enqueue(type, entry, embed(13418516, "Whitelist Kick",
+                    "https://cdn.discordapp.com/attachments/1056727727991959673/1102636063761125496/alarm.png",
+                    Keklist.getTranslations().get("discord.whitelist.kicked", entry, "<t:" + (unix / 1000) + ":f>")));
         }
     }
 
     public void fireBlacklistEvent(@NotNull EVENT_TYPE type, @NotNull String entry, @Nullable String from, @Nullable String reason, long unix) {
         switch (type) {
-            case BLACKLIST_ADD -> {
-                if (!triggerEvents.contains(EVENT_TYPE.BLACKLIST_ADD)) return;
-
-                embedBuilder.setTimestamp(new Date().toInstant());
-                embedBuilder.setColor(2005449);
-                embedBuilder.setTitle(new WebhookEmbed.EmbedTitle("Blacklist Add", null));
-                embedBuilder.setThumbnailUrl("https://cdn.discordapp.com/attachments/1056727727991959673/1102633373236740198/info-button.png");
-                embedBuilder.setDescription(Keklist.getTranslations().get("discord.blacklist.added", entry, from, reason, "<t:" + (unix / 1000) + ":f>"));
-                sendWebhookMessage(embedBuilder.build());
-            }
-            case BLACKLIST_REMOVE -> {
-                if (!triggerEvents.contains(EVENT_TYPE.BLACKLIST_REMOVE)) return;
-
-                embedBuilder.setTimestamp(new Date().toInstant());
-                embedBuilder.setColor(15226380);
-                embedBuilder.setTitle(new WebhookEmbed.EmbedTitle("Blacklist Remove", null));
-                embedBuilder.setThumbnailUrl("https://cdn.discordapp.com/attachments/1056727727991959673/1102633372867625001/schaltflache-loschen.png");
-                embedBuilder.setDescription(Keklist.getTranslations().get("discord.blacklist.removed", entry, from, "<t:" + (unix / 1000) + ":f>"));
-                sendWebhookMessage(embedBuilder.build());
-            }
-            case BLACKLIST_KICK -> {
-                if (!triggerEvents.contains(EVENT_TYPE.BLACKLIST_KICK)) return;
-
-                embedBuilder.setTimestamp(new Date().toInstant());
-                embedBuilder.setColor(13418516);
-                embedBuilder.setTitle(new WebhookEmbed.EmbedTitle("Blacklist Kick", null));
-                embedBuilder.setThumbnailUrl("https://cdn.discordapp.com/attachments/1056727727991959673/1102636063761125496/alarm.png");
-                embedBuilder.setDescription(Keklist.getTranslations().get("discord.blacklist.kicked", entry, "<t:" + (unix / 1000) + ":f>"));
-                sendWebhookMessage(embedBuilder.build());
-            }
+            case BLACKLIST_ADD -> enqueue(type, entry, embed(2005449, "Blacklist Add",
+                    "https://cdn.discordapp.com/attachments/1056727727991959673/1102633373236740198/info-button.png",
+                    Keklist.getTranslations().get("discord.blacklist.added", entry, from, reason, "<t:" + (unix / 1000) + ":f>")));
+            case BLACKLIST_REMOVE -> enqueue(type, entry, embed(15226380, "Blacklist Remove",
+                    "https://cdn.discordapp.com/attachments/1056727727991959673/1102633372867625001/schaltflache-loschen.png",
+                    Keklist.getTranslations().get("discord.blacklist.removed", entry, from, "<t:" + (unix / 1000) + ":f>")));
+            case BLACKLIST_KICK -> enqueue(type, entry, embed(13418516, "Blacklist Kick",
+                    "https://cdn.discordapp.com/attachments/1056727727991959673/1102636063761125496/alarm.png",
+                    Keklist.getTranslations().get("discord.blacklist.kicked", entry, from, "<t:" + (unix / 1000) + ":f>")));
         }
     }
 
     public void fireEvent(@NotNull EVENT_TYPE type, @NotNull String user, long unix) {
         switch (type) {
-            case LIMBO -> {
-                if (!triggerEvents.contains(EVENT_TYPE.LIMBO)) return;
-
-                embedBuilder.setTimestamp(new Date().toInstant());
-                embedBuilder.setColor(208180);
-                embedBuilder.setTitle(new WebhookEmbed.EmbedTitle("Limbo", null));
-                embedBuilder.setThumbnailUrl("https://cdn.discordapp.com/attachments/1056727727991959673/1102636063761125496/alarm.png");
-                embedBuilder.setDescription(Keklist.getTranslations().get("discord.limbo.kicked", user, "<t:" + (unix / 1000) + ":f>"));
-                sendWebhookMessage(embedBuilder.build());
+            case LIMBO -> enqueue(type, user, embed(208180, "Limbo",
+                    "https://cdn.discordapp.com/attachments/1056727727991959673/1102636063761125496/alarm.png",
+                    Keklist.getTranslations().get("discord.limbo.kicked", user, "<t:" + (unix / 1000) + ":f>")));
+        }
+    }
+
+    @NotNull
+    private WebhookEmbed embed(int color, @NotNull String title, @NotNull String thumbnail, @NotNull String description) {
+        // A new builder for every event, the events are fired from many threads
+        return new WebhookEmbedBuilder()
+                .setTimestamp(Instant.now())
+                .setColor(color)
+                .setTitle(new WebhookEmbed.EmbedTitle(title, null))
+                .setThumbnailUrl(thumbnail)
+                .setDescription(truncate(description))
+                .setFooter(new WebhookEmbed.EmbedFooter(footer, null))
+                .build();
+    }
+
+    private void enqueue(@NotNull EVENT_TYPE type, @NotNull String entry, @NotNull WebhookEmbed embed) {
+        if (!triggerEvents.contains(type)) return;
+
+        if (KICKS.contains(type)) {
+            kicks.compute(type, (key, collected) -> (collected == null ? new Kicks(embed) : collected).add(entry));
+        } else if (!queue.offer(embed)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void dispatch() {
+        try {
+            if (System.currentTimeMillis() < retryAt) return;
+
+            if (pending.isEmpty()) {
+                for (EVENT_TYPE type : KICKS) {
+                    Kicks collected = kicks.remove(type);
+                    if (collected != null)
+                        pending.add(collected.toEmbed(type));
+                }
+
+                queue.drainTo(pending, MAX_EMBEDS - pending.size());
+                if (pending.isEmpty()) return;
+            }
+
+            int lost = dropped.getAndSet(0);
+            if (lost > 0)
+                keklist.getLogger().warning(Keklist.getTranslations().get("discord.dropped", lost));
+
+            send();
+        } catch (Exception e) {
+            // Never let an exception cancel the scheduled dispatcher
+            pending.clear();
+            e.printStackTrace();
+        }
+    }
+
+    private void send() {
+        List<WebhookEmbed> batch = pending.subList(0, batchSize());
+
+        WebhookMessageBuilder builder = new WebhookMessageBuilder();
+        builder.addEmbeds(batch);
+        builder.setAvatarUrl(avatarUrl);
+        builder.setUsername(username);
+        builder.setAllowedMentions(AllowedMentions.all());
+
+        if (!content.isEmpty())
+            builder.setContent(content);
+
+        Request request = new Request.Builder().url(url).post(builder.build().getBody()).build();
+
+        try (Response response = client.newCall(request).execute()) {
+            long now = System.currentTimeMillis();
+
+            if (response.code() == 429) {
+                // The batch is kept and sent again once Discord allows it
+                retryAt = now + seconds(response.header("Retry-After"), 1000);
+                return;
+            }
+
+            if ("0".equals(response.header("X-RateLimit-Remaining")))
+                retryAt = now + seconds(response.header("X-RateLimit-Reset-After"), 0);
+
+            if (response.code() == 400 && batch.size() > 1) {
+                // One embed Discord does not accept must not take the others with it
+                isolated = batch.size();
+                return;
             }
+
+            if (!response.isSuccessful())
+                keklist.getLogger().warning(Keklist.getTranslations().get("discord.http.send-error", response.code()));
+        } catch (IOException e) {
+            keklist.getLogger().warning(Keklist.getTranslations().get("discord.http.send-error", e.getMessage()));
+        }
+
+        if (isolated > 0)
+            isolated--;
+        batch.clear();
+    }
+
+    /**
+     * @return How many of the pending embeds fit into the next message
+     */
+    private int batchSize() {
+        if (isolated > 0)
+            return 1;
+
+        int size = 0;
+        int length = 0;
+
+        for (WebhookEmbed embed : pending) {
+            length += length(embed);
+            if (size > 0 && length > MAX_MESSAGE_LENGTH)
+                break;
+            size++;
+        }
+
+        return size;
+    }
+
+    private static int length(@NotNull WebhookEmbed embed) {
+        int length = 0;
+
+        if (embed.getTitle() != null)
+            length += embed.getTitle().getText().length();
+        if (embed.getDescription() != null)
+            length += embed.getDescription().length();
+        if (embed.getFooter() != null)
+            length += embed.getFooter().getText().length();
+
+        return length;
+    }
+
+    @NotNull
+    private static String truncate(@NotNull String description) {
+        return description.length() <= MAX_DESCRIPTION_LENGTH ? description : description.substring(0, MAX_DESCRIPTION_LENGTH - 3) + "...";
+    }
+
+    private static long seconds(@Nullable String header, long fallback) {
+        if (header == null) return fallback;
+
+        try {
+            return (long) Math.ceil(Double.parseDouble(header) * 1000);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Kicks of one type since the last message
+     */
+    private static class Kicks {
+        private final WebhookEmbed first;
+        private final List<String> entries = new ArrayList<>(SUMMARY_ENTRIES);
+        private int count;
+
+        private Kicks(@NotNull WebhookEmbed first) {
+            this.first = first;
+        }
+
+        @NotNull
+        private Kicks add(@NotNull String entry) {
+            if (entries.size() < SUMMARY_ENTRIES)
+                entries.add(entry);
+            count++;
+            return this;
+        }
+
+        @NotNull
+        private WebhookEmbed toEmbed(@NotNull EVENT_TYPE type) {
+            if (count == 1)
+                return first;
+
+            String names = String.join(", ", entries) + (count > entries.size() ? ", ..." : "");
+            return new WebhookEmbedBuilder(first)
+                    .setTimestamp(Instant.now())
+                    .setDescription(truncate(Keklist.getTranslations().get("discord.kick-summary", count, names)))
+                    .build();
         }
     }
 
@@ -9,25 +9,14 @@ import org.bukkit.entity.Player;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.jetbrains.annotations.NotNull;
 
-import java.sql.ResultSet;
-
 public class BlacklistedCalculator implements ContextCalculator<Player> {
 
     private static final String KEY = "keklist:blacklisted";
 
     @Override
     public void calculate(@NonNull Player player, @NonNull ContextConsumer contextConsumer) {
-        ResultSet rsUser = Keklist.getDatabase().onQuery("SELECT * FROM blacklist WHERE uuid = ?", player.getUniqueId().toString());
-
-        try {
-            if (rsUser.next())
-                contextConsumer.accept(KEY, "true");
-            else
-                contextConsumer.accept(KEY, "false");
-
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        // LuckPerms calls this very often and sometimes on the main thread, so it is answered from memory only
+        contextConsumer.accept(KEY, String.valueOf(Keklist.getListCache().isBlacklisted(player.getUniqueId())));
     }
 
     @Override
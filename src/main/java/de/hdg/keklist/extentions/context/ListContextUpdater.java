@@ -0,0 +1,51 @@
+package de.hdg.keklist.extentions.context;
+
+import de.hdg.keklist.Keklist;
+import de.hdg.keklist.database.ListCache;
+import net.luckperms.api.context.ContextManager;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * Tells LuckPerms to calculate the contexts of a player again once they were black- or whitelisted or removed,
+ * no matter if the change came from a command, the API or another server
+ */
+public class ListContextUpdater implements ListCache.ChangeListener {
+
+    private final ContextManager contextManager;
+
+    public ListContextUpdater(@NotNull ContextManager contextManager) {
+        this.contextManager = contextManager;
+    }
+
+    @Override
+    public void onAdd(@NotNull ListCache.ListType type, @NotNull String key) {
+        signal(type, key);
+    }
+
+    @Override
+    public void onRemove(@NotNull ListCache.ListType type, @NotNull String key) {
+        signal(type, key);
+    }
+
+    private void signal(@NotNull ListCache.ListType type, @NotNull String key) {
+        if (type != ListCache.ListType.BLACKLIST && type != ListCache.ListType.WHITELIST) return;
+
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(key);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+
+        // Changes may come from any thread
+        Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> {
+            Player player = Bukkit.getPlayer(uuid);
+            if (player != null)
+                contextManager.signalContextUpdate(player);
+        });
+    }
+}
@@ -0,0 +1,179 @@
+package de.hdg.keklist.gui;
+
+import de.hdg.keklist.Keklist;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Pages of the black- and whitelist GUIs, loaded from the database in the background
+ * <p>
+ * A list consists of sections, e.g. players followed by ips. Every section is read with a keyset query, so a page
+ * only fetches its own rows, no matter how far the viewer browsed. Each viewer keeps where their visited pages start,
+ * the page before and after the current one are kept and the next page is loaded while the current one is shown.
+ * <p>
+ * Viewers are only touched on the main thread.
+ */
+public class ListPager {
+
+    public static final int PAGE_SIZE = 18;
+
+    private final List<Section> sections;
+    private final BiFunction<Integer, Page, Inventory> renderer;
+    private final Map<UUID, Viewer> viewers = new HashMap<>();
+
+    /**
+     * @param sections Shown one after another
+     * @param renderer Creates the inventory for a page index and page, called on the main thread
+     */
+    public ListPager(@NotNull List<Section> sections, @NotNull BiFunction<Integer, Page, Inventory> renderer) {
+        this.sections = List.copyOf(sections);
+        this.renderer = renderer;
+    }
+
+    /**
+     * Opens a page once it is loaded
+     *
+     * @param player    The viewer
+     * @param pageIndex The page, 0 starts over with fresh data
+     */
+    public void open(@NotNull Player player, int pageIndex) {
+        Viewer viewer = viewers.get(player.getUniqueId());
+
+        // Pages can only be reached from the one before, everything else starts over
+        if (pageIndex <= 0 || viewer == null || pageIndex >= viewer.starts().size()) {
+            viewer = new Viewer();
+            viewers.put(player.getUniqueId(), viewer);
+            pageIndex = 0;
+        }
+
+        Viewer current = viewer;
+        int index = pageIndex;
+
+        current.pages().keySet().removeIf(cached -> Math.abs(cached - index) > 1);
+        load(current, index).whenComplete((loaded, throwable) -> Bukkit.getScheduler().runTask(Keklist.getInstance(), () -> {
+            if (!player.isOnline() || viewers.get(player.getUniqueId()) != current) return;
+
+            if (throwable != null) {
+                current.pages().remove(index);
+                player.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("gui.list.load-error")));
+                throwable.printStackTrace();
+                return;
+            }
+
+            if (loaded.next() != null) {
+                if (current.starts().size() == index + 1)
+                    current.starts().add(loaded.next());
+
+                // Most viewers go on to the next page
+                load(current, index + 1);
+            }
+
+            player.openInventory(renderer.apply(index, loaded.page()));
+        }));
+    }
+
+    /**
+     * Drops the pages of a viewer, e.g. when they left
+     */
+    public void forget(@NotNull Player player) {
+        viewers.remove(player.getUniqueId());
+    }
+
+    @NotNull
+    private CompletableFuture<Loaded> load(@NotNull Viewer viewer, int index) {
+        return viewer.pages().computeIfAbsent(index, key -> fill(viewer.starts().get(key), new ArrayList<>()));
+    }
+
+    /**
+     * Collects one row more than fits on a page, which tells whether there is a next page and where it starts
+     */
+    @NotNull
+    private CompletableFuture<Loaded> fill(@NotNull Cursor cursor, @NotNull List<Slot> slots) {
+        if (cursor.section() >= sections.size())
+            return CompletableFuture.completedFuture(toPage(slots));
+
+        int wanted = PAGE_SIZE + 1 - slots.size();
+        return sections.get(cursor.section()).load(cursor.after(), wanted).thenCompose(rows -> {
+            rows.forEach(row -> slots.add(new Slot(cursor.section(), row)));
+
+            if (slots.size() > PAGE_SIZE)
+                return CompletableFuture.completedFuture(toPage(slots));
+
+            // The section is exhausted, the page goes on with the next one
+            return fill(new Cursor(cursor.section() + 1, null), slots);
+        });
+    }
+
+    @NotNull
+    private static Loaded toPage(@NotNull List<Slot> slots) {
+        if (slots.size() <= PAGE_SIZE)
+            return new Loaded(new Page(slots.stream().map(Slot::row).toList(), false), null);
+
+        Slot last = slots.get(PAGE_SIZE - 1);
+        return new Loaded(new Page(slots.subList(0, PAGE_SIZE).stream().map(Slot::row).toList(), true), new Cursor(last.section(), last.row().key()));
+    }
+
+    /**
+     * A part of the list, e.g. the blacklisted players
+     */
+    @FunctionalInterface
+    public interface Section {
+
+        /**
+         * Reads the rows after a key, ordered by the key
+         *
+         * @param after The key of the last row of the previous page or null to start at the beginning
+         * @param limit Maximum number of rows
+         */
+        @NotNull
+        CompletableFuture<List<Row>> load(@Nullable String after, int limit);
+    }
+
+    /**
+     * An entry of the list
+     *
+     * @param key  The key the section is ordered by
+     * @param item Creates the item, called on the main thread when the page is shown
+     */
+    public record Row(@NotNull String key, @NotNull Supplier<ItemStack> item) {
+    }
+
+    /**
+     * @param rows    At most {@link #PAGE_SIZE} rows
+     * @param hasNext Whether there is a next page
+     */
+    public record Page(@NotNull List<Row> rows, boolean hasNext) {
+    }
+
+    /**
+     * @param next Where the next page starts or null if this is the last page
+     */
+    private record Loaded(@NotNull Page page, @Nullable Cursor next) {
+    }
+
+    private record Cursor(int section, @Nullable String after) {
+    }
+
+    private record Slot(int section, @NotNull Row row) {
+    }
+
+    private record Viewer(List<Cursor> starts, Map<Integer, CompletableFuture<Loaded>> pages) {
+
+        private Viewer() {
+            this(new ArrayList<>(List.of(new Cursor(0, null))), new HashMap<>());
+        }
+    }
+}
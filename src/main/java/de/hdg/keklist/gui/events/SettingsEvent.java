@@ -1,6 +1,7 @@
 package de.hdg.keklist.gui.events;
 
 import de.hdg.keklist.Keklist;
+import de.hdg.keklist.database.ListCache;
 import de.hdg.keklist.gui.GuiManager;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
@@ -12,7 +13,6 @@ import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
-import java.sql.ResultSet;
 import java.util.Collections;
 import java.util.List;
 
@@ -55,6 +55,7 @@ public class SettingsEvent implements Listener {
                     if (!Keklist.getInstance().getConfig().getBoolean("whitelist.enabled")) {
                         Keklist.getInstance().getConfig().set("whitelist.enabled", true);
                         Keklist.getInstance().saveConfig();
+                        Keklist.getInstance().reloadSettings();
 
                         player.sendMessage(
                                 Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.enabled"))
@@ -71,6 +72,7 @@ public class SettingsEvent implements Listener {
                     if (Keklist.getInstance().getConfig().getBoolean("whitelist.enabled")) {
                         Keklist.getInstance().getConfig().set("whitelist.enabled", false);
                         Keklist.getInstance().saveConfig();
+                        Keklist.getInstance().reloadSettings();
 
                         player.sendMessage(
                                 Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("whitelist.disabled")));
@@ -89,18 +91,8 @@ public class SettingsEvent implements Listener {
     private void openWhitelistGUI(Player player) {
         Inventory whitelist = Keklist.getInstance().getServer().createInventory(player, 9 * 3, Keklist.getInstance().getMiniMessage().deserialize("<gold><b>Whitelist Settings"));
 
-        ResultSet rsPlayers = Keklist.getDatabase().onQuery("SELECT COUNT(*) FROM whitelist");
-        ResultSet rsIPs = Keklist.getDatabase().onQuery("SELECT COUNT(*) FROM whitelistIp");
-
-        int whitelistedPlayers = 0;
-        int whitelistedIPs = 0;
-
-        try {
-            if (rsPlayers.next()) whitelistedPlayers = rsPlayers.getInt(1);
-            if (rsIPs.next()) whitelistedIPs = rsIPs.getInt(1);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        int whitelistedPlayers = Keklist.getStats().listSize(ListCache.ListType.WHITELIST);
+        int whitelistedIPs = Keklist.getStats().listSize(ListCache.ListType.WHITELIST_IP);
 
         ItemStack enable = new ItemStack(Material.LIME_DYE);
         ItemMeta enableMeta = enable.getItemMeta();
@@ -167,6 +159,7 @@ public class SettingsEvent implements Listener {
                     if (!Keklist.getInstance().getConfig().getBoolean("blacklist.enabled")) {
                         Keklist.getInstance().getConfig().set("blacklist.enabled", true);
                         Keklist.getInstance().saveConfig();
+                        Keklist.getInstance().reloadSettings();
 
                         player.sendMessage(
                                 Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.enabled"))
@@ -183,6 +176,7 @@ public class SettingsEvent implements Listener {
                     if (Keklist.getInstance().getConfig().getBoolean("blacklist.enabled")) {
                         Keklist.getInstance().getConfig().set("blacklist.enabled", false);
                         Keklist.getInstance().saveConfig();
+                        Keklist.getInstance().reloadSettings();
 
                         player.sendMessage(
                                 Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("blacklist.disabled"))
@@ -203,21 +197,9 @@ public class SettingsEvent implements Listener {
     private void openBlacklistGUI(Player player) {
         Inventory blacklist = Keklist.getInstance().getServer().createInventory(player, 9 * 3, Keklist.getInstance().getMiniMessage().deserialize("<gold><b>Blacklist Settings"));
 
-        ResultSet rsPlayers = Keklist.getDatabase().onQuery("SELECT COUNT(*) FROM blacklist");
-        ResultSet rsIPs = Keklist.getDatabase().onQuery("SELECT COUNT(*) FROM blacklistIp");
-        ResultSet rsMOTD = Keklist.getDatabase().onQuery("SELECT COUNT(*) FROM blacklistMotd");
-
-        int blacklistedPlayers = 0;
-        int blacklistedIPS = 0;
-        int blacklistedMotd = 0;
-
-        try {
-            if (rsPlayers.next()) blacklistedPlayers = rsPlayers.getInt(1);
-            if (rsIPs.next()) blacklistedIPS = rsIPs.getInt(1);
-            if (rsMOTD.next()) blacklistedMotd = rsMOTD.getInt(1);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        int blacklistedPlayers = Keklist.getStats().listSize(ListCache.ListType.BLACKLIST);
+        int blacklistedIPS = Keklist.getStats().listSize(ListCache.ListType.BLACKLIST_IP);
+        int blacklistedMotd = Keklist.getStats().listSize(ListCache.ListType.BLACKLIST_MOTD);
 
         ItemStack enable = new ItemStack(Material.LIME_DYE);
         ItemMeta enableMeta = enable.getItemMeta();
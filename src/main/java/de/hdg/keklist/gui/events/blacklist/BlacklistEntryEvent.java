@@ -1,6 +1,9 @@
 package de.hdg.keklist.gui.events.blacklist;
 
 import de.hdg.keklist.Keklist;
+import de.hdg.keklist.database.ListCache;
+import de.hdg.keklist.database.repository.BlacklistRepository;
+import de.hdg.keklist.database.repository.MotdBlacklistRepository;
 import de.hdg.keklist.util.LanguageUtil;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import org.bukkit.Bukkit;
@@ -16,7 +19,6 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -47,14 +49,15 @@ public class BlacklistEntryEvent implements Listener {
                     ItemStack item = event.getCurrentItem();
 
                     String username = PlainTextComponentSerializer.plainText().serialize(item.getItemMeta().displayName());
-                    ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklist WHERE name = ?", username);
 
                     try {
-                        if (rs.next()) {
-                            long unix = rs.getLong("unix");
-                            String byPlayer = rs.getString("byPlayer");
-                            UUID uuid = UUID.fromString(rs.getString("uuid"));
-                            String reason = Objects.equals(rs.getString("reason") == null ? "No reason given" : "Some reason", "No reason given") ? translations.get("gui.blacklist.entry.reason.none") : translations.get("gui.blacklist.entry.reason.found");
+                        Optional<BlacklistRepository.Entry> entry = Keklist.getDatabase().getBlacklist().findByName(username);
+
+                        if (entry.isPresent()) {
+                            long unix = entry.get().unix();
+                            String byPlayer = entry.get().byPlayer();
+                            UUID uuid = entry.get().uuid();
+                            String reason = Objects.equals(entry.get().reason() == null ? "No reason given" : "Some reason", "No reason given") ? translations.get("gui.blacklist.entry.reason.none") : translations.get("gui.blacklist.entry.reason.found");
 
                             SimpleDateFormat sdf = new SimpleDateFormat(Keklist.getInstance().getConfig().getString("date-format"));
 
@@ -104,13 +107,14 @@ public class BlacklistEntryEvent implements Listener {
                     ItemStack item = event.getCurrentItem();
 
                     String ip = serializer.serialize(item.getItemMeta().displayName());
-                    ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklistIp WHERE ip = ?", ip);
 
                     try {
-                        if (rs.next()) {
-                            long unix = rs.getLong("unix");
-                            String byPlayer = rs.getString("byPlayer");
-                            String reason = Objects.equals(rs.getString("reason") == null ? "No reason given" : "Some reason", "No reason given") ? translations.get("gui.blacklist.entry.reason.none") : translations.get("gui.blacklist.entry.reason.found");
+                        Optional<BlacklistRepository.IpEntry> entry = Keklist.getDatabase().getBlacklist().findIp(ip);
+
+                        if (entry.isPresent()) {
+                            long unix = entry.get().unix();
+                            String byPlayer = entry.get().byPlayer();
+                            String reason = Objects.equals(entry.get().reason() == null ? "No reason given" : "Some reason", "No reason given") ? translations.get("gui.blacklist.entry.reason.none") : translations.get("gui.blacklist.entry.reason.found");
 
                             SimpleDateFormat sdf = new SimpleDateFormat(Keklist.getInstance().getConfig().getString("date-format"));
 
@@ -162,12 +166,13 @@ public class BlacklistEntryEvent implements Listener {
                     ItemStack item = event.getCurrentItem();
 
                     String ip = serializer.serialize(item.getItemMeta().displayName()).replace("(MOTD)", "");
-                    ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM blacklistMotd WHERE ip = ?", ip);
 
                     try {
-                        if (rs.next()) {
-                            long unix = rs.getLong("unix");
-                            String byPlayer = rs.getString("byPlayer");
+                        Optional<MotdBlacklistRepository.Entry> entry = Keklist.getDatabase().getMotdBlacklist().find(ip);
+
+                        if (entry.isPresent()) {
+                            long unix = entry.get().unix();
+                            String byPlayer = entry.get().byPlayer();
 
                             SimpleDateFormat sdf = new SimpleDateFormat(Keklist.getInstance().getConfig().getString("date-format"));
 
@@ -217,7 +222,7 @@ public class BlacklistEntryEvent implements Listener {
     }
 
     @EventHandler
-    public void onBackClick(InventoryClickEvent event) throws SQLException {
+    public void onBackClick(InventoryClickEvent event) {
         if (event.getClickedInventory() == null) return;
         if (event.getView().title().equals(Keklist.getInstance().getMiniMessage().deserialize("<blue><b>Blacklisted Player"))
                 || event.getView().title().equals(Keklist.getInstance().getMiniMessage().deserialize("<blue><b>Blacklisted IP"))
@@ -233,27 +238,8 @@ public class BlacklistEntryEvent implements Listener {
             }
 
             if (event.getCurrentItem().getType() == Material.ARROW) {
-                int pageIndex = event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER);
-                int skipIndex = event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Keklist.getInstance(), "skipIndex"), PersistentDataType.INTEGER);
-                boolean onlyPlayer = false;
-                boolean onlyIp = false;
-                boolean onlyMotd = false;
-                try {
-                    onlyPlayer = 0 != event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Keklist.getInstance(), "onlyPlayer"), PersistentDataType.INTEGER);
-                } catch (Exception ignored) {
-                }
-
-                try {
-                    onlyIp = 0 != event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Keklist.getInstance(), "onlyIP"), PersistentDataType.INTEGER);
-                } catch (Exception ignored) {
-                }
-
-                try {
-                    onlyMotd = 0 != event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Keklist.getInstance(), "onlyMOTD"), PersistentDataType.INTEGER);
-                } catch (Exception ignored) {
-                }
-
-                player.openInventory(BlacklistEvent.getPage(pageIndex, skipIndex, onlyPlayer, onlyIp, onlyMotd));
+                int pageIndex = event.getCurrentItem().getItemMeta().getPersistentDataContainer().getOrDefault(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER, 0);
+                BlacklistEvent.openPage(player, pageIndex);
             }
         }
     }
@@ -278,12 +264,13 @@ public class BlacklistEntryEvent implements Listener {
                 ItemStack item = event.getClickedInventory().getItem(4);
                 String username = PlainTextComponentSerializer.plainText().serialize(item.getItemMeta().displayName());
 
-                Keklist.getDatabase().onUpdate("DELETE FROM blacklist WHERE name = ?", username);
+                Keklist.getDatabase().getBlacklist().removeByName(username);
+                Keklist.getListCache().removeByName(ListCache.ListType.BLACKLIST, username);
                 player.sendMessage(
                         Keklist.getInstance().getMiniMessage().deserialize(translations.get("gui.blacklist.entry.player.removed", username))
                 );
 
-                player.openInventory(BlacklistEvent.getPage(0, 0, false, false, false)); // We can't use the back arrow here because the player is not in the inventory anymore and values may change
+                BlacklistEvent.openPage(player, 0); // We can't use the back arrow here because the player is not in the inventory anymore and values may change
             }
         } else if (event.getView().title().equals(Keklist.getInstance().getMiniMessage().deserialize("<blue><b>Blacklisted IP"))) {
             event.setCancelled(true);
@@ -297,10 +284,11 @@ public class BlacklistEntryEvent implements Listener {
                 ItemStack item = event.getClickedInventory().getItem(4);
                 String ip = PlainTextComponentSerializer.plainText().serialize(item.getItemMeta().displayName());
 
-                Keklist.getDatabase().onUpdate("DELETE FROM blacklistIp WHERE ip = ?", ip);
+                Keklist.getDatabase().getBlacklist().removeIp(ip);
+                Keklist.getListCache().remove(ListCache.ListType.BLACKLIST_IP, ip);
                 player.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(translations.get("gui.blacklist.entry.ip.removed", ip)));
 
-                player.openInventory(BlacklistEvent.getPage(0, 0, false, false, false)); // We can't use the back arrow here because the player is not in the inventory anymore and values may change
+                BlacklistEvent.openPage(player, 0); // We can't use the back arrow here because the player is not in the inventory anymore and values may change
             }
         } else if (event.getView().title().equals(Keklist.getInstance().getMiniMessage().deserialize("<blue><b>Blacklisted MOTD-IP"))) {
             event.setCancelled(true);
@@ -314,10 +302,11 @@ public class BlacklistEntryEvent implements Listener {
                 ItemStack item = event.getClickedInventory().getItem(4);
                 String ip = PlainTextComponentSerializer.plainText().serialize(item.getItemMeta().displayName()).replace("(MOTD)", "");
 
-                Keklist.getDatabase().onUpdate("DELETE FROM blacklistMotd WHERE ip = ?", ip);
+                Keklist.getDatabase().getMotdBlacklist().remove(ip);
+                Keklist.getListCache().remove(ListCache.ListType.BLACKLIST_MOTD, ip);
                 player.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(translations.get("gui.blacklist.entry.motd.removed", ip)));
 
-                player.openInventory(BlacklistEvent.getPage(0, 0, false, false, false)); // We can't use the back arrow here because the player is not in the inventory anymore and values may change
+                BlacklistEvent.openPage(player, 0); // We can't use the back arrow here because the player is not in the inventory anymore and values may change
             }
         }
     }
@@ -336,11 +325,6 @@ public class BlacklistEntryEvent implements Listener {
         ItemMeta meta = item.getItemMeta();
         PersistentDataContainer container = meta.getPersistentDataContainer();
         container.set(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER, 0);
-        container.set(new NamespacedKey(Keklist.getInstance(), "skipIndex"), PersistentDataType.INTEGER, 0);
-        container.set(new NamespacedKey(Keklist.getInstance(), "onlyPlayer"), PersistentDataType.INTEGER, 0); // boolean workaround
-        container.set(new NamespacedKey(Keklist.getInstance(), "onlyIP"), PersistentDataType.INTEGER, 0); // boolean workaround
-        container.set(new NamespacedKey(Keklist.getInstance(), "onlyMOTD"), PersistentDataType.INTEGER, 0); // boolean workaround
-
 
         item.setItemMeta(meta);
         return item;
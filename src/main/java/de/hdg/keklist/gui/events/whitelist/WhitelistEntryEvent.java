@@ -1,6 +1,8 @@
 package de.hdg.keklist.gui.events.whitelist;
 
 import de.hdg.keklist.Keklist;
+import de.hdg.keklist.database.ListCache;
+import de.hdg.keklist.database.repository.WhitelistRepository;
 import de.hdg.keklist.util.LanguageUtil;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import org.bukkit.Bukkit;
@@ -16,12 +18,12 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public class WhitelistEntryEvent implements Listener {
@@ -49,13 +51,14 @@ public class WhitelistEntryEvent implements Listener {
                     ItemStack item = event.getCurrentItem();
 
                     String username = PlainTextComponentSerializer.plainText().serialize(item.getItemMeta().displayName());
-                    ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelist WHERE name = ?", username);
 
                     try {
-                        if (rs.next()) {
-                            long unix = rs.getLong("unix");
-                            String byPlayer = rs.getString("byPlayer");
-                            UUID uuid = UUID.fromString(rs.getString("uuid"));
+                        Optional<WhitelistRepository.Entry> entry = Keklist.getDatabase().getWhitelist().findByName(username);
+
+                        if (entry.isPresent()) {
+                            long unix = entry.get().unix();
+                            String byPlayer = entry.get().byPlayer();
+                            UUID uuid = entry.get().uuid();
 
                             SimpleDateFormat sdf = new SimpleDateFormat(Keklist.getInstance().getConfig().getString("date-format"));
 
@@ -104,12 +107,13 @@ public class WhitelistEntryEvent implements Listener {
                     ItemStack item = event.getCurrentItem();
 
                     String ip = serializer.serialize(item.getItemMeta().displayName());
-                    ResultSet rs = Keklist.getDatabase().onQuery("SELECT * FROM whitelistIp WHERE ip = ?", ip);
 
                     try {
-                        if (rs.next()) {
-                            long unix = rs.getLong("unix");
-                            String byPlayer = rs.getString("byPlayer");
+                        Optional<WhitelistRepository.IpEntry> entry = Keklist.getDatabase().getWhitelist().findIp(ip);
+
+                        if (entry.isPresent()) {
+                            long unix = entry.get().unix();
+                            String byPlayer = entry.get().byPlayer();
 
                             SimpleDateFormat sdf = new SimpleDateFormat(Keklist.getInstance().getConfig().getString("date-format"));
 
@@ -159,7 +163,7 @@ public class WhitelistEntryEvent implements Listener {
     }
 
     @EventHandler
-    public void onBackClick(InventoryClickEvent event) throws SQLException {
+    public void onBackClick(InventoryClickEvent event) {
         if (event.getClickedInventory() == null) return;
         if (event.getView().title().equals(Keklist.getInstance().getMiniMessage().deserialize("<blue><b>Whitelisted Player")) || event.getView().title().equals(Keklist.getInstance().getMiniMessage().deserialize("<blue><b>Whitelisted IP"))) {
             event.setCancelled(true);
@@ -173,21 +177,8 @@ public class WhitelistEntryEvent implements Listener {
             }
 
             if (event.getCurrentItem().getType() == Material.ARROW) {
-                int pageIndex = event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER);
-                int skipIndex = event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Keklist.getInstance(), "skipIndex"), PersistentDataType.INTEGER);
-                boolean onlyPlayer = false;
-                boolean onlyIp = false;
-                try {
-                    onlyPlayer = 0 != event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Keklist.getInstance(), "onlyPlayer"), PersistentDataType.INTEGER);
-                } catch (Exception ignored) {
-                }
-
-                try {
-                    onlyIp = 0 != event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Keklist.getInstance(), "onlyIP"), PersistentDataType.INTEGER);
-                } catch (Exception ignored) {
-                }
-
-                player.openInventory(WhitelistEvent.getPage(pageIndex, skipIndex, onlyPlayer, onlyIp));
+                int pageIndex = event.getCurrentItem().getItemMeta().getPersistentDataContainer().getOrDefault(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER, 0);
+                WhitelistEvent.openPage(player, pageIndex);
             }
         }
     }
@@ -212,12 +203,13 @@ public class WhitelistEntryEvent implements Listener {
                 ItemStack item = event.getClickedInventory().getItem(4);
                 String username = PlainTextComponentSerializer.plainText().serialize(item.getItemMeta().displayName());
 
-                Keklist.getDatabase().onUpdate("DELETE FROM whitelist WHERE name = ?", username);
+                Keklist.getDatabase().getWhitelist().removeByName(username);
+                Keklist.getListCache().removeByName(ListCache.ListType.WHITELIST, username);
                 player.sendMessage(
                         Keklist.getInstance().getMiniMessage().deserialize(translations.get("gui.whitelist.entry.player.removed", username))
                 );
 
-                player.openInventory(WhitelistEvent.getPage(0, 0, false, false)); // We can't use the back arrow here because the player is not in the inventory anymore and values may change
+                WhitelistEvent.openPage(player, 0); // We can't use the back arrow here because the player is not in the inventory anymore and values may change
             }
         } else if (event.getView().title().equals(Keklist.getInstance().getMiniMessage().deserialize("<blue><b>Whitelisted IP"))) {
             event.setCancelled(true);
@@ -231,20 +223,16 @@ public class WhitelistEntryEvent implements Listener {
                 ItemStack item = event.getClickedInventory().getItem(4);
                 String ip = PlainTextComponentSerializer.plainText().serialize(item.getItemMeta().displayName());
 
-                Keklist.getDatabase().onUpdate("DELETE FROM whitelistIp WHERE ip = ?", ip);
+                Keklist.getDatabase().getWhitelist().removeIp(ip);
+                Keklist.getListCache().remove(ListCache.ListType.WHITELIST_IP, ip);
                 player.sendMessage(Keklist.getInstance().getMiniMessage().deserialize(translations.get("gui.whitelist.entry.ip.removed", ip)));
 
-                player.openInventory(WhitelistEvent.getPage(0, 0, false, false)); // We can't use the back arrow here because the player is not in the inventory anymore and values may change
+                WhitelistEvent.openPage(player, 0); // We can't use the back arrow here because the player is not in the inventory anymore and values may change
             }
         }
     }
 
     private ItemStack getBackArrow() {
-        int pageIndex = 0;
-        int skipIndex = 0;
-        boolean onlyPlayer = false;
-        boolean onlyIp = false;
-
         ItemStack item = new ItemStack(Material.ARROW);
         item.editMeta(meta -> {
             meta.displayName(
@@ -257,10 +245,7 @@ public class WhitelistEntryEvent implements Listener {
 
         ItemMeta meta = item.getItemMeta();
         PersistentDataContainer container = meta.getPersistentDataContainer();
-        container.set(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER, pageIndex);
-        container.set(new NamespacedKey(Keklist.getInstance(), "skipIndex"), PersistentDataType.INTEGER, skipIndex);
-        container.set(new NamespacedKey(Keklist.getInstance(), "onlyPlayer"), PersistentDataType.INTEGER, onlyPlayer ? 1 : 0);
-        container.set(new NamespacedKey(Keklist.getInstance(), "onlyIP"), PersistentDataType.INTEGER, onlyIp ? 1 : 0);
+        container.set(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER, 0);
 
         item.setItemMeta(meta);
         return item;
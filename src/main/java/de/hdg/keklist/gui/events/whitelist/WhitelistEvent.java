@@ -1,7 +1,9 @@
 package de.hdg.keklist.gui.events.whitelist;
 
 import de.hdg.keklist.Keklist;
+import de.hdg.keklist.database.repository.WhitelistRepository;
 import de.hdg.keklist.gui.GuiManager;
+import de.hdg.keklist.gui.ListPager;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import org.bukkit.Bukkit;
@@ -17,13 +19,13 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.SignChangeEvent;
 import org.bukkit.event.inventory.*;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.SkullMeta;
 import org.bukkit.persistence.PersistentDataType;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -31,6 +33,15 @@ import java.util.concurrent.TimeUnit;
 
 public class WhitelistEvent implements Listener {
 
+    // Players, then ips
+    private static final ListPager pager = new ListPager(List.of(
+            (after, limit) -> Keklist.getDatabase().getWhitelist().findPage(after, limit).thenCompose(entries -> Keklist.getSkinCache()
+                    .load(entries.stream().map(WhitelistRepository.Entry::uuid).toList())
+                    .thenApply(loaded -> entries.stream().map(entry -> new ListPager.Row(entry.displayName(), () -> playerItem(entry.uuid(), entry.name()))).toList())),
+            (after, limit) -> Keklist.getDatabase().getWhitelist().findIpPage(after, limit).thenApply(entries -> entries.stream()
+                    .map(entry -> new ListPager.Row(entry.ip(), () -> entryItem(Material.BOOK, entry.ip()))).toList())
+    ), WhitelistEvent::render);
+
     private final HashMap<Location, BlockData> signMap = new HashMap<>();
     private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
 
@@ -100,7 +111,7 @@ public class WhitelistEvent implements Listener {
                     Bukkit.getOnlinePlayers().forEach(p -> p.sendBlockChange(location, Material.AIR.createBlockData()));
                     Bukkit.getScheduler().runTaskLater(Keklist.getInstance(), () -> player.openSign(sign, Side.FRONT), 5);
                 }
-                case PLAYER_HEAD -> player.openInventory(getPage(0, 0, false, false));
+                case PLAYER_HEAD -> openPage(player, 0);
                 case ARROW -> GuiManager.openMainGUI(player);
             }
         }
@@ -140,7 +151,7 @@ public class WhitelistEvent implements Listener {
     }
 
     @EventHandler
-    public void onPageChange(InventoryClickEvent event) throws SQLException {
+    public void onPageChange(InventoryClickEvent event) {
         if (event.getCurrentItem() == null) return;
         if (event.getClickedInventory() == null) return;
         if (!(event.getWhoClicked() instanceof Player player)) return;
@@ -149,21 +160,8 @@ public class WhitelistEvent implements Listener {
             if (event.getCurrentItem().getType().equals(Material.ARROW)) {
                 event.setCancelled(true);
 
-                int pageIndex = event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER);
-                int skipIndex = event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Keklist.getInstance(), "skipIndex"), PersistentDataType.INTEGER);
-                boolean onlyPlayer = false;
-                boolean onlyIp = false;
-                try {
-                    onlyPlayer = 0 != event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Keklist.getInstance(), "onlyPlayer"), PersistentDataType.INTEGER);
-                } catch (Exception ignored) {
-                }
-
-                try {
-                    onlyIp = 0 != event.getCurrentItem().getItemMeta().getPersistentDataContainer().get(new NamespacedKey(Keklist.getInstance(), "onlyIP"), PersistentDataType.INTEGER);
-                } catch (Exception ignored) {
-                }
-
-                player.openInventory(getPage(pageIndex, skipIndex, onlyPlayer, onlyIp));
+                int pageIndex = event.getCurrentItem().getItemMeta().getPersistentDataContainer().getOrDefault(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER, 0);
+                openPage(player, pageIndex);
             }
 
             if (event.getCurrentItem().getType().equals(Material.BARRIER)) {
@@ -173,267 +171,68 @@ public class WhitelistEvent implements Listener {
         }
     }
 
-    public static Inventory getPage(int pageIndex, int skipIndex, boolean onlyPlayer, boolean onlyIP) throws SQLException {
-        Inventory whitelist = Bukkit.createInventory(null, 9 * 3, Keklist.getInstance().getMiniMessage().deserialize("<white><b>Whitelist Players"));
-
-        List<ItemStack> playerHeads = new ArrayList<>();
-        List<ItemStack> ipItems = new ArrayList<>();
-
-        ItemStack nextPage = new ItemStack(Material.ARROW);
-        ItemMeta nextPageMeta = nextPage.getItemMeta();
-        nextPageMeta.displayName(
-                Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("gui.whitelist.list.next"))
-        );
-
-        ItemStack previousPage = new ItemStack(Material.ARROW);
-        ItemMeta previousPageMeta = previousPage.getItemMeta();
-        previousPageMeta.displayName(
-                Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("gui.whitelist.list.previous"))
-        );
-
-
-        if (pageIndex == 0) {
-            ResultSet players = Keklist.getDatabase().onQuery("SELECT * FROM whitelist");
-            ResultSet ips = Keklist.getDatabase().onQuery("SELECT * FROM whitelistIp");
-
-            while (players.next()) {
-                ItemStack skull = new ItemStack(Material.PLAYER_HEAD);
-                SkullMeta skullMeta = (SkullMeta) skull.getItemMeta();
-                skullMeta.displayName(
-                        Keklist.getInstance().getMiniMessage().deserialize(players.getString("name"))
-                );
-                skullMeta.lore(Collections.singletonList(
-                        Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("gui.whitelist.list.entry"))
-                ));
-
-                if(Bukkit.getOfflinePlayerIfCached(players.getString("name")) != null)
-                    skullMeta.setOwningPlayer(Bukkit.getOfflinePlayerIfCached(players.getString("name")));
-
-
-                skull.setItemMeta(skullMeta);
-                playerHeads.add(skull);
-            }
-
-            while (ips.next()) {
-                ItemStack ip = new ItemStack(Material.BOOK);
-                ItemMeta ipMeta = ip.getItemMeta();
-                ipMeta.displayName(
-                        Keklist.getInstance().getMiniMessage().deserialize(ips.getString("ip"))
-                );
-                ipMeta.lore(Collections.singletonList(
-                        Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("gui.whitelist.list.entry"))
-                ));
-                ip.setItemMeta(ipMeta);
-                ipItems.add(ip);
-            }
-
-
-            if (playerHeads.size() > 18) {
-                for (int i = 0; i < 18; i++) {
-                    whitelist.setItem(i, playerHeads.get(i));
-                }
-
-
-                nextPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER, 1);
-                nextPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "skipIndex"), PersistentDataType.INTEGER, 18); // We have 18 heads
-
-                nextPage.setItemMeta(nextPageMeta);
-                whitelist.setItem(26, nextPage);
-
-            } else if ((playerHeads.size() + ipItems.size()) > 18) {
-                int sharedI = 0;
-                for (ItemStack playerHead : playerHeads) {
-                    whitelist.setItem(sharedI, playerHead);
-                    sharedI++;
-                }
-
-                int ipIndex = 0;
-                for (ItemStack ipItem : ipItems) {
-                    if (sharedI == 18) break;
-                    whitelist.setItem(sharedI, ipItem);
-                    sharedI++;
-                    ipIndex++;
-                }
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        pager.forget(event.getPlayer());
+    }
 
-                nextPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER, 1);
-                nextPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "onlyIP"), PersistentDataType.INTEGER, 1); // Workaround for missing boolean
-                nextPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "skipIndex"), PersistentDataType.INTEGER, ipIndex); // We used X ips already
-
-                nextPage.setItemMeta(nextPageMeta);
-                whitelist.setItem(26, nextPage);
-            } else {
-                int sharedI = 0;
-                for (ItemStack playerHead : playerHeads) {
-                    whitelist.setItem(sharedI, playerHead);
-                    sharedI++;
-                }
+    /**
+     * Opens a page of the whitelist once it is loaded
+     *
+     * @param player    The viewer
+     * @param pageIndex The page, 0 for the first page with fresh data
+     */
+    public static void openPage(Player player, int pageIndex) {
+        pager.open(player, pageIndex);
+    }
 
-                for (ItemStack ipItem : ipItems) {
-                    whitelist.setItem(sharedI, ipItem);
-                    sharedI++;
-                }
-            }
+    private static Inventory render(int pageIndex, ListPager.Page page) {
+        Inventory whitelist = Bukkit.createInventory(null, 9 * 3, Keklist.getInstance().getMiniMessage().deserialize("<white><b>Whitelist Players"));
 
-            ItemStack back = new ItemStack(Material.BARRIER);
-            ItemMeta backMeta = back.getItemMeta();
-            backMeta.displayName(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("gui.back")));
-            back.setItemMeta(backMeta);
-            whitelist.setItem(22, back);
+        for (int i = 0; i < page.rows().size(); i++) {
+            whitelist.setItem(i, page.rows().get(i).item().get());
         }
 
-        if (pageIndex > 0) {
-            // Next Page
-            if (onlyIP) {
-                ResultSet ips = Keklist.getDatabase().onQuery("SELECT * FROM whitelistIp");
-                List<ItemStack> skippedIPs;
-
-                while (ips.next()) {
-                    ItemStack ip = new ItemStack(Material.BOOK);
-                    ItemMeta ipMeta = ip.getItemMeta();
-                    ipMeta.displayName(
-                            Keklist.getInstance().getMiniMessage().deserialize(ips.getString("ip"))
-                    );
-                    ipMeta.lore(Collections.singletonList(
-                            Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("gui.whitelist.list.entry"))
-                    ));
-                    ip.setItemMeta(ipMeta);
-                    ipItems.add(ip);
-                }
-
-                skippedIPs = ipItems.stream().skip(skipIndex).toList();
-
-
-                // There is a next page
-                if (skippedIPs.size() > 18) {
-                    for (int i = 0; i < 18; i++) {
-                        whitelist.setItem(i, skippedIPs.get(i));
-                    }
-
-                    nextPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER, pageIndex + 1);
-                    nextPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "onlyIP"), PersistentDataType.INTEGER, 1); // Workaround for missing boolean
-                    nextPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "skipIndex"), PersistentDataType.INTEGER, skipIndex + 18); // We used skipIndex + 18 ips already
-
-                    nextPage.setItemMeta(nextPageMeta);
-                    whitelist.setItem(26, nextPage);
-                } else {
-                    int i = 0;
-                    for (ItemStack ipItem : skippedIPs) {
-                        whitelist.setItem(i, ipItem);
-                        i++;
-                    }
-                }
+        if (pageIndex > 0)
+            whitelist.setItem(18, pageArrow("gui.whitelist.list.previous", pageIndex - 1));
 
+        if (page.hasNext())
+            whitelist.setItem(26, pageArrow("gui.whitelist.list.next", pageIndex + 1));
 
-                // The Last page must be only IPs
-                if (skipIndex > 18) {
-                    previousPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "onlyIP"), PersistentDataType.INTEGER, 1); // Workaround for missing boolean
-                    previousPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "skipIndex"), PersistentDataType.INTEGER, skipIndex - 18); // We must start at skipIndex - 18 for the page before
-                } else
-                    previousPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "skipIndex"), PersistentDataType.INTEGER, -1); // We must start at 0 for the page before
-
-                // NOTE: pageIndex*18 = player heads to skip if not onlyIP mode is active
-            } else {
-                ResultSet players = Keklist.getDatabase().onQuery("SELECT * FROM whitelist");
-                ResultSet isIPThere = Keklist.getDatabase().onQuery("SELECT ip FROM whitelistIp LIMIT 1");
-                List<ItemStack> skippedHeads;
-
-                while (players.next()) {
-                    ItemStack skull = new ItemStack(Material.PLAYER_HEAD);
-                    SkullMeta skullMeta = (SkullMeta) skull.getItemMeta();
-                    skullMeta.displayName(
-                            Keklist.getInstance().getMiniMessage().deserialize(players.getString("name"))
-                    );
-                    skullMeta.lore(Collections.singletonList(
-                            Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("gui.whitelist.list.entry"))
-                    ));
-
-                    if(Bukkit.getOfflinePlayerIfCached(players.getString("name")) != null)
-                        skullMeta.setOwningPlayer(Bukkit.getOfflinePlayerIfCached(players.getString("name")));
-
-                    skull.setItemMeta(skullMeta);
-                    playerHeads.add(skull);
-                }
+        ItemStack back = new ItemStack(Material.BARRIER);
+        ItemMeta backMeta = back.getItemMeta();
+        backMeta.displayName(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("gui.back")));
+        back.setItemMeta(backMeta);
+        whitelist.setItem(22, back);
 
-                if (skipIndex == -1) {
-                    skippedHeads = playerHeads.stream().skip(18L * pageIndex).toList();
-                } else
-                    skippedHeads = playerHeads.stream().skip(skipIndex).toList();
-
-
-                if (skippedHeads.size() > 18) {
-                    for (int i = 0; i < 18; i++) {
-                        whitelist.setItem(i, skippedHeads.get(i));
-                    }
-
-                    nextPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER, pageIndex + 1);
-                    nextPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "onlyPlayer"), PersistentDataType.INTEGER, 1); // Workaround for missing boolean
-                    nextPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "skipIndex"), PersistentDataType.INTEGER, skipIndex + 18); // We used skipIndex + 18 ips already
-
-                    nextPage.setItemMeta(nextPageMeta);
-                    whitelist.setItem(26, nextPage);
-                } else {
-                    int invI = 0;
-                    for (ItemStack ipItem : skippedHeads) {
-                        whitelist.setItem(invI, ipItem);
-                        invI++;
-                    }
-
-
-                    if (isIPThere.next()) {
-                        ResultSet ips = Keklist.getDatabase().onQuery("SELECT * FROM whitelistIp");
-
-                        while (ips.next()) {
-                            ItemStack ip = new ItemStack(Material.BOOK);
-                            ItemMeta ipMeta = ip.getItemMeta();
-                            ipMeta.displayName(
-                                    Keklist.getInstance().getMiniMessage().deserialize(ips.getString("ip"))
-                            );
-                            ipMeta.lore(Collections.singletonList(
-                                    Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("gui.whitelist.list.entry"))
-                            ));
-                            ip.setItemMeta(ipMeta);
-                            ipItems.add(ip);
-                        }
-
-
-                        // There is a next page
-                        if (ipItems.size() > 18 - invI) {
-                            for (int i = invI; i < 18; i++) {
-                                whitelist.setItem(i, ipItems.get(i));
-                            }
-
-                            nextPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER, pageIndex + 1);
-                            nextPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "onlyIP"), PersistentDataType.INTEGER, 1); // Workaround for missing boolean
-                            nextPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "skipIndex"), PersistentDataType.INTEGER, 18 - invI); // We used 18 - invI ips already
-
-                            nextPage.setItemMeta(nextPageMeta);
-                            whitelist.setItem(26, nextPage);
-                        } else {
-                            int i = 0;
-                            for (ItemStack ipItem : ipItems) {
-                                whitelist.setItem(i, ipItem);
-                                i++;
-                            }
-                        }
-                    }
-                }
-
-                // The Last page must be only Players
-                if (skipIndex > 18 && onlyPlayer) {
-                    previousPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "onlyPlayer"), PersistentDataType.INTEGER, 1); // Workaround for missing boolean
-                    previousPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "skipIndex"), PersistentDataType.INTEGER, skipIndex - 18); // We must start at skipIndex - 18 for the page before
-                } else
-                    previousPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "skipIndex"), PersistentDataType.INTEGER, -1); // We must start at 0 for the page before
-
-                // NOTE: pageIndex shows if it's the first page
-            }
+        return whitelist;
+    }
 
+    private static ItemStack pageArrow(String translation, int pageIndex) {
+        ItemStack arrow = new ItemStack(Material.ARROW);
+        ItemMeta arrowMeta = arrow.getItemMeta();
+        arrowMeta.displayName(Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get(translation)));
+        arrowMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER, pageIndex);
+        arrow.setItemMeta(arrowMeta);
+        return arrow;
+    }
 
-            previousPageMeta.getPersistentDataContainer().set(new NamespacedKey(Keklist.getInstance(), "pageIndex"), PersistentDataType.INTEGER, pageIndex - 1);
-            previousPage.setItemMeta(previousPageMeta);
-            whitelist.setItem(18, previousPage);
-        }
+    private static ItemStack playerItem(UUID uuid, String name) {
+        ItemStack skull = entryItem(Material.PLAYER_HEAD, name != null ? name : uuid.toString());
+        SkullMeta skullMeta = (SkullMeta) skull.getItemMeta();
+        Keklist.getSkinCache().apply(skullMeta, uuid, name);
+        skull.setItemMeta(skullMeta);
+        return skull;
+    }
 
-        return whitelist;
+    private static ItemStack entryItem(Material material, String name) {
+        ItemStack item = new ItemStack(material);
+        ItemMeta meta = item.getItemMeta();
+        meta.displayName(Keklist.getInstance().getMiniMessage().deserialize(name));
+        meta.lore(Collections.singletonList(
+                Keklist.getInstance().getMiniMessage().deserialize(Keklist.getTranslations().get("gui.whitelist.list.entry"))
+        ));
+        item.setItemMeta(meta);
+        return item;
     }
 }
@@ -0,0 +1,120 @@
+package de.hdg.keklist.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Bloom filter with counters instead of bits, so keys can be removed again
+ * <p>
+ * {@link #mightContain(String)} never answers false for a key that was added and not removed,
+ * but may answer true for keys that were never added at roughly the configured false positive probability.
+ * <p>
+ * Lookups don't lock. Writers are serialized, and a key must only be removed if it was added before,
+ * otherwise the counters of other keys would drop.
+ */
+public class CountingBloomFilter {
+
+    private final double fpp;
+    private volatile State state;
+    private int size;
+
+    /**
+     * @param capacity Expected number of keys
+     * @param fpp      Wanted false positive probability, e.g. 0.01 for 1%
+     */
+    public CountingBloomFilter(int capacity, double fpp) {
+        if (fpp <= 0 || fpp >= 1)
+            throw new IllegalArgumentException("False positive probability must be between 0 and 1");
+
+        this.fpp = fpp;
+        this.state = State.of(capacity, fpp);
+    }
+
+    public boolean mightContain(@NotNull String key) {
+        State current = state;
+        long hash = hash(key);
+
+        for (int i = 0; i < current.hashes(); i++) {
+            if (current.counters().get(current.index(hash, i)) == 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    public synchronized void add(@NotNull String key) {
+        State current = state;
+        long hash = hash(key);
+
+        for (int i = 0; i < current.hashes(); i++) {
+            current.counters().incrementAndGet(current.index(hash, i));
+        }
+        size++;
+    }
+
+    public synchronized void remove(@NotNull String key) {
+        State current = state;
+        long hash = hash(key);
+
+        for (int i = 0; i < current.hashes(); i++) {
+            current.counters().decrementAndGet(current.index(hash, i));
+        }
+        size--;
+    }
+
+    /**
+     * Replaces the content with the given keys, sized for twice as many keys
+     *
+     * @param keys Every key that should be in the filter
+     */
+    public synchronized void rebuild(@NotNull Collection<String> keys) {
+        State fresh = State.of(Math.max(1024, keys.size() * 2), fpp);
+
+        for (String key : keys) {
+            long hash = hash(key);
+            for (int i = 0; i < fresh.hashes(); i++) {
+                fresh.counters().incrementAndGet(fresh.index(hash, i));
+            }
+        }
+
+        size = keys.size();
+        state = fresh;
+    }
+
+    /**
+     * @return true if more keys were added than the filter was sized for and the false positive rate went up
+     */
+    public synchronized boolean isOverCapacity() {
+        return size > state.capacity();
+    }
+
+    /**
+     * 64-bit FNV-1a, the two halves are combined for the k indices
+     */
+    private static long hash(@NotNull String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private record State(AtomicIntegerArray counters, int hashes, int capacity) {
+
+        @NotNull
+        private static State of(int capacity, double fpp) {
+            int cells = (int) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            int hashes = Math.max(1, (int) Math.round((double) cells / capacity * Math.log(2)));
+            return new State(new AtomicIntegerArray(cells), hashes, capacity);
+        }
+
+        private int index(long hash, int i) {
+            int combined = (int) hash + i * (int) (hash >>> 32);
+            return Math.floorMod(combined, counters.length());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package de.hdg.keklist.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of durations in fixed buckets, shaped like a Prometheus histogram
+ * <p>
+ * Recording only increments two adders and never locks, so it can be used on the hot paths.
+ */
+public class Histogram {
+
+    /**
+     * Bucket bounds in seconds for things that usually take a few microseconds up to a second
+     */
+    public static final double[] LATENCY_BUCKETS = {0.00001, 0.00005, 0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5};
+
+    private final double[] bounds;
+    private final long[] boundsNanos;
+    private final LongAdder[] counts;
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * @param bounds Upper bounds of the buckets in seconds, ascending
+     */
+    public Histogram(double @NotNull ... bounds) {
+        this.bounds = bounds.clone();
+        this.boundsNanos = new long[bounds.length];
+        this.counts = new LongAdder[bounds.length + 1];
+
+        for (int i = 0; i < bounds.length; i++)
+            boundsNanos[i] = (long) (bounds[i] * 1_000_000_000L);
+
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = new LongAdder();
+    }
+
+    /**
+     * @param nanos The duration, e.g. the difference of two {@link System#nanoTime()} calls
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < boundsNanos.length && nanos > boundsNanos[bucket])
+            bucket++;
+
+        counts[bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * @return The upper bounds of the buckets in seconds, without the +Inf bucket
+     */
+    public double @NotNull [] bounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * Reads the buckets the way Prometheus expects them, every bucket contains the ones below it
+     *
+     * @return The cumulative counts, the last one belongs to the +Inf bucket and equals the total count
+     */
+    public long @NotNull [] cumulativeCounts() {
+        long[] cumulative = new long[counts.length];
+        long total = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i].sum();
+            cumulative[i] = total;
+        }
+
+        return cumulative;
+    }
+
+    public double sumSeconds() {
+        return sumNanos.sum() / 1_000_000_000.0;
+    }
+}
@@ -0,0 +1,111 @@
+package de.hdg.keklist.util;
+
+import com.google.common.net.InetAddresses;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+/**
+ * An IPv4 or IPv6 network in CIDR notation, e.g. 10.0.0.0/8 or 2001:db8::/32
+ * <p>
+ * Host bits are cleared on parsing, so 10.1.2.3/8 and 10.0.0.0/8 are the same range.
+ */
+public final class IpRange {
+
+    private final byte[] network;
+    private final int prefix;
+    private final String cidr;
+
+    private IpRange(byte[] network, int prefix) {
+        this.network = network;
+        this.prefix = prefix;
+
+        try {
+            this.cidr = InetAddress.getByAddress(network).getHostAddress() + "/" + prefix;
+        } catch (UnknownHostException e) {
+            // Only thrown for illegal lengths, parse already made sure it is 4 or 16
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Parses a range in CIDR notation
+     *
+     * @param cidr The range, like 192.168.0.0/16
+     * @return The range or null if the input is not a valid IPv4 or IPv6 range
+     */
+    @Nullable
+    public static IpRange parse(@NotNull String cidr) {
+        int slash = cidr.indexOf('/');
+        if (slash <= 0 || slash == cidr.length() - 1)
+            return null;
+
+        try {
+            // Guava only parses literal addresses, InetAddress would do a DNS lookup for anything else
+            byte[] network = InetAddresses.forString(cidr.substring(0, slash)).getAddress();
+            int prefix = Integer.parseInt(cidr.substring(slash + 1));
+
+            if (prefix < 0 || prefix > network.length * 8)
+                return null;
+
+            for (int bit = prefix; bit < network.length * 8; bit++) {
+                network[bit / 8] &= (byte) ~(0x80 >>> (bit % 8));
+            }
+
+            return new IpRange(network, prefix);
+        } catch (IllegalArgumentException e) {
+            // Also covers the NumberFormatException of the prefix
+            return null;
+        }
+    }
+
+    /**
+     * @return The network address with all host bits cleared
+     */
+    public byte @NotNull [] getNetwork() {
+        return network.clone();
+    }
+
+    public int getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Checks if an address is inside this range
+     *
+     * @param address The raw address, 4 bytes for IPv4 and 16 for IPv6
+     * @return true if the address is part of the network
+     */
+    public boolean contains(byte @NotNull [] address) {
+        if (address.length != network.length)
+            return false;
+
+        for (int bit = 0; bit < prefix; bit++) {
+            if (IpRangeTrie.bit(address, bit) != IpRangeTrie.bit(network, bit))
+                return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof IpRange other && prefix == other.prefix && Arrays.equals(network, other.network);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(network) + prefix;
+    }
+
+    /**
+     * @return The normalized CIDR notation, used as key in the database
+     */
+    @Override
+    public String toString() {
+        return cidr;
+    }
+}
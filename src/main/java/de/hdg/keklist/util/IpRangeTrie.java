@@ -0,0 +1,133 @@
+package de.hdg.keklist.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetAddress;
+import java.util.Map;
+
+/**
+ * Binary radix trie for longest-prefix matches of addresses against {@link IpRange}s
+ * <p>
+ * Every bit of the address picks one child, so a lookup takes at most 32 steps for IPv4
+ * and 128 for IPv6 no matter how many ranges are stored. IPv4 and IPv6 use separate roots.
+ * <p>
+ * Lookups don't lock. Writers are serialized and only ever link fully built nodes,
+ * {@link #replaceAll(Map)} builds a new trie and swaps it in at once.
+ *
+ * @param <V> The value stored for each range
+ */
+public class IpRangeTrie<V> {
+
+    private volatile Roots<V> roots = new Roots<>();
+
+    /**
+     * Stores a value for a range, replacing the previous one of the same range
+     */
+    public synchronized void put(@NotNull IpRange range, @NotNull V value) {
+        insert(roots, range, value);
+    }
+
+    /**
+     * Removes the value of exactly this range, smaller or larger ranges are kept
+     */
+    public synchronized void remove(@NotNull IpRange range) {
+        byte[] network = range.getNetwork();
+        Node<V> node = roots.root(network.length);
+
+        for (int bit = 0; bit < range.getPrefix() && node != null; bit++) {
+            node = bit(network, bit) == 0 ? node.zero : node.one;
+        }
+
+        if (node != null)
+            node.value = null;
+    }
+
+    /**
+     * Replaces every range with the given ones
+     */
+    public synchronized void replaceAll(@NotNull Map<IpRange, V> ranges) {
+        Roots<V> fresh = new Roots<>();
+        ranges.forEach((range, value) -> insert(fresh, range, value));
+        roots = fresh;
+    }
+
+    /**
+     * Finds the most specific range containing the address
+     *
+     * @param address The address to look up
+     * @return The value of the longest matching range or null if no range contains the address
+     */
+    @Nullable
+    public V match(@NotNull InetAddress address) {
+        return match(address.getAddress());
+    }
+
+    /**
+     * @see #match(InetAddress)
+     */
+    @Nullable
+    public V match(byte @NotNull [] address) {
+        Node<V> node = roots.root(address.length);
+        if (node == null)
+            return null;
+
+        V match = node.value;
+        for (int bit = 0; bit < address.length * 8; bit++) {
+            node = bit(address, bit) == 0 ? node.zero : node.one;
+            if (node == null)
+                break;
+
+            V value = node.value;
+            if (value != null)
+                match = value;
+        }
+
+        return match;
+    }
+
+    private static <V> void insert(@NotNull Roots<V> roots, @NotNull IpRange range, @NotNull V value) {
+        byte[] network = range.getNetwork();
+        Node<V> node = roots.root(network.length);
+
+        for (int bit = 0; bit < range.getPrefix(); bit++) {
+            if (bit(network, bit) == 0) {
+                if (node.zero == null)
+                    node.zero = new Node<>();
+                node = node.zero;
+            } else {
+                if (node.one == null)
+                    node.one = new Node<>();
+                node = node.one;
+            }
+        }
+
+        node.value = value;
+    }
+
+    static int bit(byte @NotNull [] address, int bit) {
+        return (address[bit / 8] >>> (7 - bit % 8)) & 1;
+    }
+
+    private static final class Node<V> {
+        private volatile Node<V> zero;
+        private volatile Node<V> one;
+        private volatile V value;
+    }
+
+    private record Roots<V>(Node<V> ipv4, Node<V> ipv6) {
+
+        private Roots() {
+            this(new Node<>(), new Node<>());
+        }
+
+        @Nullable
+        private Node<V> root(int addressLength) {
+            return switch (addressLength) {
+                case 4 -> ipv4;
+                case 16 -> ipv6;
+                default -> null;
+            };
+        }
+    }
+}
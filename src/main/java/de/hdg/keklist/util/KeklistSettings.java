@@ -0,0 +1,153 @@
+package de.hdg.keklist.util;
+
+import com.destroystokyo.paper.profile.PlayerProfile;
+import de.hdg.keklist.Keklist;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.util.CachedServerIcon;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Typed snapshot of the config values read while players ping or join
+ * <p>
+ * Built once by {@link #load(FileConfiguration, MiniMessage)} and replaced as a whole whenever the config changes,
+ * so a reader always sees one consistent config. Messages are already deserialized, the blacklist icon is loaded
+ * and the fake player ranges are parsed.
+ *
+ * @param chatNotify              Whether kicks are announced in chat
+ * @param blacklistEnabled        Whether the blacklist is enabled
+ * @param allowJoinWithAdmin      Whether blacklisted players may join while an admin is online
+ * @param adminPermission         The permission of such an admin
+ * @param limbo                   Whether blacklisted players are sent to the limbo instead of being kicked
+ * @param blacklistIcon           Icon shown to blacklisted addresses, null for the default icon
+ * @param whitelistEnabled        Whether the whitelist is enabled
+ * @param changeMotd              Whether the whitelist MOTD is shown
+ * @param hideOnlinePlayers       Whether fake players and player counts are shown
+ * @param fakePlayers             The fake players of the player sample
+ * @param fakeOnline              Range of the fake online count, null if hideOnlinePlayers is off
+ * @param fakeMax                 Range of the fake max count, null if hideOnlinePlayers is off
+ * @param blacklistedMotds        MOTDs shown to blacklisted addresses
+ * @param whitelistedMotds        MOTDs shown while the whitelist is enabled
+ * @param defaultMotds            MOTDs shown otherwise
+ * @param blacklistedKickMessages Kick messages for blacklisted players
+ * @param whitelistedKickMessages Kick messages for players not on the whitelist
+ */
+public record KeklistSettings(boolean chatNotify,
+                              boolean blacklistEnabled, boolean allowJoinWithAdmin, @NotNull String adminPermission, boolean limbo,
+                              @Nullable CachedServerIcon blacklistIcon,
+                              boolean whitelistEnabled, boolean changeMotd, boolean hideOnlinePlayers, @NotNull List<PlayerProfile> fakePlayers,
+                              @Nullable Range fakeOnline, @Nullable Range fakeMax,
+                              @NotNull List<Component> blacklistedMotds, @NotNull List<Component> whitelistedMotds, @NotNull List<Component> defaultMotds,
+                              @NotNull List<Component> blacklistedKickMessages, @NotNull List<Component> whitelistedKickMessages) {
+
+    @NotNull
+    public static KeklistSettings load(@NotNull FileConfiguration config, @NotNull MiniMessage miniMessage) {
+        boolean hideOnlinePlayers = config.getBoolean("whitelist.hide-online-players");
+
+        return new KeklistSettings(
+                config.getBoolean("chat-notify"),
+                config.getBoolean("blacklist.enabled"),
+                config.getBoolean("blacklist.allow-join-with-admin"),
+                config.getString("blacklist.admin-permission", "blacklist.admin"),
+                config.getBoolean("blacklist.limbo"),
+                loadIcon(config.getString("blacklist.icon-file", "default")),
+                config.getBoolean("whitelist.enabled"),
+                config.getBoolean("whitelist.change-motd"),
+                hideOnlinePlayers,
+                config.getStringList("whitelist.fake-players").stream().map(Bukkit::createProfile).toList(),
+                hideOnlinePlayers ? Range.parse(config.getString("whitelist.fake-online-range")) : null,
+                hideOnlinePlayers ? Range.parse(config.getString("whitelist.fake-max-range")) : null,
+                deserialize(config, miniMessage, "messages.motd.blacklisted"),
+                deserialize(config, miniMessage, "messages.motd.whitelisted"),
+                deserialize(config, miniMessage, "messages.motd.default"),
+                deserialize(config, miniMessage, "messages.kick.blacklisted"),
+                deserialize(config, miniMessage, "messages.kick.whitelisted"));
+    }
+
+    /**
+     * Picks one of the configured MOTDs
+     *
+     * @param type The kind of MOTD
+     * @return The MOTD or null if none is configured
+     */
+    @Nullable
+    public Component randomMotd(@NotNull Keklist.RandomType type) {
+        return pick(switch (type) {
+            case BLACKLISTED -> blacklistedMotds;
+            case WHITELISTED -> whitelistedMotds;
+            case NORMAL -> defaultMotds;
+        });
+    }
+
+    /**
+     * Picks one of the configured kick messages
+     *
+     * @param type Either {@link Keklist.RandomType#BLACKLISTED} or {@link Keklist.RandomType#WHITELISTED}
+     * @return The kick message or an empty component if none is configured
+     */
+    @NotNull
+    public Component randomKickMessage(@NotNull Keklist.RandomType type) {
+        Component message = pick(switch (type) {
+            case BLACKLISTED -> blacklistedKickMessages;
+            case WHITELISTED -> whitelistedKickMessages;
+            case NORMAL -> List.of();
+        });
+
+        return message == null ? Component.empty() : message;
+    }
+
+    @Nullable
+    private static Component pick(@NotNull List<Component> pool) {
+        return pool.isEmpty() ? null : pool.get(ThreadLocalRandom.current().nextInt(pool.size()));
+    }
+
+    @NotNull
+    private static List<Component> deserialize(@NotNull FileConfiguration config, @NotNull MiniMessage miniMessage, @NotNull String path) {
+        return config.getStringList(path).stream().map(miniMessage::deserialize).toList();
+    }
+
+    @Nullable
+    private static CachedServerIcon loadIcon(@NotNull String path) {
+        if (path.equals("default"))
+            return null;
+
+        File file = new File(path);
+        if (!file.exists()) {
+            Keklist.getInstance().getLogger().warning(Keklist.getTranslations().get("blacklist.icon.error"));
+            return null;
+        }
+
+        try {
+            return Bukkit.loadServerIcon(file);
+        } catch (Exception e) {
+            Keklist.getInstance().getLogger().warning(Keklist.getTranslations().get("blacklist.icon.error"));
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * A range in the format INTEGER-INTEGER, the upper bound is exclusive
+     *
+     * @param from Lower bound
+     * @param to   Upper bound
+     */
+    public record Range(int from, int to) {
+
+        @NotNull
+        private static Range parse(@NotNull String range) {
+            return new Range(Integer.parseInt(range.split("-")[0].replace("-", "")), Integer.parseInt(range.split("-")[1].replace("-", "")));
+        }
+
+        public int random() {
+            return from >= to ? from : ThreadLocalRandom.current().nextInt(from, to);
+        }
+    }
+}
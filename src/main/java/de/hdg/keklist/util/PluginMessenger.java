@@ -0,0 +1,179 @@
+package de.hdg.keklist.util;
+
+import de.hdg.keklist.Keklist;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerRegisterChannelEvent;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Sends plugin messages to the proxy
+ * <p>
+ * Plugin messages travel through a player connection, and only reach the proxy if the player registered the channel.
+ * Messages wait in a bounded queue while no such player is online and are sent as soon as one joins, or dropped once
+ * their time to live runs out. If several messages of a channel are waiting and the channel has a batcher,
+ * they are combined into as few messages as possible.
+ */
+public class PluginMessenger implements Listener {
+
+    private static final int MAX_QUEUED = 256;
+    private static final int MAX_BATCH_BYTES = 32 * 1024;
+
+    private final Plugin plugin;
+    private final Map<String, Function<List<byte[]>, byte[]>> batchers = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private final Deque<Message> queue = new ArrayDeque<>();
+
+    public PluginMessenger(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Lets the messages of a channel be combined
+     *
+     * @param channel The channel
+     * @param batcher Combines the given messages into one, which the receiver splits again
+     */
+    public void registerBatcher(@NotNull String channel, @NotNull Function<List<byte[]>, byte[]> batcher) {
+        batchers.put(channel, batcher);
+    }
+
+    /**
+     * Sends a message, or queues it until a player is online to carry it
+     *
+     * @param channel   The channel
+     * @param message   The message
+     * @param ttlMillis How long the message may wait in the queue
+     * @return false if the message was dropped because the queue is full
+     */
+    public synchronized boolean send(@NotNull String channel, byte @NotNull [] message, long ttlMillis) {
+        if (queue.size() >= MAX_QUEUED)
+            flush();
+
+        if (queue.size() >= MAX_QUEUED)
+            return false;
+
+        queue.add(new Message(channel, message, System.currentTimeMillis() + ttlMillis));
+        flush();
+        return true;
+    }
+
+    /**
+     * Sends a message only if it can be sent right away, for messages which are worthless later
+     *
+     * @return false if no player was online to carry the message
+     */
+    public synchronized boolean sendNow(@NotNull String channel, byte @NotNull [] message) {
+        Player carrier = carrier(channel);
+        if (carrier == null)
+            return false;
+
+        carrier.sendPluginMessage(plugin, channel, message);
+        return true;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        flush();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onRegisterChannel(PlayerRegisterChannelEvent event) {
+        flush();
+    }
+
+    /**
+     * Sends every queued message which has a carrier and drops the expired ones
+     */
+    public synchronized void flush() {
+        if (queue.isEmpty()) return;
+
+        long now = System.currentTimeMillis();
+        int expired = 0;
+        Map<String, Player> carriers = new HashMap<>();
+        Map<String, List<byte[]>> ready = new LinkedHashMap<>();
+
+        Iterator<Message> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            Message message = iterator.next();
+
+            if (message.expires() < now) {
+                iterator.remove();
+                expired++;
+                continue;
+            }
+
+            // Once a channel has no carrier, later messages of it must wait as well to keep the order
+            if (!carriers.containsKey(message.channel()))
+                carriers.put(message.channel(), carrier(message.channel()));
+
+            if (carriers.get(message.channel()) == null)
+                continue;
+
+            ready.computeIfAbsent(message.channel(), channel -> new ArrayList<>()).add(message.data());
+            iterator.remove();
+        }
+
+        if (expired > 0)
+            plugin.getLogger().warning(Keklist.getTranslations().get("plugin-message.expired", expired));
+
+        ready.forEach((channel, messages) -> {
+            Player carrier = carriers.get(channel);
+            Function<List<byte[]>, byte[]> batcher = batchers.get(channel);
+
+            if (batcher == null || messages.size() == 1) {
+                messages.forEach(message -> carrier.sendPluginMessage(plugin, channel, message));
+                return;
+            }
+
+            List<byte[]> batch = new ArrayList<>();
+            int size = 0;
+            for (byte[] message : messages) {
+                if (!batch.isEmpty() && size + message.length > MAX_BATCH_BYTES) {
+                    carrier.sendPluginMessage(plugin, channel, combine(batcher, batch));
+                    batch.clear();
+                    size = 0;
+                }
+
+                batch.add(message);
+                size += message.length;
+            }
+            carrier.sendPluginMessage(plugin, channel, combine(batcher, batch));
+        });
+    }
+
+    private static byte @NotNull [] combine(@NotNull Function<List<byte[]>, byte[]> batcher, @NotNull List<byte[]> batch) {
+        return batch.size() == 1 ? batch.get(0) : batcher.apply(batch);
+    }
+
+    @Nullable
+    private Player carrier(@NotNull String channel) {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (player.getListeningPluginChannels().contains(channel))
+                return player;
+        }
+
+        return null;
+    }
+
+    private record Message(@NotNull String channel, byte @NotNull [] data, long expires) {
+    }
+}
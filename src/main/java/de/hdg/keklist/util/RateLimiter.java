@@ -0,0 +1,97 @@
+package de.hdg.keklist.util;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket limiter keyed by source address
+ * <p>
+ * Every address may spend up to {@code burst} attempts at once, which refill at {@code rate} per second.
+ * A bucket only stores the time at which it will be full again, so {@link #tryAcquire(String)} is a single
+ * compare-and-set and never locks. Full buckets carry no information and are dropped by {@link #evict()}.
+ * <p>
+ * At most {@code max-entries} addresses are tracked. If the map is full of active buckets, new addresses are let
+ * through untracked instead of locking out everyone during a wave of spoofed sources.
+ */
+public class RateLimiter {
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private volatile Settings settings;
+
+    public RateLimiter(@Nullable ConfigurationSection config) {
+        reload(config);
+    }
+
+    /**
+     * Applies the settings of a config section, existing buckets are kept
+     *
+     * @param config Section with enabled, rate, burst and max-entries or null to disable the limiter
+     */
+    public void reload(@Nullable ConfigurationSection config) {
+        if (config == null || !config.getBoolean("enabled") || config.getDouble("rate") <= 0) {
+            settings = Settings.DISABLED;
+            buckets.clear();
+            return;
+        }
+
+        long interval = (long) (1_000_000_000L / config.getDouble("rate"));
+        int burst = Math.max(1, config.getInt("burst"));
+        settings = new Settings(true, interval, interval * (burst - 1), Math.max(1, config.getInt("max-entries")));
+    }
+
+    /**
+     * Takes a token from the bucket of an address
+     *
+     * @param address The source address
+     * @return true if the attempt is allowed, false if the address is over its limit
+     */
+    public boolean tryAcquire(@NotNull String address) {
+        Settings current = settings;
+        if (!current.enabled())
+            return true;
+
+        AtomicLong bucket = buckets.get(address);
+        if (bucket == null) {
+            // Scanning for idle buckets here would make every new address of a flood pay for a full pass
+            if (buckets.size() >= current.maxEntries())
+                return true;
+
+            bucket = buckets.computeIfAbsent(address, key -> new AtomicLong(System.nanoTime()));
+        }
+
+        long now = System.nanoTime();
+        while (true) {
+            long full = bucket.get();
+            long base = full - now < 0 ? now : full;
+
+            // The bucket would need longer than the burst allows to take another token
+            if (base - now > current.tolerance())
+                return false;
+
+            if (bucket.compareAndSet(full, base + current.interval()))
+                return true;
+        }
+    }
+
+    /**
+     * Drops the buckets which refilled completely
+     */
+    public void evict() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    /**
+     * @param enabled    Whether the limiter is active
+     * @param interval   Nanoseconds until one token refills
+     * @param tolerance  Nanoseconds a bucket may be ahead of now, that is the burst minus one token
+     * @param maxEntries Maximum number of tracked addresses
+     */
+    private record Settings(boolean enabled, long interval, long tolerance, int maxEntries) {
+        private static final Settings DISABLED = new Settings(false, 0, 0, 0);
+    }
+}
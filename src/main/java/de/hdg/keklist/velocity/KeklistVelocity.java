@@ -3,6 +3,7 @@ package de.hdg.keklist.velocity;
 import com.google.inject.Inject;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyReloadEvent;
 import com.velocitypowered.api.plugin.Dependency;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
@@ -12,6 +13,8 @@ import com.velocitypowered.api.proxy.messages.MinecraftChannelIdentifier;
 import de.hdg.keklist.util.LanguageUtil;
 import de.hdg.keklist.velocity.api.APIMessageReceiver;
 import de.hdg.keklist.velocity.channel.MessageReceiver;
+import de.hdg.keklist.velocity.listener.BlacklistListener;
+import de.hdg.keklist.velocity.util.BlacklistIndex;
 import de.hdg.keklist.velocity.util.LimboUtil;
 import de.hdg.keklist.velocity.util.VelocityConfig;
 import lombok.Getter;
@@ -36,6 +39,8 @@ public class KeklistVelocity {
     private final @Getter VelocityConfig config;
     private static @Getter LanguageUtil translations;
     private @Getter LimboUtil limboUtil;
+    private @Getter BlacklistIndex blacklistIndex;
+    private BlacklistListener blacklistListener;
 
     private final ChannelIdentifier limboChannel = MinecraftChannelIdentifier.from("keklist:data");
     private final ChannelIdentifier apiChannel = MinecraftChannelIdentifier.from("keklist:api");
@@ -79,5 +84,20 @@ public class KeklistVelocity {
         //Register API channel
         server.getChannelRegistrar().register(apiChannel);
         server.getEventManager().register(this, new APIMessageReceiver(apiChannel));
+
+        //Blacklisted players are rejected before they reach any server
+        blacklistIndex = new BlacklistIndex(apiChannel);
+        blacklistListener = new BlacklistListener(blacklistIndex, config);
+        server.getEventManager().register(this, blacklistListener);
+    }
+
+    @Subscribe
+    public void onProxyReload(ProxyReloadEvent event) {
+        // The config is kept in memory, /velocity reload picks up changes to the file
+        config.reload();
+        blacklistListener.reload();
+
+        if (limboUtil != null && limboUtil.getLimbo() != null)
+            limboUtil.reloadMap();
     }
 }
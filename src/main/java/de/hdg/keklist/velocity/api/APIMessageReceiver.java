@@ -1,16 +1,23 @@
 package de.hdg.keklist.velocity.api;
 
-import com.google.common.io.ByteArrayDataInput;
-import com.google.common.io.ByteArrayDataOutput;
-import com.google.common.io.ByteStreams;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.connection.PluginMessageEvent;
 import com.velocitypowered.api.proxy.ServerConnection;
 import com.velocitypowered.api.proxy.messages.ChannelIdentifier;
+import de.hdg.keklist.api.protocol.ApiFrame;
+import de.hdg.keklist.api.protocol.ApiPayload;
 import de.hdg.keklist.velocity.KeklistVelocity;
 
+import java.net.ProtocolException;
+import java.util.List;
+
 /**
  * This class is responsible for receiving messages from the backend and forwarding them to the correct server.
+ * <p>
+ * Only the header of an {@link ApiFrame} is read. The proxy fills in the server the frame came from,
+ * so the target knows where to send its answer, and forwards the payload untouched.
+ * Frames addressed to the proxy itself update the {@link de.hdg.keklist.velocity.util.BlacklistIndex}.
+ * Batches of frames are split and every frame is routed on its own.
  *
  * @author SageSphinx63920
  * @since 1.0
@@ -28,56 +35,57 @@ public class APIMessageReceiver {
         if (event.getIdentifier().equals(identifier)) {
             event.setResult(PluginMessageEvent.ForwardResult.handled());
 
-            if (event.getSource() instanceof ServerConnection) {
-                if(KeklistVelocity.getInstance().getConfig().getOption(true, "enable-api")) {
+            if (event.getSource() instanceof ServerConnection connection) {
+                if (!KeklistVelocity.getInstance().getConfig().getOption(true, "enable-api")) {
                     KeklistVelocity.getInstance().getLogger().error(KeklistVelocity.getTranslations().get("velocity.api.disabled"));
                     return;
                 }
 
-                ByteArrayDataInput in = ByteStreams.newDataInput(event.getData());
-                ByteArrayDataOutput out = ByteStreams.newDataOutput();
-
-                String server = in.readUTF();
-                String action = in.readUTF();
-
-                out.writeUTF(action);
-
-                //Only 2 actions that need 2 parameters
-                if(action.equals("blacklistUUID") || action.equals("blacklistIP")){
-                    String blacklisted = in.readUTF();
-                    String reason = in.readUTF();
+                String source = connection.getServerInfo().getName();
 
-                    out.writeUTF(blacklisted);
-                    out.writeUTF(reason);
-                }else{
-                    if(action.endsWith("Response")){
-                        String requestedAction = in.readUTF().replace("Response", "");
-                        String relayServer = in.readUTF();
-                        String requested = in.readUTF();
-                        boolean result = in.readBoolean();
-
-                        out.writeUTF(requestedAction);
-                        out.writeUTF(requested);
-                        out.writeBoolean(result);
-
-                        KeklistVelocity.getInstance().getServer().getServer(relayServer).ifPresentOrElse(serverConnection -> {
-                            serverConnection.sendPluginMessage(identifier, out.toByteArray());
-                        }, () -> {
-                            KeklistVelocity.getInstance().getLogger().error(KeklistVelocity.getTranslations().get("velocity.api.response-not-found"), relayServer);
-                        });
-                        return;
-                    }
-                    String parameter = in.readUTF();
+                List<ApiFrame> frames;
+                try {
+                    frames = ApiFrame.decodeAll(event.getData());
+                } catch (ProtocolException e) {
+                    KeklistVelocity.getInstance().getLogger().error(KeklistVelocity.getTranslations().get("velocity.api.invalid-frame", source, e.getMessage()));
+                    return;
+                }
 
-                    out.writeUTF(parameter);
+                // Batches are split again, each frame may go somewhere else
+                for (ApiFrame frame : frames) {
+                    route(connection, frame.withSource(source));
                 }
+            }
+        }
+    }
 
-                KeklistVelocity.getInstance().getServer().getServer(server).ifPresentOrElse(serverConnection -> {
-                    serverConnection.sendPluginMessage(identifier, out.toByteArray());
-                }, () -> {
-                    KeklistVelocity.getInstance().getLogger().error(KeklistVelocity.getTranslations().get("velocity.api.action-server-not-found"), server);
-                });
+    private void route(ServerConnection connection, ApiFrame frame) {
+        if (frame.target().equals(ApiFrame.PROXY)) {
+            try {
+                KeklistVelocity.getInstance().getBlacklistIndex().handle(connection, frame);
+            } catch (ProtocolException | IllegalArgumentException e) {
+                KeklistVelocity.getInstance().getLogger().error(KeklistVelocity.getTranslations().get("velocity.api.invalid-frame", frame.source(), e.getMessage()));
             }
+            return;
         }
+
+        KeklistVelocity.getInstance().getServer().getServer(frame.target()).ifPresentOrElse(target -> {
+            if (!target.sendPluginMessage(identifier, frame.encode())) {
+                KeklistVelocity.getInstance().getLogger().error(KeklistVelocity.getTranslations().get("velocity.api.server-empty", frame.target()));
+                reject(connection, frame, "Server " + frame.target() + " has no players connected");
+            }
+        }, () -> {
+            KeklistVelocity.getInstance().getLogger().error(KeklistVelocity.getTranslations().get("velocity.api.action-server-not-found", frame.target()));
+            reject(connection, frame, "Server " + frame.target() + " not found");
+        });
+    }
+
+    /**
+     * Answers a request which could not be delivered, so the caller doesn't wait for the timeout
+     */
+    private void reject(ServerConnection connection, ApiFrame frame, String message) {
+        if (frame.kind() != ApiFrame.Kind.REQUEST || frame.requestId() == 0) return;
+
+        connection.sendPluginMessage(identifier, frame.reply(ApiFrame.Kind.ERROR, ApiPayload.writeError(message)).encode());
     }
 }
@@ -3,6 +3,7 @@ package de.hdg.keklist.velocity.channel;
 import com.google.common.io.ByteArrayDataInput;
 import com.google.common.io.ByteStreams;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.connection.PluginMessageEvent;
@@ -19,8 +20,7 @@ import net.elytrium.limboapi.api.protocol.packets.data.AbilityFlags;
 import net.kyori.adventure.nbt.CompoundBinaryTag;
 import net.kyori.adventure.text.Component;
 
-import javax.imageio.ImageIO;
-import java.io.IOException;
+import java.awt.image.BufferedImage;
 import java.util.UUID;
 
 public class MessageReceiver {
@@ -42,24 +42,32 @@ public class MessageReceiver {
 
                 JsonElement data = JsonParser.parseString(message);
 
-                UUID uuid = UUID.fromString(data.getAsJsonObject().get("uuid").getAsString());
-                long unix = data.getAsJsonObject().get("unix").getAsLong();
-                String fromServer = data.getAsJsonObject().get("from").getAsString();
+                // Requests which waited on the backend for a player to carry them arrive as one array
+                if (data.isJsonArray())
+                    data.getAsJsonArray().forEach(request -> sendToLimbo(request.getAsJsonObject()));
+                else
+                    sendToLimbo(data.getAsJsonObject());
+            }
+        }
+    }
 
-                KeklistVelocity.getInstance().getServer().getPlayer(uuid).ifPresentOrElse(player -> {
-                    if (KeklistVelocity.getInstance().getConfig().getOption(false, "limbo.enabled")
-                            && KeklistVelocity.getInstance().getLimboUtil().getLimbo() != null) {
-                        Limbo limbo = KeklistVelocity.getInstance().getLimboUtil().getLimbo();
+    private void sendToLimbo(JsonObject data) {
+        UUID uuid = UUID.fromString(data.get("uuid").getAsString());
+        long unix = data.get("unix").getAsLong();
+        String fromServer = data.get("from").getAsString();
 
-                        limbo.spawnPlayer(player, new KeklistSessionHandler());
+        KeklistVelocity.getInstance().getServer().getPlayer(uuid).ifPresentOrElse(player -> {
+            if (KeklistVelocity.getInstance().getConfig().getOption(false, "limbo.enabled")
+                    && KeklistVelocity.getInstance().getLimboUtil().getLimbo() != null) {
+                Limbo limbo = KeklistVelocity.getInstance().getLimboUtil().getLimbo();
 
-                        KeklistVelocity.getInstance().getLogger().info(KeklistVelocity.getTranslations().get("limbo.sent", player.getUsername(), fromServer, (System.currentTimeMillis() - unix) / 1000));
-                    } else {
-                        player.disconnect(Component.text(KeklistVelocity.getTranslations().get("limbo.disable-kick")));
-                    }
-                }, () -> KeklistVelocity.getInstance().getLogger().error(KeklistVelocity.getTranslations().get("limbo.user-not-found", uuid)));
+                limbo.spawnPlayer(player, new KeklistSessionHandler());
+
+                KeklistVelocity.getInstance().getLogger().info(KeklistVelocity.getTranslations().get("limbo.sent", player.getUsername(), fromServer, (System.currentTimeMillis() - unix) / 1000));
+            } else {
+                player.disconnect(Component.text(KeklistVelocity.getTranslations().get("limbo.disable-kick")));
             }
-        }
+        }, () -> KeklistVelocity.getInstance().getLogger().error(KeklistVelocity.getTranslations().get("limbo.user-not-found", uuid)));
     }
 
 
@@ -77,16 +85,11 @@ public class MessageReceiver {
 
             player.sendAbilities((byte) (AbilityFlags.FLYING | AbilityFlags.ALLOW_FLYING), 0.05F, 0.1F);
 
-            if (KeklistVelocity.getInstance().getConfig().getOption(false, "limbo.enable-map")) {
-                if (KeklistVelocity.getInstance().getDataDirectory().resolve(KeklistVelocity.getInstance().getConfig().getOption("map.jpg", "limbo.map-image")).toFile().exists()) {
-                    try {
-                        player.sendImage(0, ImageIO.read(KeklistVelocity.getInstance().getDataDirectory().resolve(KeklistVelocity.getInstance().getConfig().getOption("map.jpg", "limbo.map-image")).toFile()));
-                        player.setInventory(4, getMap(), 1, 0, CompoundBinaryTag.builder().putInt("map", 0).build());
-                    } catch (IOException e) {
-                        KeklistVelocity.getInstance().getLogger().error(KeklistVelocity.getTranslations().get("limbo.map.error"));
-                    }
-                } else
-                    KeklistVelocity.getInstance().getLogger().warn(KeklistVelocity.getTranslations().get("limbo.map.not-found"));
+            // Decoded once by LimboUtil, a wave of players in the limbo doesn't read the file again
+            BufferedImage mapImage = KeklistVelocity.getInstance().getLimboUtil().getMapImage();
+            if (mapImage != null) {
+                player.sendImage(0, mapImage);
+                player.setInventory(4, getMap(), 1, 0, CompoundBinaryTag.builder().putInt("map", 0).build());
             }
         }
 
@@ -0,0 +1,61 @@
+package de.hdg.keklist.velocity.listener;
+
+import com.velocitypowered.api.event.PostOrder;
+import com.velocitypowered.api.event.ResultedEvent;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.LoginEvent;
+import com.velocitypowered.api.event.connection.PreLoginEvent;
+import com.velocitypowered.api.event.player.ServerPostConnectEvent;
+import de.hdg.keklist.velocity.util.BlacklistIndex;
+import de.hdg.keklist.velocity.util.VelocityConfig;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Rejects blacklisted players on the proxy, before any backend connection is opened
+ * <p>
+ * Addresses are checked before the login, UUIDs once the player is authenticated.
+ */
+public class BlacklistListener {
+
+    private final BlacklistIndex index;
+    private final VelocityConfig config;
+    private volatile boolean enforce;
+    private volatile Component kickMessage;
+
+    public BlacklistListener(@NotNull BlacklistIndex index, @NotNull VelocityConfig config) {
+        this.index = index;
+        this.config = config;
+        reload();
+    }
+
+    /**
+     * Reads the settings again, call this after the config was reloaded
+     */
+    public void reload() {
+        enforce = config.getOption(true, "blacklist.enforce");
+        kickMessage = MiniMessage.miniMessage().deserialize(config.getOption("<red>You are blacklisted on this network", "blacklist.kick-message"));
+    }
+
+    @Subscribe(order = PostOrder.EARLY)
+    public void onPreLogin(PreLoginEvent event) {
+        if (!enforce || !event.getResult().isAllowed()) return;
+
+        if (index.isBlacklisted(event.getConnection().getRemoteAddress().getAddress()))
+            event.setResult(PreLoginEvent.PreLoginComponentResult.denied(kickMessage));
+    }
+
+    @Subscribe(order = PostOrder.EARLY)
+    public void onLogin(LoginEvent event) {
+        if (!enforce || !event.getResult().isAllowed()) return;
+
+        if (index.isBlacklisted(event.getPlayer().getUniqueId()))
+            event.setResult(ResultedEvent.ComponentResult.denied(kickMessage));
+    }
+
+    @Subscribe
+    public void onServerPostConnect(ServerPostConnectEvent event) {
+        event.getPlayer().getCurrentServer().ifPresent(index::requestSyncIfMissing);
+    }
+}
@@ -0,0 +1,124 @@
+package de.hdg.keklist.velocity.util;
+
+import com.velocitypowered.api.proxy.ServerConnection;
+import com.velocitypowered.api.proxy.messages.ChannelIdentifier;
+import de.hdg.keklist.api.protocol.ApiFrame;
+import de.hdg.keklist.api.protocol.ApiPayload;
+import de.hdg.keklist.api.protocol.Operation;
+import de.hdg.keklist.util.IpRange;
+import de.hdg.keklist.util.IpRangeTrie;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.InetAddress;
+import java.net.ProtocolException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copy of the blacklists of the backends, replicated through the keklist:api channel
+ * <p>
+ * Every backend with blacklist.proxy-sync enabled sends a snapshot followed by its changes, see
+ * ProxyBlacklistSync. The index of each server is kept on its own, a player is rejected if any server has them
+ * blacklisted. Servers the proxy has no snapshot of are asked for one as soon as a player connects to them.
+ */
+public class BlacklistIndex {
+
+    private final ChannelIdentifier identifier;
+    private final Map<String, ServerIndex> servers = new ConcurrentHashMap<>();
+
+    public BlacklistIndex(@NotNull ChannelIdentifier identifier) {
+        this.identifier = identifier;
+    }
+
+    /**
+     * Applies a sync frame sent by a backend
+     *
+     * @param connection The connection the frame came through
+     * @param frame      The frame, with the source set
+     * @throws ProtocolException If the payload is malformed
+     */
+    public void handle(@NotNull ServerConnection connection, @NotNull ApiFrame frame) throws ProtocolException {
+        List<ApiPayload.Entry> entries = ApiPayload.readEntries(frame.operation(), frame.payload());
+
+        if (frame.operation() == Operation.SYNC_RESET) {
+            servers.put(frame.source(), new ServerIndex());
+            return;
+        }
+
+        ServerIndex index = servers.get(frame.source());
+        if (index == null) {
+            // Changes without a snapshot are useless, the snapshot contains them anyway
+            requestSync(connection);
+            return;
+        }
+
+        for (ApiPayload.Entry entry : entries) {
+            switch (frame.operation()) {
+                case SYNC_ADD_UUID -> index.uuids().add(UUID.fromString(entry.key()));
+                case SYNC_REMOVE_UUID -> index.uuids().remove(UUID.fromString(entry.key()));
+                case SYNC_ADD_IP -> index.ips().add(entry.key());
+                case SYNC_REMOVE_IP -> index.ips().remove(entry.key());
+                case SYNC_ADD_RANGE, SYNC_REMOVE_RANGE -> {
+                    IpRange range = IpRange.parse(entry.key());
+                    if (range == null) continue;
+
+                    if (frame.operation() == Operation.SYNC_ADD_RANGE)
+                        index.ranges().put(range, entry.key());
+                    else
+                        index.ranges().remove(range);
+                }
+                default -> throw new ProtocolException("Operation " + frame.operation() + " can't be sent to the proxy");
+            }
+        }
+    }
+
+    /**
+     * Asks the server behind a connection for a snapshot, unless the proxy already has one
+     *
+     * @param connection The connection of a player to the server
+     */
+    public void requestSyncIfMissing(@NotNull ServerConnection connection) {
+        if (!servers.containsKey(connection.getServerInfo().getName()))
+            requestSync(connection);
+    }
+
+    public boolean isBlacklisted(@NotNull UUID uuid) {
+        for (ServerIndex index : servers.values()) {
+            if (index.uuids().contains(uuid))
+                return true;
+        }
+
+        return false;
+    }
+
+    public boolean isBlacklisted(@NotNull InetAddress address) {
+        String ip = address.getHostAddress();
+
+        for (ServerIndex index : servers.values()) {
+            if (index.ips().contains(ip) || index.ranges().match(address) != null)
+                return true;
+        }
+
+        return false;
+    }
+
+    private void requestSync(@NotNull ServerConnection connection) {
+        ApiFrame request = new ApiFrame(ApiFrame.Kind.REQUEST, 0, ApiFrame.PROXY, connection.getServerInfo().getName(),
+                Operation.SYNC_REQUEST, ApiPayload.writeEntries(Operation.SYNC_REQUEST, List.of()));
+
+        connection.sendPluginMessage(identifier, request.encode());
+    }
+
+    /**
+     * The blacklist of one server
+     */
+    private record ServerIndex(Set<UUID> uuids, Set<String> ips, IpRangeTrie<String> ranges) {
+
+        private ServerIndex() {
+            this(ConcurrentHashMap.newKeySet(), ConcurrentHashMap.newKeySet(), new IpRangeTrie<>());
+        }
+    }
+}
@@ -14,6 +14,11 @@ import net.elytrium.limboapi.api.player.GameMode;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
 
 public class LimboUtil {
@@ -24,6 +29,7 @@ public class LimboUtil {
 
     private LimboFactory limboAPI;
     private @Getter @Nullable Limbo limbo;
+    private volatile @Getter @Nullable BufferedImage mapImage;
 
     public LimboUtil(KeklistVelocity plugin, VelocityConfig config) {
         this.plugin = plugin;
@@ -40,15 +46,55 @@ public class LimboUtil {
 
     public void onEnable() throws IOException {
         this.limbo = createLimbo();
+        reloadMap();
+    }
+
+    /**
+     * Decodes the configured map image and scales it to the 128x128 pixels of a map
+     * <p>
+     * The image is shared by every player in the limbo and must not be modified.
+     * Converting it to map colors is left to LimboAPI, because the palette depends on the version of the client.
+     */
+    public void reloadMap() {
+        if (!config.getOption(false, "limbo.enable-map")) {
+            this.mapImage = null;
+            return;
+        }
+
+        File file = plugin.getDataDirectory().resolve(config.getOption("map.jpg", "limbo.map-image")).toFile();
+        if (!file.exists()) {
+            logger.warn(KeklistVelocity.getTranslations().get("limbo.map.not-found"));
+            this.mapImage = null;
+            return;
+        }
+
+        try {
+            BufferedImage source = ImageIO.read(file);
+            if (source == null)
+                throw new IOException("Unsupported image format");
+
+            BufferedImage scaled = new BufferedImage(128, 128, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, 128, 128, null);
+            graphics.dispose();
+
+            this.mapImage = scaled;
+        } catch (IOException e) {
+            logger.error(KeklistVelocity.getTranslations().get("limbo.map.error"));
+            this.mapImage = null;
+        }
     }
 
     private Limbo createLimbo() throws IOException {
         LimboFactory factory = limboAPI;
 
         VirtualWorld world = factory.createVirtualWorld(Dimension.OVERWORLD, 0, 0, 0, 0, 0);
-        WorldFile file = factory.openWorldFile(BuiltInWorldFileType.STRUCTURE, plugin.getDataDirectory().resolve(config.getOption("limbo.nbt", "nbt-file")));
+        WorldFile file = factory.openWorldFile(BuiltInWorldFileType.STRUCTURE, plugin.getDataDirectory().resolve(config.getOption("limbo.nbt", "limbo.nbt-file")));
 
-        int[] offset = config.getOption(new int[]{0, 0, 0}, "limbo.offset");
+        int[] offset = config.getIntList(new int[]{0, 0, 0}, "limbo.offset");
+        if (offset.length != 3)
+            offset = new int[]{0, 0, 0};
 
         file.toWorld(factory, world, offset[0], Math.max(offset[1], 0), offset[2], 7);
 
@@ -1,8 +1,8 @@
 package de.hdg.keklist.velocity.util;
 
 import de.hdg.keklist.velocity.KeklistVelocity;
-import lombok.SneakyThrows;
 import ninja.leaping.configurate.ConfigurationNode;
+import ninja.leaping.configurate.SimpleConfigurationNode;
 import ninja.leaping.configurate.yaml.YAMLConfigurationLoader;
 import org.jetbrains.annotations.NotNull;
 import org.yaml.snakeyaml.DumperOptions;
@@ -14,6 +14,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 public class VelocityConfig {
     private YAMLConfigurationLoader configLoader;
+    private volatile ConfigurationNode root = SimpleConfigurationNode.root();
     private final Path configDirectory;
     private final String fileName;
 
@@ -40,6 +41,7 @@ public class VelocityConfig {
             }
 
             this.configLoader = YAMLConfigurationLoader.builder().setPath(directory.resolve(fileName)).setFlowStyle(DumperOptions.FlowStyle.BLOCK).build();
+            this.root = configLoader.load();
 
         } catch (IOException exception) {
             exception.printStackTrace();
@@ -47,16 +49,57 @@ public class VelocityConfig {
         }
     }
 
+    /**
+     * Reads the config file again
+     * <p>
+     * If the file can't be read, the values loaded before are kept.
+     */
+    public void reload() {
+        try {
+            root = configLoader.load();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Return the value of the given path or the default value
+     * <p>
+     * Values are served from memory, changes to the file need a {@link #reload()}.
      *
      * @param defaultValue Default if no value was found on the path
-     * @param path         Path to find the value
-     * @return The value to the path or default
+     * @param path         Path to find the value, sections are separated by dots
+     * @return The value to the path or default if it is missing or of another type
      */
-    @SneakyThrows(IOException.class)
+    @SuppressWarnings("unchecked")
     public <T> T getOption(@NotNull T defaultValue, @NotNull String path) {
-        return configLoader.load().getNode(path).getValue() != null ? (T) configLoader.load().getNode(path).getValue() : defaultValue;
+        Object value = root.getNode((Object[]) path.split("\\.")).getValue();
+        return defaultValue.getClass().isInstance(value) ? (T) value : defaultValue;
+    }
+
+    /**
+     * Return the numbers of the list on the given path or the default value
+     * <p>
+     * YAML lists are loaded as lists, so {@link #getOption(Object, String)} can't read them into an array.
+     *
+     * @param defaultValue Default if no list was found on the path
+     * @param path         Path to find the list, sections are separated by dots
+     * @return The numbers of the list or default if it is missing or holds something else than numbers
+     */
+    public int @NotNull [] getIntList(int @NotNull [] defaultValue, @NotNull String path) {
+        Object value = root.getNode((Object[]) path.split("\\.")).getValue();
+        if (!(value instanceof List<?> list))
+            return defaultValue;
+
+        int[] numbers = new int[list.size()];
+        for (int i = 0; i < numbers.length; i++) {
+            if (!(list.get(i) instanceof Number number))
+                return defaultValue;
+
+            numbers[i] = number.intValue();
+        }
+
+        return numbers;
     }
 
     /**
@@ -66,10 +109,11 @@ public class VelocityConfig {
      * @param path  Path of the value to set
      * @throws IOException On any IO error
      */
-    public void setValue(@NotNull Object value, @NotNull String path) throws IOException {
+    public synchronized void setValue(@NotNull Object value, @NotNull String path) throws IOException {
         ConfigurationNode node = configLoader.load();
-        node.getNode(path).setValue(value);
+        node.getNode((Object[]) path.split("\\.")).setValue(value);
         configLoader.save(node);
+        root = node;
     }
 
     /**
@@ -78,6 +122,7 @@ public class VelocityConfig {
     public void updateToNewVersion() {
         try {
             updateConfig(configLoader, YAMLConfigurationLoader.builder().setURL(this.getClass().getResource("/velocity-config.yml")).setFlowStyle(DumperOptions.FlowStyle.BLOCK).build());
+            reload();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }